@@ -0,0 +1,105 @@
+package asteroids.benchmarks;
+
+import java.util.Random;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Bullet;
+import asteroids.model.Entity;
+import asteroids.model.Planetoid;
+import asteroids.model.Ship;
+import asteroids.model.Size;
+import asteroids.model.Vector;
+import asteroids.model.World;
+
+/**
+ * A class of factories for the worlds the benchmarks are run on.
+ *
+ * The entities of a world are placed on a jittered square grid, so no two
+ * entities overlap however many there are, and the world is sized so the
+ * entities cover the requested fraction of its area.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+final class BenchmarkWorlds {
+
+	/**
+	 * Return a new world with the given number of entities.
+	 *
+	 * @param 	nbEntities
+	 * 			The number of entities in the new world.
+	 * @param 	density
+	 * 			The fraction of the area of the world covered by entities,
+	 * 			larger than 0 and at most MAX_DENSITY.
+	 * @param 	velocitySpread
+	 * 			The largest speed of the entities, in a random direction.
+	 * @param 	mix
+	 * 			The mix of types of the entities, ASTEROIDS or MIXED.
+	 * @param 	seed
+	 * 			The seed of the random placement of the entities.
+	 * @throws	IllegalArgumentException
+	 * 		|	nbEntities < 1 || ! (density > 0 && density <= MAX_DENSITY) || velocitySpread < 0
+	 * @throws	IllegalArgumentException
+	 * 			The given mix is not a known mix.
+	 */
+	static World create(int nbEntities, double density, double velocitySpread, String mix, long seed)
+			throws IllegalArgumentException {
+		if (nbEntities < 1 || ! (density > 0 && density <= MAX_DENSITY) || velocitySpread < 0)
+			throw new IllegalArgumentException();
+		if (! ASTEROIDS.equals(mix) && ! MIXED.equals(mix))
+			throw new IllegalArgumentException("Unknown mix: " + mix);
+		int perSide = (int) Math.ceil(Math.sqrt(nbEntities));
+		double cellSize = MEAN_RADIUS * Math.sqrt(Math.PI / density);
+		Size size = new Size(perSide * cellSize, perSide * cellSize);
+		World world = new World(size, seed);
+		Random random = new Random(seed);
+		for (int i = 0; i < nbEntities; i++) {
+			double radius = MEAN_RADIUS * (0.8 + 0.4 * random.nextDouble());
+			double type = MIXED.equals(mix) ? random.nextDouble() : 1;
+			if (type < 0.1)
+				radius = Math.max(radius, 11);
+			else if (type < 0.2)
+				radius = 3;
+			double jitter = cellSize / 2 - radius;
+			double x = (i % perSide + 0.5) * cellSize + jitter * (2 * random.nextDouble() - 1);
+			double y = (i / perSide + 0.5) * cellSize + jitter * (2 * random.nextDouble() - 1);
+			double speed = velocitySpread * random.nextDouble();
+			double direction = 2 * Math.PI * random.nextDouble();
+			Vector position = new Vector(x, y);
+			Vector velocity = new Vector(speed * Math.cos(direction), speed * Math.sin(direction));
+			Entity entity;
+			if (type < 0.1)
+				entity = new Ship(position, velocity, radius, direction, 1E20);
+			else if (type < 0.2)
+				entity = new Bullet(position, velocity, radius);
+			else if (type < 0.4)
+				entity = new Planetoid(position, velocity, radius, 0);
+			else
+				entity = new Asteroid(position, velocity, radius);
+			world.addEntity(entity);
+		}
+		return world;
+	}
+
+	/**
+	 * Constants naming the mixes of types: only asteroids, or ten percent
+	 * ships, ten percent bullets, twenty percent planetoids and the rest asteroids.
+	 */
+	static final String ASTEROIDS = "asteroids";
+
+	static final String MIXED = "mixed";
+
+	/**
+	 * Constant registering the mean radius of the entities that are not bullets.
+	 */
+	static final double MEAN_RADIUS = 15;
+
+	/**
+	 * Constant registering the largest density for which the largest entities
+	 * still fit in their cell of the grid.
+	 */
+	static final double MAX_DENSITY = 0.4;
+
+	private BenchmarkWorlds() {
+	}
+}
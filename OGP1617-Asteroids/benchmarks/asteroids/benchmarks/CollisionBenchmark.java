@@ -0,0 +1,93 @@
+package asteroids.benchmarks;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.Entity;
+import asteroids.model.World;
+
+/**
+ * A class of benchmarks measuring the collision queries of worlds and
+ * entities, over worlds of different sizes, densities, speeds and mixes.
+ *
+ * None of the queries changes the world, so every world is created once.
+ * The per-entity queries walk over the entities of the world, ordered by
+ * their position so successive entities are mostly neighbours.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollisionBenchmark {
+
+	@Param({"10", "100", "1000", "10000", "100000"})
+	public int nbEntities;
+
+	@Param({"0.05", "0.3"})
+	public double density;
+
+	@Param({"0", "100"})
+	public double velocitySpread;
+
+	@Param({BenchmarkWorlds.ASTEROIDS, BenchmarkWorlds.MIXED})
+	public String mix;
+
+	private World world;
+
+	private Entity[] entities;
+
+	private int cursor = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.world = BenchmarkWorlds.create(this.nbEntities, this.density, this.velocitySpread, this.mix,
+				WorldEvolveBenchmark.SEED);
+		this.entities = this.world.getEntities().toArray(new Entity[0]);
+		Arrays.sort(this.entities, Comparator.comparingDouble((Entity entity) -> entity.getPosition().getXComponent())
+				.thenComparingDouble(entity -> entity.getPosition().getYComponent()));
+	}
+
+	@Benchmark
+	public double getTimeNextCollision() {
+		return this.world.getTimeNextCollision();
+	}
+
+	@Benchmark
+	public double getTimeToCollision() {
+		Entity entity = this.next();
+		return entity.getTimeToCollision(this.entities[this.cursor]);
+	}
+
+	@Benchmark
+	public boolean checkOverlapInWorld() {
+		return this.next().checkOverlapInWorld(this.world);
+	}
+
+	/**
+	 * Return the entity at the cursor and move the cursor to the next entity.
+	 */
+	private Entity next() {
+		Entity entity = this.entities[this.cursor];
+		this.cursor = (this.cursor + 1) % this.entities.length;
+		return entity;
+	}
+}
@@ -0,0 +1,170 @@
+package asteroids.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.Program;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.part3.programs.internal.ParseOutcome;
+import asteroids.part3.programs.internal.ProgramParser;
+import asteroids.programs.ProgramFactory;
+
+/**
+ * A class of benchmarks measuring the interpreter of ship programs, over the
+ * programs in the resources and generated programs that stress recursion,
+ * loops, variables and entity queries.
+ *
+ * Every program runs on a ship in a mixed world, and is executed in slices
+ * of SLICE seconds, enough time for SLICE / 0.2 actions. Every program
+ * loops forever with an action in every iteration, so every slice ends in
+ * the middle of the program and the next slice resumes it. The resource
+ * programs with type errors are left out.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProgramBenchmark {
+
+	@Param({"program.txt", "program_assignment.txt", RECURSION, LOOP, VARIABLES, QUERIES})
+	public String program;
+
+	@Param({"100", "10000"})
+	public int nbEntities;
+
+	private String source;
+
+	private Ship ship;
+
+	@Setup(Level.Trial)
+	public void readSource() throws IOException {
+		this.source = getSource(this.program);
+	}
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		ParseOutcome<? extends Program> outcome = this.parse();
+		if (! outcome.isSuccess())
+			throw new IllegalStateException("Cannot parse " + this.program + ": " + outcome.getFailValue());
+		World world = BenchmarkWorlds.create(this.nbEntities, 0.05, 0, BenchmarkWorlds.MIXED, WorldEvolveBenchmark.SEED);
+		this.ship = world.getShips().iterator().next();
+		this.ship.loadProgram(outcome.getSuccessValue());
+	}
+
+	@Benchmark
+	public ParseOutcome<? extends Program> parse() {
+		return ProgramParser.create(new ProgramFactory()).parseString(this.source);
+	}
+
+	@Benchmark
+	public List<Object> executeProgram() {
+		List<Object> printed = this.ship.executeProgram(SLICE);
+		// The printed values of a program that never ends are never handed out.
+		this.ship.getProgram().getPrinted().clear();
+		return printed;
+	}
+
+	/**
+	 * Return the source of the program with the given name, either one of
+	 * the generated programs or a program in the resources.
+	 *
+	 * @throws	IOException
+	 * 			There is no program with the given name.
+	 */
+	static String getSource(String name) throws IOException {
+		switch (name) {
+			case RECURSION:
+				return "def fib {\n"
+						+ "  if ($1 < 2) { return $1; }\n"
+						+ "  else { return fib($1 + -1) + fib($1 + -2); }\n"
+						+ "}\n"
+						+ "while (1 < 2) {\n"
+						+ "  x := fib(" + RECURSION_DEPTH + ");\n"
+						+ "  skip;\n"
+						+ "}\n";
+			case LOOP:
+				return "while (1 < 2) {\n"
+						+ "  i := 0;\n"
+						+ "  while (i < " + LOOP_LENGTH + ") { i := i + 1; }\n"
+						+ "  skip;\n"
+						+ "}\n";
+			case VARIABLES:
+				StringBuilder variables = new StringBuilder("v0 := 1;\nwhile (1 < 2) {\n");
+				for (int i = 1; i < NB_VARIABLES; i++)
+					variables.append("  v").append(i).append(" := (v").append(i - 1).append(" * 0.5) + -(v")
+							.append(i / 2).append(");\n");
+				return variables.append("  v0 := v").append(NB_VARIABLES - 1).append(" + 1;\n  skip;\n}\n").toString();
+			case QUERIES:
+				return "while (1 < 2) {\n"
+						+ "  a := asteroid;\n"
+						+ "  p := planetoid;\n"
+						+ "  m := planet;\n"
+						+ "  s := ship;\n"
+						+ "  b := bullet;\n"
+						+ "  e := any;\n"
+						+ "  if (! (a == null)) { d := (getx a) + (gety a) + (getradius a); }\n"
+						+ "  skip;\n"
+						+ "}\n";
+			default:
+				try (InputStream input = ProgramBenchmark.class.getResourceAsStream("/asteroids/resources/programs/" + name)) {
+					if (input == null)
+						throw new IOException("No program " + name);
+					ByteArrayOutputStream output = new ByteArrayOutputStream();
+					byte[] buffer = new byte[4096];
+					for (int read = input.read(buffer); read >= 0; read = input.read(buffer))
+						output.write(buffer, 0, read);
+					return new String(output.toByteArray(), StandardCharsets.UTF_8);
+				}
+		}
+	}
+
+	/**
+	 * Constants naming the generated programs.
+	 */
+	static final String RECURSION = "recursion";
+
+	static final String LOOP = "loop";
+
+	static final String VARIABLES = "variables";
+
+	static final String QUERIES = "queries";
+
+	/**
+	 * Constants registering the size of the generated programs: the argument
+	 * of the recursive function, the number of iterations of the inner loop
+	 * and the number of variables.
+	 */
+	static final int RECURSION_DEPTH = 15;
+
+	static final int LOOP_LENGTH = 1000;
+
+	static final int NB_VARIABLES = 100;
+
+	/**
+	 * Constant registering the time a program is executed for per slice.
+	 */
+	static final double SLICE = 1;
+}
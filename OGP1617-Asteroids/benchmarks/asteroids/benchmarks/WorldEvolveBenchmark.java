@@ -0,0 +1,69 @@
+package asteroids.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.World;
+
+/**
+ * A class of benchmarks measuring how many frames per second a world can be
+ * evolved for, over worlds of different sizes, densities, speeds and mixes.
+ *
+ * Evolving changes the world, so a new world is created for every iteration.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorldEvolveBenchmark {
+
+	@Param({"10", "100", "1000", "10000", "100000"})
+	public int nbEntities;
+
+	@Param({"0.05", "0.3"})
+	public double density;
+
+	@Param({"0", "100"})
+	public double velocitySpread;
+
+	@Param({BenchmarkWorlds.ASTEROIDS, BenchmarkWorlds.MIXED})
+	public String mix;
+
+	private World world;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		this.world = BenchmarkWorlds.create(this.nbEntities, this.density, this.velocitySpread, this.mix, SEED);
+	}
+
+	@Benchmark
+	public double evolve() {
+		this.world.evolve(FRAME, null);
+		return this.world.getSimulationTime();
+	}
+
+	/**
+	 * Constants registering the time a world is evolved for per frame and
+	 * the seed of the worlds.
+	 */
+	static final double FRAME = 1.0 / 60;
+
+	static final long SEED = 42;
+}
@@ -22,6 +22,7 @@ import javax.swing.JPanel;
 import javax.swing.Timer;
 
 import asteroids.model.Bullet;
+import asteroids.model.CollisionDispatcher;
 import asteroids.model.Ship;
 import asteroids.model.World;
 import asteroids.part2.CollisionListener;
@@ -48,6 +49,8 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 	private String msg = null;
 	private Map<Object, Visualization<F, ?>> visualizations = new HashMap<>();
 	private Set<Explosion> explosions = new HashSet<>();
+	// Collisions are handed to this view after every evolve, not during it.
+	private final CollisionDispatcher collisions = new CollisionDispatcher(this, 1024, false);
 
 	private boolean showCollisions = false;
 
@@ -358,7 +361,7 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 	private void evolveWorld(long millisSinceLastEvolve) {
 		try {
 			millisSinceLastEvolve = Math.max(5, millisSinceLastEvolve);
-			facade.evolve(world, millisSinceLastEvolve / 1000., this);
+			facade.evolve(world, millisSinceLastEvolve / 1000., collisions);
 		} catch (ModelException exc) {
 			handleError(exc);
 		}
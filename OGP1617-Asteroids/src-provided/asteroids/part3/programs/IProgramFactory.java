@@ -66,6 +66,22 @@ public interface IProgramFactory<E, S, F, P> {
 	 */
 	public P createProgram(List<F> functions, S main);
 
+	/**
+	 * Create a program from the given arguments and the text it was parsed from.
+	 * By default, the text is ignored.
+	 * 
+	 * @param functions
+	 *            The function definitions for the program.
+	 * @param main
+	 *            The main statement of the program.
+	 * @param source
+	 *            The text the program was parsed from.
+	 * @return A new program.
+	 */
+	public default P createProgram(List<F> functions, S main, String source) {
+		return createProgram(functions, main);
+	}
+
 	/* FUNCTION DEFINITIONS */
 
 	/**
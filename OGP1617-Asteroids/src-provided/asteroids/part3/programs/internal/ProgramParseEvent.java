@@ -0,0 +1,29 @@
+package asteroids.part3.programs.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for a parse of a program that takes at least the
+ * threshold. The fields are only filled in if the event is committed.
+ */
+@Name("asteroids.ProgramParse")
+@Label("Program Parse")
+@Category("Asteroids")
+@Description("A parse of the text of a program")
+@Threshold("1 ms")
+final class ProgramParseEvent extends jdk.jfr.Event {
+
+	@Label("Length")
+	@Description("The number of characters of the program text")
+	int length;
+
+	@Label("Success")
+	boolean success;
+
+	@Label("Errors")
+	int nbErrors;
+}
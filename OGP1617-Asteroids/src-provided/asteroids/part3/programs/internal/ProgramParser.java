@@ -12,6 +12,7 @@ import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.misc.Interval;
 
 import asteroids.model.Program;
 import asteroids.part3.programs.IProgramFactory;
@@ -130,6 +131,20 @@ public class ProgramParser<E, S, F, P> {
 	 *       {@link #parseFile(String, List)} methods.
 	 */
 	protected ParseOutcome<P> parse(CharStream input) {
+		ProgramParseEvent event = new ProgramParseEvent();
+		event.begin();
+		ParseOutcome<P> outcome = parseProgram(input);
+		event.end();
+		if (event.shouldCommit()) {
+			event.length = input.size();
+			event.success = outcome.isSuccess();
+			event.nbErrors = errors.size();
+			event.commit();
+		}
+		return outcome;
+	}
+
+	private ParseOutcome<P> parseProgram(CharStream input) {
 		reset();
 
 		AsteroidsProgramLexer lexer = new AsteroidsProgramLexer(input);
@@ -146,7 +161,8 @@ public class ProgramParser<E, S, F, P> {
 			visitor.visitProgram(parser.program());
 			if (errors.isEmpty()) {
 			  assert visitor.getMain() != null;
-				P program = factory.createProgram(visitor.getFunctions(),visitor.getMain());
+				P program = factory.createProgram(visitor.getFunctions(),visitor.getMain(),
+						input.getText(Interval.of(0, input.size() - 1)));
 				if (program != null) {
 					return ParseOutcome.success(program);
 				}
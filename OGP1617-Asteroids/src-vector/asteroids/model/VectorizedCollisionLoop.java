@@ -0,0 +1,64 @@
+package asteroids.model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A class of loops computing times to collision with the incubating vector
+ * API, as many candidates at a time as fit in the preferred vector size.
+ *
+ * Every lane performs the operations of the scalar loop of CollisionKernel
+ * in the same order, and additions, multiplications, divisions and square
+ * roots of the vector API are rounded like their scalar counterparts, so
+ * both loops compute the same times, bit for bit. The candidates that do
+ * not fill a whole vector are handled by the scalar loop.
+ *
+ * This class is compiled with --add-modules jdk.incubator.vector and is
+ * loaded by CollisionKernel only if that module is available.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+final class VectorizedCollisionLoop implements CollisionKernel.Loop {
+
+	@Override
+	public void computeTimes(double x, double y, double xVelocity, double yVelocity, double radius,
+			double[] xs, double[] ys, double[] xVelocities, double[] yVelocities, double[] radii,
+			int count, double[] times) {
+		int bound = SPECIES.loopBound(count);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector otherRadius = DoubleVector.fromArray(SPECIES, radii, i);
+			DoubleVector drx = DoubleVector.fromArray(SPECIES, xs, i).sub(x);
+			DoubleVector dry = DoubleVector.fromArray(SPECIES, ys, i).sub(y);
+			DoubleVector dvx = DoubleVector.fromArray(SPECIES, xVelocities, i).sub(xVelocity);
+			DoubleVector dvy = DoubleVector.fromArray(SPECIES, yVelocities, i).sub(yVelocity);
+			DoubleVector sigma = otherRadius.add(radius);
+			DoubleVector drdr = drx.mul(drx).add(dry.mul(dry));
+			DoubleVector dvdr = dvx.mul(drx).add(dvy.mul(dry));
+			DoubleVector dvdv = dvx.mul(dvx).add(dvy.mul(dvy));
+			DoubleVector d = dvdr.mul(dvdr).sub(dvdv.mul(drdr.sub(sigma.mul(sigma))));
+			VectorMask<Double> overlap = drdr.lanewise(VectorOperators.SQRT).sub(radius).sub(otherRadius)
+					.compare(VectorOperators.LE, sigma.mul(-0.01));
+			VectorMask<Double> collides = overlap.not()
+					.and(dvdr.compare(VectorOperators.LT, 0))
+					.and(d.compare(VectorOperators.GT, 0));
+			DoubleVector time = dvdr.add(d.lanewise(VectorOperators.SQRT)).neg().div(dvdv);
+			INFINITY.blend(time, collides).intoArray(times, i);
+		}
+		CollisionKernel.computeTimes(x, y, xVelocity, yVelocity, radius, xs, ys, xVelocities, yVelocities,
+				radii, i, count, times);
+	}
+
+	/**
+	 * Constant referencing the species of the vectors of this loop.
+	 */
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Constant referencing a vector with all lanes positive infinity.
+	 */
+	private static final DoubleVector INFINITY = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+}
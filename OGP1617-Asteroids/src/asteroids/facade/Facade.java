@@ -243,12 +243,12 @@ public class Facade implements asteroids.part3.facade.IFacade {
 
 	@Override
 	public Set<? extends Ship> getWorldShips(World world) throws ModelException {
-		return (Set<? extends Ship>) world.getEntitiesOfType(Ship.class);
+		return world.getShips();
 	}
 
 	@Override
 	public Set<? extends Bullet> getWorldBullets(World world) throws ModelException {
-		return (Set<? extends Bullet>) world.getEntitiesOfType(Bullet.class);
+		return world.getBullets();
 	}
 
 	@Override
@@ -400,8 +400,11 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	@Override
 	public void evolve(World world, double dt, CollisionListener collisionListener) throws ModelException {
 		try {
-			world.evolve(dt, collisionListener);
-		} catch (IllegalArgumentException e) {
+			if (world.getFixedTimeStep() > 0)
+				world.evolveInFixedSteps(dt, collisionListener);
+			else
+				world.evolve(dt, collisionListener);
+		} catch (IllegalArgumentException | IllegalStateException e) {
 			throw new ModelException(e);
 		}
 	}
@@ -423,7 +426,7 @@ public class Facade implements asteroids.part3.facade.IFacade {
 
 	@Override
 	public Set<? extends Asteroid> getWorldAsteroids(World world) throws ModelException {
-		return (Set<? extends Asteroid>) world.getEntitiesOfType(Asteroid.class);
+		return world.getAsteroids();
 	}
 
 	@Override
@@ -446,7 +449,7 @@ public class Facade implements asteroids.part3.facade.IFacade {
 
 	@Override
 	public Set<? extends Planetoid> getWorldPlanetoids(World world) throws ModelException {
-		return (Set<? extends Planetoid>) world.getEntitiesOfType(Planetoid.class);
+		return world.getPlanetoids();
 	}
 
 	@Override
@@ -0,0 +1,395 @@
+package asteroids.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A class of dynamic bounding volume hierarchies, which are broad phases
+ * that keep the areas swept by the entities in a balanced binary tree of
+ * axis-aligned bounding boxes.
+ *
+ * Each leaf stores a fattened box around the area swept by its entity. As
+ * long as the swept area stays within that box the leaf is left alone, only
+ * leaves whose entity leaves its fat box are reinserted. The fat margin is
+ * proportional to the size of the swept area, so bullets, ships and large
+ * planetoids are all handled with the same relative precision.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+public class AabbTree implements BroadPhase {
+
+	/**
+	 * Initialize this new tree without entities.
+	 */
+	public AabbTree() {
+	}
+
+	/**
+	 * Constant registering the margin by which the box of a leaf is enlarged
+	 * on each side, relative to the largest side of the area swept by its entity.
+	 */
+	private static final double FAT_MARGIN = 0.2;
+
+	/**
+	 * Return the height of this tree, zero for an empty tree or a single leaf.
+	 */
+	public int getHeight() {
+		return (this.root == null) ? 0 : this.root.height;
+	}
+
+	/**
+	 * Return the number of entities tracked by this tree.
+	 */
+	public int getNbEntities() {
+		return this.leaves.size();
+	}
+
+	@Override
+	public void build(Collection<? extends Entity> entities, double horizon) {
+		this.generation++;
+		for (Entity entity: entities) {
+			this.insert(entity, horizon);
+			this.leaves.get(entity).generation = this.generation;
+		}
+		if (this.leaves.size() != entities.size()) {
+			List<Entity> removed = new ArrayList<>();
+			for (Node leaf: this.leaves.values())
+				if (leaf.generation != this.generation)
+					removed.add(leaf.entity);
+			for (Entity entity: removed)
+				this.remove(entity);
+		}
+	}
+
+	@Override
+	public void insert(Entity entity, double horizon) {
+		double[] bounds = BroadPhase.getSweptBounds(entity, horizon);
+		Node leaf = this.leaves.get(entity);
+		if (leaf != null) {
+			if (leaf.contains(bounds))
+				return;
+			this.removeLeaf(leaf);
+		}
+		else {
+			leaf = new Node();
+			leaf.entity = entity;
+			leaf.id = this.nextId++;
+			leaf.generation = this.generation;
+			this.leaves.put(entity, leaf);
+		}
+		double margin = FAT_MARGIN * Math.max(bounds[2] - bounds[0], bounds[3] - bounds[1]);
+		leaf.setBounds(bounds[0] - margin, bounds[1] - margin, bounds[2] + margin, bounds[3] + margin);
+		this.insertLeaf(leaf);
+	}
+
+	@Override
+	public void remove(Entity entity) {
+		Node leaf = this.leaves.remove(entity);
+		if (leaf != null)
+			this.removeLeaf(leaf);
+	}
+
+	@Override
+	public void clear() {
+		this.root = null;
+		this.leaves.clear();
+	}
+
+	@Override
+	public void forEachCandidatePair(BiConsumer<Entity, Entity> action) {
+		for (Node leaf: this.leaves.values())
+			this.query(leaf.minX, leaf.minY, leaf.maxX, leaf.maxY, other -> {
+				if (other.id > leaf.id)
+					action.accept(leaf.entity, other.entity);
+			});
+	}
+
+	@Override
+	public void forEachCandidate(Entity entity, Consumer<Entity> action) {
+		Node leaf = this.leaves.get(entity);
+		if (leaf == null)
+			return;
+		this.query(leaf.minX, leaf.minY, leaf.maxX, leaf.maxY, other -> {
+			if (other != leaf)
+				action.accept(other.entity);
+		});
+	}
+
+	@Override
+	public void forEachEntityIn(double minX, double minY, double maxX, double maxY, Consumer<Entity> action) {
+		this.query(minX, minY, maxX, maxY, leaf -> action.accept(leaf.entity));
+	}
+
+	/**
+	 * Apply the given action to every leaf whose box overlaps the given box.
+	 */
+	private void query(double minX, double minY, double maxX, double maxY, Consumer<Node> action) {
+		if (this.root == null)
+			return;
+		Deque<Node> stack = this.stack;
+		stack.push(this.root);
+		while (! stack.isEmpty()) {
+			Node node = stack.pop();
+			if (! node.overlaps(minX, minY, maxX, maxY))
+				continue;
+			if (node.isLeaf())
+				action.accept(node);
+			else {
+				stack.push(node.right);
+				stack.push(node.left);
+			}
+		}
+	}
+
+	/**
+	 * Insert the given leaf next to the sibling that increases the total perimeter
+	 * of the tree the least, then rebalance and refit its ancestors.
+	 */
+	private void insertLeaf(Node leaf) {
+		if (this.root == null) {
+			this.root = leaf;
+			leaf.parent = null;
+			return;
+		}
+
+		Node sibling = this.root;
+		while (! sibling.isLeaf()) {
+			double perimeter = sibling.getPerimeter();
+			double combinedPerimeter = getUnionPerimeter(sibling, leaf);
+			double cost = 2 * combinedPerimeter;
+			double inheritanceCost = 2 * (combinedPerimeter - perimeter);
+			double leftCost = getDescentCost(sibling.left, leaf) + inheritanceCost;
+			double rightCost = getDescentCost(sibling.right, leaf) + inheritanceCost;
+			if (cost < leftCost && cost < rightCost)
+				break;
+			sibling = (leftCost < rightCost) ? sibling.left : sibling.right;
+		}
+
+		Node oldParent = sibling.parent;
+		Node newParent = new Node();
+		newParent.parent = oldParent;
+		newParent.setUnion(sibling, leaf);
+		newParent.height = sibling.height + 1;
+		newParent.left = sibling;
+		newParent.right = leaf;
+		sibling.parent = newParent;
+		leaf.parent = newParent;
+		if (oldParent == null)
+			this.root = newParent;
+		else if (oldParent.left == sibling)
+			oldParent.left = newParent;
+		else
+			oldParent.right = newParent;
+
+		this.refitAncestors(leaf.parent);
+	}
+
+	/**
+	 * Return the cost of descending into the given node when inserting the given leaf.
+	 */
+	private static double getDescentCost(Node node, Node leaf) {
+		if (node.isLeaf())
+			return getUnionPerimeter(node, leaf);
+		return getUnionPerimeter(node, leaf) - node.getPerimeter();
+	}
+
+	/**
+	 * Remove the given leaf from the tree, replacing its parent by its sibling.
+	 */
+	private void removeLeaf(Node leaf) {
+		if (leaf == this.root) {
+			this.root = null;
+			return;
+		}
+		Node parent = leaf.parent;
+		Node grandParent = parent.parent;
+		Node sibling = (parent.left == leaf) ? parent.right : parent.left;
+		leaf.parent = null;
+		if (grandParent == null) {
+			this.root = sibling;
+			sibling.parent = null;
+			return;
+		}
+		if (grandParent.left == parent)
+			grandParent.left = sibling;
+		else
+			grandParent.right = sibling;
+		sibling.parent = grandParent;
+		this.refitAncestors(grandParent);
+	}
+
+	/**
+	 * Rebalance the given node and each of its ancestors, and recompute their boxes and heights.
+	 */
+	private void refitAncestors(Node node) {
+		while (node != null) {
+			node = this.balance(node);
+			node.setUnion(node.left, node.right);
+			node.height = 1 + Math.max(node.left.height, node.right.height);
+			node = node.parent;
+		}
+	}
+
+	/**
+	 * Rotate the higher child of the given node up if the heights of its
+	 * children differ by more than one.
+	 *
+	 * @return	The node that takes the place of the given node.
+	 */
+	private Node balance(Node a) {
+		if (a.isLeaf() || a.height < 2)
+			return a;
+		Node b = a.left;
+		Node c = a.right;
+		int balance = c.height - b.height;
+
+		if (balance > 1) {
+			Node f = c.left;
+			Node g = c.right;
+			this.replaceChild(a, c);
+			c.left = a;
+			a.parent = c;
+			if (f.height > g.height) {
+				c.right = f;
+				a.right = g;
+				g.parent = a;
+			}
+			else {
+				c.right = g;
+				a.right = f;
+				f.parent = a;
+			}
+			a.setUnion(a.left, a.right);
+			a.height = 1 + Math.max(a.left.height, a.right.height);
+			c.setUnion(c.left, c.right);
+			c.height = 1 + Math.max(c.left.height, c.right.height);
+			return c;
+		}
+
+		if (balance < -1) {
+			Node d = b.left;
+			Node e = b.right;
+			this.replaceChild(a, b);
+			b.left = a;
+			a.parent = b;
+			if (d.height > e.height) {
+				b.right = d;
+				a.left = e;
+				e.parent = a;
+			}
+			else {
+				b.right = e;
+				a.left = d;
+				d.parent = a;
+			}
+			a.setUnion(a.left, a.right);
+			a.height = 1 + Math.max(a.left.height, a.right.height);
+			b.setUnion(b.left, b.right);
+			b.height = 1 + Math.max(b.left.height, b.right.height);
+			return b;
+		}
+		return a;
+	}
+
+	/**
+	 * Let the given replacement take the place of the given node in the parent of that node.
+	 */
+	private void replaceChild(Node node, Node replacement) {
+		replacement.parent = node.parent;
+		if (node.parent == null)
+			this.root = replacement;
+		else if (node.parent.left == node)
+			node.parent.left = replacement;
+		else
+			node.parent.right = replacement;
+	}
+
+	/**
+	 * Return the perimeter of the union of the boxes of the given nodes.
+	 */
+	private static double getUnionPerimeter(Node node, Node other) {
+		double width = Math.max(node.maxX, other.maxX) - Math.min(node.minX, other.minX);
+		double height = Math.max(node.maxY, other.maxY) - Math.min(node.minY, other.minY);
+		return 2 * (width + height);
+	}
+
+	/**
+	 * Variable referencing the root of this tree.
+	 */
+	private Node root = null;
+
+	/**
+	 * Variable referencing the map of the tracked entities to their leaves, in insertion order.
+	 */
+	private final Map<Entity, Node> leaves = new LinkedHashMap<>();
+
+	/**
+	 * Variable referencing the stack used to traverse this tree.
+	 */
+	private final Deque<Node> stack = new ArrayDeque<>();
+
+	/**
+	 * Variable registering the id of the next leaf.
+	 */
+	private int nextId = 0;
+
+	/**
+	 * Variable registering the number of builds, used to find the leaves
+	 * of entities that are no longer tracked.
+	 */
+	private int generation = 0;
+
+	/**
+	 * A class of nodes involving a box, a parent and either two children or an entity.
+	 */
+	private static class Node {
+
+		boolean isLeaf() {
+			return this.left == null;
+		}
+
+		void setBounds(double minX, double minY, double maxX, double maxY) {
+			this.minX = minX;
+			this.minY = minY;
+			this.maxX = maxX;
+			this.maxY = maxY;
+		}
+
+		void setUnion(Node node, Node other) {
+			this.setBounds(Math.min(node.minX, other.minX), Math.min(node.minY, other.minY),
+					Math.max(node.maxX, other.maxX), Math.max(node.maxY, other.maxY));
+		}
+
+		boolean contains(double[] bounds) {
+			return this.minX <= bounds[0] && this.minY <= bounds[1] && bounds[2] <= this.maxX && bounds[3] <= this.maxY;
+		}
+
+		boolean overlaps(double minX, double minY, double maxX, double maxY) {
+			return this.minX <= maxX && minX <= this.maxX && this.minY <= maxY && minY <= this.maxY;
+		}
+
+		double getPerimeter() {
+			return 2 * ((this.maxX - this.minX) + (this.maxY - this.minY));
+		}
+
+		double minX, minY, maxX, maxY;
+
+		Node parent, left, right;
+
+		int height = 0;
+
+		Entity entity;
+
+		int id;
+
+		int generation;
+	}
+}
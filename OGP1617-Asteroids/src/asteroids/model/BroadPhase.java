@@ -0,0 +1,110 @@
+package asteroids.model;
+
+import java.util.Collection;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * An interface of broad phases, which select the pairs of entities that
+ * may collide within a given time horizon.
+ *
+ * A broad phase never misses a pair that collides within the horizon,
+ * but it may report pairs that do not collide. The exact time to collision
+ * of each reported pair is computed by Entity.getTimeToCollision.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+public interface BroadPhase {
+
+	/**
+	 * Rebuild this broad phase for the given entities and the given horizon.
+	 *
+	 * @param 	entities
+	 * 			The entities to track.
+	 * @param 	horizon
+	 * 			The time, starting now, during which collisions must be found.
+	 */
+	void build(Collection<? extends Entity> entities, double horizon);
+
+	/**
+	 * Insert the given entity in this broad phase, or refresh its bounds if
+	 * it is already tracked.
+	 *
+	 * @param 	entity
+	 * 			The entity to insert.
+	 * @param 	horizon
+	 * 			The time, starting now, during which collisions must be found.
+	 */
+	void insert(Entity entity, double horizon);
+
+	/**
+	 * Stop tracking the given entity.
+	 *
+	 * @param 	entity
+	 * 			The entity to remove.
+	 */
+	void remove(Entity entity);
+
+	/**
+	 * Stop tracking all entities.
+	 */
+	void clear();
+
+	/**
+	 * Apply the given action to each pair of tracked entities that may collide,
+	 * every pair being reported exactly once.
+	 *
+	 * @param 	action
+	 * 			The action to apply.
+	 */
+	void forEachCandidatePair(BiConsumer<Entity, Entity> action);
+
+	/**
+	 * Apply the given action to each tracked entity, other than the given entity,
+	 * that may collide with the given entity, every entity being reported once.
+	 *
+	 * @param 	entity
+	 * 			The entity to find candidates for.
+	 * @param 	action
+	 * 			The action to apply.
+	 */
+	void forEachCandidate(Entity entity, Consumer<Entity> action);
+
+	/**
+	 * Apply the given action to each tracked entity whose swept area may
+	 * intersect the given box, every entity being reported once.
+	 *
+	 * @param 	minX
+	 * 			The smallest x coordinate of the box.
+	 * @param 	minY
+	 * 			The smallest y coordinate of the box.
+	 * @param 	maxX
+	 * 			The largest x coordinate of the box.
+	 * @param 	maxY
+	 * 			The largest y coordinate of the box.
+	 * @param 	action
+	 * 			The action to apply.
+	 */
+	void forEachEntityIn(double minX, double minY, double maxX, double maxY, Consumer<Entity> action);
+
+	/**
+	 * Return the bounds of the area swept by the given entity during the given
+	 * time, as {minX, minY, maxX, maxY}.
+	 *
+	 * @param 	entity
+	 * 			The entity to compute the bounds for.
+	 * @param 	horizon
+	 * 			The time during which the entity moves.
+	 * @return	| @see implementation
+	 */
+	static double[] getSweptBounds(Entity entity, double horizon) {
+		double x = entity.getPosition().getXComponent();
+		double y = entity.getPosition().getYComponent();
+		double endX = x + entity.getVelocity().getXComponent() * horizon;
+		double endY = y + entity.getVelocity().getYComponent() * horizon;
+		double radius = entity.getRadius();
+		return new double[] { Math.min(x, endX) - radius, Math.min(y, endY) - radius,
+				Math.max(x, endX) + radius, Math.max(y, endY) + radius };
+	}
+}
@@ -246,7 +246,7 @@ public class Bullet extends Entity{
 	 *       | ! isValidCollisionCounter(getCollisionCounter())
 	 */
 	@Raw
-	private void setCollisionCounter(double collisionCounter) 
+	void setCollisionCounter(double collisionCounter) 
 			throws IllegalArgumentException {
 		if (! isValidCollisionCounter(collisionCounter))
 			throw new IllegalArgumentException();
@@ -0,0 +1,334 @@
+package asteroids.model;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import asteroids.part2.CollisionListener;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of collision listeners that buffer the collisions of an evolve and
+ * hand them to another listener in one batch once the evolve is done, so a
+ * slow listener never stretches the evolve itself.
+ *
+ * The collisions are buffered in a ring of a fixed capacity, allocated once.
+ * A world evolved with a dispatcher as its listener dispatches the buffered
+ * collisions at the end of every evolve. Without a consumer they are handed
+ * to the listener right away, on the thread that evolved the world. With a
+ * consumer a dedicated thread hands them to the listener, while the world
+ * goes on evolving. The entities are handed over as they are when the
+ * listener is invoked, which with a consumer may be after later evolves.
+ * Collisions that do not fit in the ring are dropped and counted, the
+ * evolve never waits for the listener.
+ *
+ * Exceptions the listener throws are counted. Without a consumer they are
+ * thrown right away by the dispatch. With a consumer the consumer goes on
+ * with the next collision, and the first exception that has not been
+ * reported yet is thrown by the next dispatch, or else by close.
+ *
+ * @invar	| getListener() != null
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+public final class CollisionDispatcher implements CollisionListener, Closeable {
+
+	/**
+	 * Initialize this new dispatcher for the given listener, buffering at
+	 * least the given number of collisions.
+	 *
+	 * @param 	listener
+	 * 			The listener to hand the collisions to.
+	 * @param 	capacity
+	 * 			The number of collisions this new dispatcher can buffer,
+	 * 			rounded up to a power of two.
+	 * @param 	hasConsumer
+	 * 			Whether a dedicated thread hands the collisions to the listener.
+	 * @post	| new.getListener() == listener && new.hasConsumer() == hasConsumer
+	 * @post	| new.getCapacity() >= capacity
+	 * @throws	IllegalArgumentException
+	 * 		|	listener == null || capacity <= 0 || capacity > MAX_CAPACITY
+	 */
+	public CollisionDispatcher(CollisionListener listener, int capacity, boolean hasConsumer)
+			throws IllegalArgumentException {
+		if (listener == null || capacity <= 0 || capacity > MAX_CAPACITY)
+			throw new IllegalArgumentException();
+		this.listener = listener;
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size *= 2;
+		this.mask = size - 1;
+		this.entities = new Object[size];
+		this.others = new Object[size];
+		this.xs = new double[size];
+		this.ys = new double[size];
+		if (hasConsumer) {
+			this.consumer = new Thread(this::consume, "collision-dispatcher");
+			this.consumer.setDaemon(true);
+			this.consumer.start();
+		}
+		else
+			this.consumer = null;
+	}
+
+	/**
+	 * Return the listener this dispatcher hands the collisions to.
+	 */
+	@Basic @Immutable
+	public CollisionListener getListener() {
+		return this.listener;
+	}
+
+	/**
+	 * Variable referencing the listener of this dispatcher.
+	 */
+	private final CollisionListener listener;
+
+	/**
+	 * Return the number of collisions this dispatcher can buffer.
+	 */
+	@Basic @Immutable
+	public int getCapacity() {
+		return this.mask + 1;
+	}
+
+	/**
+	 * Check whether a dedicated thread hands the collisions of this dispatcher to its listener.
+	 */
+	@Basic @Immutable
+	public boolean hasConsumer() {
+		return this.consumer != null;
+	}
+
+	/**
+	 * Return the number of collisions dropped because the ring of this dispatcher was full.
+	 */
+	@Basic
+	public long getNbDropped() {
+		return this.nbDropped;
+	}
+
+	/**
+	 * Variable registering the number of dropped collisions.
+	 */
+	private long nbDropped = 0;
+
+	/**
+	 * Return the number of exceptions the listener of this dispatcher threw.
+	 */
+	@Basic
+	public long getNbFailures() {
+		return this.nbFailures;
+	}
+
+	/**
+	 * Variable registering the number of exceptions the listener threw,
+	 * written by the consumer if there is one.
+	 */
+	private volatile long nbFailures = 0;
+
+	/**
+	 * Check whether this dispatcher is closed.
+	 */
+	@Basic
+	public boolean isClosed() {
+		return this.isClosed;
+	}
+
+	/**
+	 * Variable registering whether this dispatcher is closed.
+	 */
+	private volatile boolean isClosed = false;
+
+	@Override
+	public void boundaryCollision(Object entity, double x, double y) {
+		this.add(entity, null, x, y);
+	}
+
+	@Override
+	public void objectCollision(Object entity1, Object entity2, double x, double y) {
+		this.add(entity1, entity2, x, y);
+	}
+
+	/**
+	 * Buffer a collision of the given entity with the given other entity,
+	 * or with the boundary if the other entity is null, at the given position.
+	 */
+	private void add(Object entity, Object other, double x, double y) {
+		if (this.tail - this.head >= this.getCapacity()) {
+			this.nbDropped++;
+			return;
+		}
+		int slot = (int) (this.tail & this.mask);
+		this.entities[slot] = entity;
+		this.others[slot] = other;
+		this.xs[slot] = x;
+		this.ys[slot] = y;
+		this.tail++;
+	}
+
+	/**
+	 * Hand the collisions buffered so far to the listener of this dispatcher:
+	 * right away if it has no consumer, otherwise by waking up its consumer.
+	 * Worlds call this at the end of every evolve with this dispatcher as listener.
+	 *
+	 * @throws	IllegalStateException
+	 * 		|	isClosed()
+	 * @throws	RuntimeException
+	 * 			The exception the listener threw while handed the collisions
+	 * 			without a consumer, or else the first exception the listener
+	 * 			threw on the consumer since the previous dispatch, if any.
+	 */
+	public void dispatch() throws IllegalStateException, RuntimeException {
+		if (this.isClosed())
+			throw new IllegalStateException();
+		if (this.consumer == null)
+			this.deliverReporting(this.tail);
+		else if (this.published != this.tail) {
+			this.published = this.tail;
+			LockSupport.unpark(this.consumer);
+		}
+		this.reportFailure();
+	}
+
+	/**
+	 * Hand the buffered collisions up to the given count to the listener,
+	 * counting the exception it throws, if any.
+	 */
+	private void deliverReporting(long end) {
+		try {
+			this.deliver(end);
+		} catch (RuntimeException exc) {
+			this.nbFailures++;
+			throw exc;
+		}
+	}
+
+	/**
+	 * Throw the first exception the listener threw on the consumer that has
+	 * not been reported yet, if any.
+	 */
+	private void reportFailure() {
+		RuntimeException failure = this.failure.getAndSet(null);
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * Hand the buffered collisions up to the given count to the listener.
+	 */
+	private void deliver(long end) {
+		while (this.head < end) {
+			int slot = (int) (this.head & this.mask);
+			Object entity = this.entities[slot];
+			Object other = this.others[slot];
+			double x = this.xs[slot];
+			double y = this.ys[slot];
+			this.entities[slot] = null;
+			this.others[slot] = null;
+			this.head++;
+			if (other == null)
+				this.listener.boundaryCollision(entity, x, y);
+			else
+				this.listener.objectCollision(entity, other, x, y);
+		}
+	}
+
+	/**
+	 * Hand the dispatched collisions to the listener until this dispatcher is closed.
+	 */
+	private void consume() {
+		while (true) {
+			long end = this.published;
+			if (this.head == end) {
+				// The last collisions are dispatched before this dispatcher is closed.
+				if (this.isClosed() && this.published == end)
+					return;
+				if (! this.isClosed())
+					LockSupport.park(this);
+				continue;
+			}
+			try {
+				this.deliver(end);
+			} catch (RuntimeException exc) {
+				this.nbFailures++;
+				this.failure.compareAndSet(null, exc);
+			}
+		}
+	}
+
+	/**
+	 * Hand the collisions that are left to the listener of this dispatcher
+	 * and stop its consumer, if any.
+	 *
+	 * @post	| new.isClosed()
+	 * @throws	RuntimeException
+	 * 			The exception the listener threw while handed the collisions
+	 * 			without a consumer, or else the first exception the listener
+	 * 			threw on the consumer that has not been reported yet, if any.
+	 */
+	@Override
+	public void close() throws RuntimeException {
+		if (this.isClosed())
+			return;
+		if (this.consumer == null) {
+			this.isClosed = true;
+			this.deliverReporting(this.tail);
+			return;
+		}
+		this.published = this.tail;
+		this.isClosed = true;
+		LockSupport.unpark(this.consumer);
+		try {
+			this.consumer.join();
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		}
+		this.reportFailure();
+	}
+
+	/**
+	 * Variables referencing the ring of buffered collisions: the entities,
+	 * the other entities, null for the boundary, and the positions.
+	 */
+	private final Object[] entities;
+
+	private final Object[] others;
+
+	private final double[] xs;
+
+	private final double[] ys;
+
+	/**
+	 * Variable registering the capacity of the ring minus one.
+	 */
+	private final int mask;
+
+	/**
+	 * Variables registering the number of collisions ever buffered, written
+	 * by the thread evolving the world, the number of collisions dispatched
+	 * to the consumer, and the number of collisions handed to the listener,
+	 * written by the consumer if there is one.
+	 */
+	private long tail = 0;
+
+	private volatile long published = 0;
+
+	private volatile long head = 0;
+
+	/**
+	 * Variable referencing the consumer of this dispatcher, null if it has none.
+	 */
+	private final Thread consumer;
+
+	/**
+	 * Variable referencing the first exception the listener threw on the
+	 * consumer that has not been reported yet, null if there is none.
+	 */
+	private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+	/**
+	 * Constant registering the largest capacity of a dispatcher.
+	 */
+	public static final int MAX_CAPACITY = 1 << 24;
+}
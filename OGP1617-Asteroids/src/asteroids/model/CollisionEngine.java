@@ -0,0 +1,791 @@
+package asteroids.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of event-driven collision engines involving a world, a clock
+ * and a queue of predicted collision events.
+ *
+ * The engine predicts, for every pair of entities and for every entity
+ * and the boundary of its world, the time of the next collision. These
+ * predictions are kept in a min-heap. After a collision is resolved only
+ * the events of the entities involved are recomputed, events that refer
+ * to an entity whose state has changed since they were predicted are
+ * dropped when they reach the head of the queue.
+ *
+ * @invar	The world of each collision engine is effective.
+ * 		|	getWorld() != null
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+class CollisionEngine {
+
+	/**
+	 * Initialize this new collision engine for the given world.
+	 *
+	 * @param 	world
+	 * 			The world of this new collision engine.
+	 * @post	The world of this new collision engine is the given world.
+	 * 		|	new.getWorld() == world
+	 * @post	This new collision engine is not active.
+	 * 		|	! new.isActive()
+	 */
+	CollisionEngine(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * Return the world of this collision engine.
+	 */
+	@Basic @Immutable
+	World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Variable referencing the world of this collision engine.
+	 */
+	private final World world;
+
+	/**
+	 * Return the current time of the clock of this collision engine.
+	 */
+	@Basic
+	double getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Advance the clock of this collision engine by the given time.
+	 *
+	 * @param 	dt
+	 * 			The time to advance the clock with.
+	 * @post	| new.getTime() == this.getTime() + dt
+	 */
+	void advanceClock(double dt) {
+		this.time += dt;
+	}
+
+	/**
+	 * Variable registering the time of the clock of this collision engine.
+	 */
+	private double time = 0;
+
+	/**
+	 * Return whether this collision engine is active, i.e. whether it
+	 * tracks the events of the entities in its world.
+	 */
+	@Basic
+	boolean isActive() {
+		return this.isActive;
+	}
+
+	/**
+	 * Variable registering whether this collision engine is active.
+	 */
+	private boolean isActive = false;
+
+	/**
+	 * Start tracking the events of all the entities in the world of this
+	 * collision engine during the given horizon.
+	 *
+	 * @param 	horizon
+	 * 			The time, starting now, during which events must be found.
+	 * 			Events after the horizon may be missed.
+	 * @post	This collision engine is active.
+	 * 		|	new.isActive()
+	 * @post	The queue holds the next boundary event of every entity and the
+	 * 			next collision of every pair of non-overlapping entities that
+	 * 			collide within the horizon.
+	 * 		|	@see implementation
+	 */
+	void start(double horizon) {
+		this.clearQueue();
+		this.time = 0;
+		this.endTime = horizon;
+		this.isActive = true;
+
+		EntityStore entities = this.getWorld().getEntityStore();
+		ForkJoinPool pool = this.getWorld().getForkJoinPool();
+		if (pool != null && entities.size() > PARALLEL_GRAIN) {
+			this.startInParallel(new ArrayList<>(entities), horizon, pool);
+			return;
+		}
+		for (int i = 0; i < entities.size(); i++) {
+			Entity entity = entities.get(i);
+			entity.collisionStamp++;
+			this.predictBoundaryCollision(entity);
+		}
+
+		if (this.usesBroadPhase()) {
+			this.getWorld().getBroadPhase().build(entities, horizon);
+			this.getWorld().getBroadPhase().forEachCandidatePair(this.collisionPredictor);
+		}
+		else {
+			for (int i = 0; i < entities.size(); i++)
+				for (int j = i + 1; j < entities.size(); j++)
+					this.predictCollision(entities.get(i), entities.get(j));
+		}
+	}
+
+	/**
+	 * Variable referencing the action predicting the collision of a candidate pair,
+	 * created once so starting this engine does not create it again.
+	 */
+	private final BiConsumer<Entity, Entity> collisionPredictor = this::predictCollision;
+
+	/**
+	 * Predict the events of the given entities in the given pool, and add them
+	 * to the queue in the same order as start does in a single thread, so both
+	 * build the same queue.
+	 */
+	private void startInParallel(List<Entity> entities, double horizon, ForkJoinPool pool) {
+		// Fill the cached vectors of the entities first, so the tasks only read them.
+		for (Entity entity: entities) {
+			entity.collisionStamp++;
+			entity.getPosition();
+			entity.getVelocity();
+		}
+
+		CollisionEvent[] boundaryEvents = new CollisionEvent[entities.size()];
+		ParallelRange.run(pool, entities.size(), PARALLEL_GRAIN, (from, to) -> {
+			for (int i = from; i < to; i++)
+				boundaryEvents[i] = this.computeBoundaryCollision(entities.get(i));
+		});
+		this.addAll(boundaryEvents);
+
+		if (this.usesBroadPhase()) {
+			this.getWorld().getBroadPhase().build(entities, horizon);
+			List<Entity> firsts = new ArrayList<>();
+			List<Entity> seconds = new ArrayList<>();
+			this.getWorld().getBroadPhase().forEachCandidatePair((entity, other) -> {
+				firsts.add(entity);
+				seconds.add(other);
+			});
+			CollisionEvent[] events = new CollisionEvent[firsts.size()];
+			this.nbPairsTested += events.length;
+			ParallelRange.run(pool, events.length, PARALLEL_GRAIN, (from, to) -> {
+				for (int i = from; i < to; i++)
+					events[i] = this.computeCollision(firsts.get(i), seconds.get(i));
+			});
+			this.addAll(events);
+		}
+		else {
+			CollisionEvent[][] rows = new CollisionEvent[entities.size()][];
+			this.nbPairsTested += (long) entities.size() * (entities.size() - 1) / 2;
+			ParallelRange.run(pool, entities.size(), 1, (from, to) -> {
+				List<CollisionEvent> row = new ArrayList<>();
+				for (int i = from; i < to; i++) {
+					for (int j = i + 1; j < entities.size(); j++) {
+						CollisionEvent event = this.computeCollision(entities.get(i), entities.get(j));
+						if (event != null)
+							row.add(event);
+					}
+					rows[i] = row.toArray(new CollisionEvent[row.size()]);
+					row.clear();
+				}
+			});
+			for (CollisionEvent[] row: rows)
+				this.addAll(row);
+		}
+	}
+
+	/**
+	 * Add the effective events in the given array to the queue, in order.
+	 */
+	private void addAll(CollisionEvent[] events) {
+		for (CollisionEvent event: events)
+			if (event != null)
+				this.enqueue(event);
+	}
+
+	/**
+	 * Constant registering the number of entities or pairs handled by a single
+	 * task when events are predicted in a pool.
+	 */
+	private static final int PARALLEL_GRAIN = 512;
+
+	/**
+	 * Start tracking the events of all the entities in the world of this
+	 * collision engine, without a horizon.
+	 *
+	 * @effect	| start(Double.POSITIVE_INFINITY)
+	 */
+	void start() {
+		this.start(Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Return the next collision in the world of this collision engine, without
+	 * tracking the events of its entities. The clock of this engine is reset.
+	 *
+	 * Only the earliest collision is kept, no event is added to the queue.
+	 * The candidate pairs are selected by the broad phase of the world with
+	 * a horizon that starts at FIRST_HORIZON and doubles until it holds the
+	 * earliest collision found or reaches the earliest boundary collision,
+	 * so the entities are only swept over the time that is needed.
+	 *
+	 * @pre		This collision engine is not active.
+	 * 		|	! isActive()
+	 * @post	| new.getTime() == 0
+	 * @return	Null if no collision will occur. Otherwise a new event at the time
+	 * 			of the earliest collision, a collision with the boundary if it
+	 * 			happens at the same time as a collision between entities.
+	 * 		|	@see implementation
+	 */
+	CollisionEvent findNextEvent() {
+		this.time = 0;
+		EntityStore entities = this.getWorld().getEntityStore();
+		this.nextTime = Double.POSITIVE_INFINITY;
+		this.nextEntity = null;
+		this.nextOther = null;
+		for (int i = 0; i < entities.size(); i++) {
+			double dt = entities.get(i).getTimeToCollisionBoundary();
+			if (dt < this.nextTime) {
+				this.nextTime = dt;
+				this.nextEntity = entities.get(i);
+			}
+		}
+		double boundaryTime = this.nextTime;
+		// Every moving entity reaches the boundary, entities that stand still never collide.
+		if (boundaryTime == Double.POSITIVE_INFINITY)
+			return null;
+		BroadPhase broadPhase = this.getWorld().getBroadPhase();
+		if (broadPhase == null) {
+			for (int i = 0; i < entities.size(); i++)
+				for (int j = i + 1; j < entities.size(); j++)
+					this.nextCollisionFinder.accept(entities.get(i), entities.get(j));
+		}
+		else {
+			double horizon = Math.min(FIRST_HORIZON, boundaryTime);
+			while (true) {
+				broadPhase.build(entities, horizon);
+				broadPhase.forEachCandidatePair(this.nextCollisionFinder);
+				if (this.nextTime <= horizon || horizon == boundaryTime)
+					break;
+				horizon = Math.min(2 * horizon, boundaryTime);
+			}
+		}
+		if (this.nextEntity == null)
+			return null;
+		return new CollisionEvent(this.nextTime, this.nextEntity, this.nextOther);
+	}
+
+	/**
+	 * Variables registering the time and the entities of the earliest collision
+	 * found by findNextEvent so far.
+	 */
+	private double nextTime;
+
+	private Entity nextEntity;
+
+	private Entity nextOther;
+
+	/**
+	 * Variable referencing the action keeping the collision of a candidate pair
+	 * if it is earlier than the earliest collision found so far, created once
+	 * so finding the next event does not create it again.
+	 */
+	private final BiConsumer<Entity, Entity> nextCollisionFinder = (entity, other) -> {
+		this.nbPairsTested++;
+		if (entity.overlap(other))
+			return;
+		double dt = entity.getTimeToCollision(other);
+		if (dt < this.nextTime) {
+			this.nextTime = dt;
+			this.nextEntity = entity;
+			this.nextOther = other;
+		}
+	};
+
+	/**
+	 * Constant registering the first horizon findNextEvent selects candidate pairs with.
+	 */
+	private static final double FIRST_HORIZON = 1;
+
+	/**
+	 * Return the time left until the horizon of this collision engine.
+	 */
+	double getTimeLeft() {
+		return this.endTime - this.getTime();
+	}
+
+	/**
+	 * Variable registering the time of the horizon of this collision engine.
+	 */
+	private double endTime = Double.POSITIVE_INFINITY;
+
+	/**
+	 * Check whether this engine selects candidate pairs with the broad phase
+	 * of its world. Without a finite horizon every pair is a candidate.
+	 */
+	private boolean usesBroadPhase() {
+		return this.getWorld().getBroadPhase() != null && this.endTime != Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Stop tracking events and drop all predicted events.
+	 * The broad phase of the world keeps its state, so it can exploit
+	 * the coherence between two evolves.
+	 *
+	 * @post	This collision engine is not active.
+	 * 		|	! new.isActive()
+	 */
+	void stop() {
+		this.clearQueue();
+		this.isActive = false;
+	}
+
+	/**
+	 * Drop all predicted events and the events last returned by
+	 * pollSimultaneousEvents, keeping them for reuse.
+	 */
+	private void clearQueue() {
+		CollisionEvent event;
+		while ((event = this.queue.poll()) != null)
+			this.recycle(event);
+		this.recycleSimultaneousEvents();
+	}
+
+	/**
+	 * Return the earliest event that is still valid, without removing it.
+	 * Stale events at the head of the queue are dropped.
+	 *
+	 * @return	Null if no valid event is predicted.
+	 * 		|	@see implementation
+	 */
+	CollisionEvent peekEvent() {
+		CollisionEvent event = this.queue.peek();
+		while (event != null && ! this.isValid(event)) {
+			this.recycle(this.queue.poll());
+			event = this.queue.peek();
+		}
+		return event;
+	}
+
+	/**
+	 * Remove and return the earliest event that is still valid.
+	 *
+	 * @return	Null if no valid event is predicted.
+	 * 		|	@see implementation
+	 */
+	CollisionEvent pollEvent() {
+		CollisionEvent event = this.peekEvent();
+		if (event != null)
+			this.queue.poll();
+		return event;
+	}
+
+	/**
+	 * Remove the earliest valid event and all other valid events at exactly
+	 * the same time, and return them in the order they were predicted.
+	 * The returned list and its events are reused by the next call of this
+	 * method and once this engine is stopped or started again.
+	 *
+	 * @return	An empty list if no valid event is predicted.
+	 * 		|	@see implementation
+	 */
+	List<CollisionEvent> pollSimultaneousEvents() {
+		this.recycleSimultaneousEvents();
+		List<CollisionEvent> events = this.simultaneousEvents;
+		CollisionEvent event = this.pollEvent();
+		if (event == null)
+			return events;
+		events.add(event);
+		CollisionEvent next = this.peekEvent();
+		while (next != null && next.getTime() == event.getTime()) {
+			events.add(this.queue.poll());
+			next = this.peekEvent();
+		}
+		return events;
+	}
+
+	/**
+	 * Keep the events last returned by pollSimultaneousEvents for reuse.
+	 */
+	private void recycleSimultaneousEvents() {
+		for (int i = 0; i < this.simultaneousEvents.size(); i++)
+			this.recycle(this.simultaneousEvents.get(i));
+		this.simultaneousEvents.clear();
+	}
+
+	/**
+	 * Variable referencing the list of events returned by pollSimultaneousEvents.
+	 */
+	private final List<CollisionEvent> simultaneousEvents = new ArrayList<>();
+
+	/**
+	 * Check whether the given event still describes the state of the
+	 * entities involved.
+	 *
+	 * @param 	event
+	 * 			The event to check.
+	 * @return	True if and only if none of the entities involved has changed
+	 * 			since the event was predicted and all of them are still in the
+	 * 			world of this engine.
+	 * 		|	@see implementation
+	 */
+	private boolean isValid(CollisionEvent event) {
+		Entity entity = event.getEntity();
+		Entity other = event.getOther();
+		if (entity.collisionStamp != event.getStamp() || entity.getWorld() != this.getWorld())
+			return false;
+		if (other != null && (other.collisionStamp != event.getOtherStamp() || other.getWorld() != this.getWorld()))
+			return false;
+		return true;
+	}
+
+	/**
+	 * Invalidate all the events of the given entities and predict their
+	 * new events against all the other entities in the world.
+	 *
+	 * @param 	entities
+	 * 			The entities whose state has changed.
+	 * @effect	Every given entity that is still in the world of this engine
+	 * 			gets its events recomputed.
+	 * 		|	@see implementation
+	 */
+	void update(Entity... entities) {
+		this.update(entities, entities.length);
+	}
+
+	/**
+	 * Invalidate all the events of the given number of entities at the start of
+	 * the given array and predict their new events against all the other entities
+	 * in the world.
+	 *
+	 * @param 	entities
+	 * 			The array holding the entities whose state has changed.
+	 * @param 	count
+	 * 			The number of entities to update.
+	 * @effect	| update(Arrays.copyOf(entities, count))
+	 */
+	void update(Entity[] entities, int count) {
+		if (! this.isActive())
+			return;
+		for (int i = 0; i < count; i++) {
+			Entity entity = entities[i];
+			if (entity == null)
+				continue;
+			entity.collisionStamp++;
+			if (this.usesBroadPhase() && entity.getWorld() == this.getWorld())
+				this.getWorld().getBroadPhase().insert(entity, this.getTimeLeft());
+		}
+
+		for (int i = 0; i < count; i++) {
+			Entity entity = entities[i];
+			if (entity == null || entity.getWorld() != this.getWorld())
+				continue;
+			this.predictBoundaryCollision(entity);
+			CollisionKernel kernel = this.kernel;
+			kernel.clear();
+			if (this.usesBroadPhase()) {
+				this.updatedEntities = entities;
+				this.updatedIndex = i;
+				this.getWorld().getBroadPhase().forEachCandidate(entity, this.candidateCollector);
+				this.updatedEntities = null;
+			}
+			else {
+				EntityStore store = this.getWorld().getEntityStore();
+				for (int slot = 0; slot < store.size(); slot++) {
+					Entity other = store.get(slot);
+					if (other == entity || isUpdatedBefore(other, entities, i))
+						continue;
+					kernel.add(other);
+				}
+			}
+			kernel.computeTimes(entity, this.getWorld().getEntityStore());
+			this.nbPairsTested += kernel.size();
+			for (int k = 0; k < kernel.size(); k++) {
+				double dt = kernel.getTime(k);
+				if (dt != Double.POSITIVE_INFINITY && dt <= this.getTimeLeft())
+					this.enqueue(this.obtainEvent(this.getTime() + dt, entity, kernel.get(k)));
+			}
+		}
+	}
+
+	/**
+	 * Variable referencing the batch used to compute the times to collision
+	 * of an updated entity with all its candidates at once.
+	 */
+	private final CollisionKernel kernel = new CollisionKernel();
+
+	/**
+	 * Variable referencing the action adding a candidate of the updated entity
+	 * to the kernel, unless it was updated before that entity, created once
+	 * so updating entities does not create it again.
+	 */
+	private final Consumer<Entity> candidateCollector = other -> {
+		if (other != this.updatedEntities[this.updatedIndex] && ! isUpdatedBefore(other, this.updatedEntities, this.updatedIndex))
+			this.kernel.add(other);
+	};
+
+	/**
+	 * Variables referencing the entities being updated and the index of the
+	 * entity whose candidates are collected.
+	 */
+	private Entity[] updatedEntities;
+
+	private int updatedIndex;
+
+	/**
+	 * Check whether the given entity occurs in the given array before the given index.
+	 */
+	private static boolean isUpdatedBefore(Entity entity, Entity[] entities, int index) {
+		for (int k = 0; k < index; k++)
+			if (entities[k] == entity)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Drop all the events of the given entity.
+	 *
+	 * @param 	entity
+	 * 			The entity whose events become stale.
+	 */
+	void invalidate(Entity entity) {
+		entity.collisionStamp++;
+	}
+
+	/**
+	 * Predict the next collision of the given entity with the boundary of the world
+	 * and add it to the queue, if any.
+	 */
+	private void predictBoundaryCollision(Entity entity) {
+		double time = this.getBoundaryCollisionTime(entity);
+		if (time != Double.POSITIVE_INFINITY)
+			this.enqueue(this.obtainEvent(time, entity, null));
+	}
+
+	/**
+	 * Return the next collision of the given entity with the boundary of the world,
+	 * null if there is none before the horizon.
+	 */
+	private CollisionEvent computeBoundaryCollision(Entity entity) {
+		double time = this.getBoundaryCollisionTime(entity);
+		if (time == Double.POSITIVE_INFINITY)
+			return null;
+		return new CollisionEvent(time, entity, null);
+	}
+
+	/**
+	 * Return the engine time of the next collision of the given entity with the
+	 * boundary of the world, positive infinity if there is none before the horizon.
+	 */
+	private double getBoundaryCollisionTime(Entity entity) {
+		double dt = entity.getTimeToCollisionBoundary();
+		if (dt == Double.POSITIVE_INFINITY || dt > this.getTimeLeft())
+			return Double.POSITIVE_INFINITY;
+		return this.getTime() + dt;
+	}
+
+	/**
+	 * Predict the next collision between the given entities and add it to the
+	 * queue, if any. Overlapping entities never collide.
+	 */
+	private void predictCollision(Entity entity, Entity other) {
+		this.nbPairsTested++;
+		double time = this.getCollisionTime(entity, other);
+		if (time != Double.POSITIVE_INFINITY)
+			this.enqueue(this.obtainEvent(time, entity, other));
+	}
+
+	/**
+	 * Return the next collision between the given entities, null if they
+	 * overlap or do not collide before the horizon.
+	 */
+	private CollisionEvent computeCollision(Entity entity, Entity other) {
+		double time = this.getCollisionTime(entity, other);
+		if (time == Double.POSITIVE_INFINITY)
+			return null;
+		return new CollisionEvent(time, entity, other);
+	}
+
+	/**
+	 * Return the engine time of the next collision between the given entities,
+	 * positive infinity if they overlap or do not collide before the horizon.
+	 */
+	private double getCollisionTime(Entity entity, Entity other) {
+		if (entity.overlap(other))
+			return Double.POSITIVE_INFINITY;
+		double dt = entity.getTimeToCollision(other);
+		if (dt == Double.POSITIVE_INFINITY || dt > this.getTimeLeft())
+			return Double.POSITIVE_INFINITY;
+		return this.getTime() + dt;
+	}
+
+	/**
+	 * Return an event with the given time, entity and other entity, reusing
+	 * an event that was dropped or resolved if there is one.
+	 */
+	private CollisionEvent obtainEvent(double time, Entity entity, Entity other) {
+		if (this.nbFreeEvents == 0)
+			return new CollisionEvent(time, entity, other);
+		CollisionEvent event = this.freeEvents[--this.nbFreeEvents];
+		this.freeEvents[this.nbFreeEvents] = null;
+		event.set(time, entity, other);
+		return event;
+	}
+
+	/**
+	 * Keep the given event, which is no longer in the queue, for reuse.
+	 */
+	private void recycle(CollisionEvent event) {
+		event.set(0, null, null);
+		if (this.nbFreeEvents == this.freeEvents.length)
+			this.freeEvents = Arrays.copyOf(this.freeEvents, 2 * this.freeEvents.length);
+		this.freeEvents[this.nbFreeEvents++] = event;
+	}
+
+	/**
+	 * Variables referencing the events kept for reuse.
+	 */
+	private CollisionEvent[] freeEvents = new CollisionEvent[64];
+
+	private int nbFreeEvents = 0;
+
+	/**
+	 * Add the given event to the queue, after all events predicted before it.
+	 */
+	private void enqueue(CollisionEvent event) {
+		event.sequence = this.nbEnqueuedEvents++;
+		this.queue.add(event);
+	}
+
+	/**
+	 * Variable referencing the queue of predicted events, ordered by time
+	 * and then by the order in which they were predicted.
+	 */
+	private final PriorityQueue<CollisionEvent> queue = new PriorityQueue<>();
+
+	/**
+	 * Variable registering the number of events added to the queue.
+	 */
+	private long nbEnqueuedEvents = 0;
+
+	/**
+	 * Return the number of pairs of entities this engine tested for a collision.
+	 */
+	@Basic
+	long getNbPairsTested() {
+		return this.nbPairsTested;
+	}
+
+	/**
+	 * Variable registering the number of pairs of entities tested for a collision.
+	 */
+	private long nbPairsTested = 0;
+
+	/**
+	 * A class of predicted collision events involving a time, an entity,
+	 * another entity and the stamps of both entities at prediction time.
+	 * A boundary collision has no other entity. An engine reuses the events
+	 * that leave its queue, so events must not be kept after that.
+	 */
+	static class CollisionEvent implements Comparable<CollisionEvent> {
+
+		/**
+		 * Initialize this new event with given time, entity and other entity.
+		 *
+		 * @param 	time
+		 * 			The absolute engine time of this new event.
+		 * @param 	entity
+		 * 			The entity involved in this new event.
+		 * @param 	other
+		 * 			The other entity involved, or null for a boundary collision.
+		 */
+		CollisionEvent(double time, Entity entity, Entity other) {
+			this.set(time, entity, other);
+		}
+
+		/**
+		 * Set the time, entity and other entity of this event, taking the
+		 * stamps of the entities at this moment.
+		 */
+		void set(double time, Entity entity, Entity other) {
+			this.time = time;
+			this.entity = entity;
+			this.other = other;
+			this.stamp = (entity == null) ? 0 : entity.collisionStamp;
+			this.otherStamp = (other == null) ? 0 : other.collisionStamp;
+		}
+
+		/**
+		 * Return the absolute engine time of this event.
+		 */
+		@Basic
+		double getTime() {
+			return this.time;
+		}
+
+		private double time;
+
+		/**
+		 * Return the entity involved in this event.
+		 */
+		@Basic
+		Entity getEntity() {
+			return this.entity;
+		}
+
+		private Entity entity;
+
+		/**
+		 * Return the other entity involved in this event, null for a boundary collision.
+		 */
+		@Basic
+		Entity getOther() {
+			return this.other;
+		}
+
+		private Entity other;
+
+		/**
+		 * Return whether this event is a collision with the boundary.
+		 */
+		boolean isBoundaryCollision() {
+			return this.other == null;
+		}
+
+		@Basic
+		int getStamp() {
+			return this.stamp;
+		}
+
+		private int stamp;
+
+		@Basic
+		int getOtherStamp() {
+			return this.otherStamp;
+		}
+
+		private int otherStamp;
+
+		/**
+		 * Variable registering the position of this event in the order in which
+		 * events were added to the queue of an engine.
+		 */
+		private long sequence;
+
+		/**
+		 * Compare this event with the other event by time, and events at the
+		 * same time by the order in which they were added to the queue.
+		 */
+		@Override
+		public int compareTo(CollisionEvent other) {
+			int result = Double.compare(this.getTime(), other.getTime());
+			if (result == 0)
+				result = Long.compare(this.sequence, other.sequence);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package asteroids.model;
+
+import java.util.Arrays;
+
+/**
+ * A class of batches of candidate entities, used to compute the times to
+ * collision of one entity with all the candidates at once.
+ *
+ * A batch registers the slots of its candidates in the store of their world.
+ * The positions, velocities and radii of the candidates are gathered from
+ * the arrays of that store into parallel arrays, and the times are computed
+ * in one loop without branches on the data or virtual calls. Each time
+ * equals the result of Entity.getTimeToCollision, bit for bit, except that
+ * overlapping entities never collide.
+ *
+ * The loop is written with the incubating vector API in the class
+ * asteroids.model.VectorizedCollisionLoop, in the folder src-vector. That
+ * class is used if it is on the class path and the JVM runs with
+ * --add-modules jdk.incubator.vector, otherwise a scalar loop is used,
+ * which the JIT compiler can unroll and vectorize on its own.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+class CollisionKernel {
+
+	/**
+	 * An interface of loops computing the times to collision of an entity
+	 * with the given position, velocity and radius with each of the given
+	 * number of packed candidates, as computeTimes does.
+	 */
+	static interface Loop {
+
+		void computeTimes(double x, double y, double xVelocity, double yVelocity, double radius,
+				double[] xs, double[] ys, double[] xVelocities, double[] yVelocities, double[] radii,
+				int count, double[] times);
+	}
+
+	/**
+	 * Remove all candidates from this batch.
+	 */
+	void clear() {
+		this.size = 0;
+	}
+
+	/**
+	 * Return the number of candidates in this batch.
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Return the candidate at the given index.
+	 */
+	Entity get(int index) {
+		return this.candidates[index];
+	}
+
+	/**
+	 * Return the time to collision computed for the candidate at the given index.
+	 */
+	double getTime(int index) {
+		return this.times[index];
+	}
+
+	/**
+	 * Add the given entity to the candidates of this batch.
+	 *
+	 * @pre		The given entity occupies a slot in the store the times are computed with.
+	 */
+	void add(Entity entity) {
+		if (this.size == this.candidates.length)
+			this.grow();
+		this.candidates[this.size] = entity;
+		this.slots[this.size] = entity.storeSlot;
+		this.size++;
+	}
+
+	/**
+	 * Compute the time to collision of the given entity with each candidate of this batch.
+	 *
+	 * @param 	entity
+	 * 			The entity to compute the times for.
+	 * @param 	store
+	 * 			The store the candidates of this batch occupy a slot in.
+	 * @post	The time of each candidate is the time until the given entity collides
+	 * 			with that candidate, or Double.POSITIVE_INFINITY if they overlap or
+	 * 			never collide.
+	 * 		|	for each index in 0..size()-1:
+	 * 		|		if (entity.overlap(get(index)))
+	 * 		|			then new.getTime(index) == Double.POSITIVE_INFINITY
+	 * 		|		else new.getTime(index) == entity.getTimeToCollision(get(index))
+	 */
+	void computeTimes(Entity entity, EntityStore store) {
+		store.gather(this.slots, this.size, this.xs, this.ys, this.xVelocities, this.yVelocities, this.radii);
+		LOOP.computeTimes(entity.getXPosition(), entity.getYPosition(), entity.getXVelocity(), entity.getYVelocity(),
+				entity.getRadius(), this.xs, this.ys, this.xVelocities, this.yVelocities, this.radii, this.size, this.times);
+	}
+
+	/**
+	 * Compute the time to collision of an entity with the given position, velocity
+	 * and radius with each of the given number of packed candidates, starting
+	 * at the given index.
+	 */
+	static void computeTimes(double x, double y, double xVelocity, double yVelocity, double radius,
+			double[] xs, double[] ys, double[] xVelocities, double[] yVelocities, double[] radii,
+			int from, int count, double[] times) {
+		for (int i = from; i < count; i++) {
+			double drx = xs[i] - x;
+			double dry = ys[i] - y;
+			double dvx = xVelocities[i] - xVelocity;
+			double dvy = yVelocities[i] - yVelocity;
+			double sigma = radius + radii[i];
+			double drdr = (drx * drx) + (dry * dry);
+			double dvdr = (dvx * drx) + (dvy * dry);
+			double dvdv = (dvx * dvx) + (dvy * dvy);
+			double d = dvdr * dvdr - (dvdv * (drdr - sigma * sigma));
+			boolean overlap = Math.sqrt(drdr) - radius - radii[i] <= -0.01 * sigma;
+			boolean collides = ! overlap && dvdr < 0 && d > 0;
+			times[i] = collides ? (-(dvdr + Math.sqrt(d)) / dvdv) : Double.POSITIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * Return the loop that computes the times of all batches.
+	 *
+	 * @return	The vectorized loop if the vector API is available and that loop
+	 * 			can be loaded, the scalar loop otherwise.
+	 * 		|	@see implementation
+	 */
+	static Loop getLoop() {
+		return LOOP;
+	}
+
+	/**
+	 * Constant referencing the scalar loop.
+	 */
+	static final Loop SCALAR_LOOP = (x, y, xVelocity, yVelocity, radius, xs, ys, xVelocities, yVelocities, radii,
+			count, times) -> computeTimes(x, y, xVelocity, yVelocity, radius, xs, ys, xVelocities, yVelocities,
+			radii, 0, count, times);
+
+	/**
+	 * Constant referencing the loop that computes the times of all batches.
+	 */
+	private static final Loop LOOP = loadLoop();
+
+	/**
+	 * Return the vectorized loop if the vector API is available and that loop
+	 * can be loaded, the scalar loop otherwise.
+	 */
+	private static Loop loadLoop() {
+		if (! ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+			return SCALAR_LOOP;
+		try {
+			return (Loop) Class.forName("asteroids.model.VectorizedCollisionLoop").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError exc) {
+			return SCALAR_LOOP;
+		}
+	}
+
+	/**
+	 * Double the capacity of this batch.
+	 */
+	private void grow() {
+		int capacity = 2 * this.candidates.length;
+		this.candidates = Arrays.copyOf(this.candidates, capacity);
+		this.slots = Arrays.copyOf(this.slots, capacity);
+		this.xs = Arrays.copyOf(this.xs, capacity);
+		this.ys = Arrays.copyOf(this.ys, capacity);
+		this.xVelocities = Arrays.copyOf(this.xVelocities, capacity);
+		this.yVelocities = Arrays.copyOf(this.yVelocities, capacity);
+		this.radii = Arrays.copyOf(this.radii, capacity);
+		this.times = Arrays.copyOf(this.times, capacity);
+	}
+
+	/**
+	 * Variables referencing the candidates of this batch and their slots.
+	 */
+	private Entity[] candidates = new Entity[INITIAL_CAPACITY];
+
+	private int[] slots = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Variables referencing the state of the candidates, gathered from their store.
+	 */
+	private double[] xs = new double[INITIAL_CAPACITY];
+
+	private double[] ys = new double[INITIAL_CAPACITY];
+
+	private double[] xVelocities = new double[INITIAL_CAPACITY];
+
+	private double[] yVelocities = new double[INITIAL_CAPACITY];
+
+	private double[] radii = new double[INITIAL_CAPACITY];
+
+	/**
+	 * Variable referencing the times computed for the candidates of this batch.
+	 */
+	private double[] times = new double[INITIAL_CAPACITY];
+
+	/**
+	 * Constant registering the number of candidates a new batch can hold.
+	 */
+	private static final int INITIAL_CAPACITY = 32;
+
+	/**
+	 * Variable registering the number of candidates in this batch.
+	 */
+	private int size = 0;
+}
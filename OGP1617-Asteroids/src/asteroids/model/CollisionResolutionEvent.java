@@ -0,0 +1,34 @@
+package asteroids.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A class of flight recorder events for resolutions of collisions that take
+ * at least the threshold. The fields are only filled in if the event is committed.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+@Name("asteroids.CollisionResolution")
+@Label("Collision Resolution")
+@Category("Asteroids")
+@Description("The resolution of a collision of an entity with another entity or the boundary of its world")
+@Threshold("100 us")
+@StackTrace(false)
+final class CollisionResolutionEvent extends jdk.jfr.Event {
+
+	@Label("Entity Type")
+	String entityType;
+
+	@Label("Other Type")
+	@Description("The type of the other entity, BOUNDARY for a collision with the boundary")
+	String otherType;
+
+	@Label("Resolution")
+	String resolution;
+}
@@ -1,11 +1,11 @@
 package asteroids.model;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Immutable;
 import be.kuleuven.cs.som.annotate.Raw;
 
-import java.util.Iterator;
-import java.util.Set;
 
 /**
  * A class of entities involving a position, velocity, radius and mass.
@@ -85,6 +85,25 @@ public abstract class Entity {
 		this.setMass(mass);
 	}
 
+	/**
+	 * Return the identifier of this entity, which is unique among all
+	 * entities created in this virtual machine.
+	 */
+	@Basic @Raw @Immutable
+	public long getIdentifier() {
+		return this.identifier;
+	}
+
+	/**
+	 * Variable registering the identifier of this entity.
+	 */
+	private final long identifier = nextIdentifier.getAndIncrement();
+
+	/**
+	 * Variable referencing the identifier of the next entity to be created.
+	 */
+	private static final AtomicLong nextIdentifier = new AtomicLong();
+
 	/**
 	 * Return the radius of this entity.
 	 * 
@@ -93,9 +112,27 @@ public abstract class Entity {
 	 */
 	@Basic @Raw @Immutable
 	public double getRadius() {
+		if (this.store != null)
+			return this.store.getRadius(this.storeSlot);
 		return this.radius;
 	}
 	
+	/**
+	 * Set the radius of this entity to the given radius, without checking it.
+	 * 
+	 * @param 	radius
+	 * 			The new radius of this entity.
+	 * @post	| new.getRadius() == radius
+	 */
+	@Raw
+	void changeRadius(double radius) {
+		this.invalidateBoundaryCollisionTime();
+		if (this.store != null)
+			this.store.setRadius(this.storeSlot, radius);
+		else
+			this.radius = radius;
+	}
+	
 	/**
 	 * Check whether this entity can have the given radius as its radius.
 	 *  
@@ -105,7 +142,7 @@ public abstract class Entity {
 	public abstract boolean canHaveAsRadius(double radius);
 
 	/**
-	 * Variable registering the radius of this entity.
+	 * Variable registering the radius of this entity while it is not in an entity store.
 	 */
 	protected double radius;
 	
@@ -118,9 +155,33 @@ public abstract class Entity {
 	 */
 	@Basic @Raw
 	public Vector getPosition() {
+		if (this.store != null && this.positionEpoch != this.store.getEpoch()) {
+			this.position = new Vector(this.store.getX(this.storeSlot), this.store.getY(this.storeSlot));
+			this.positionEpoch = this.store.getEpoch();
+		}
 		return this.position;		
 	}
 	
+	/**
+	 * Return the x coordinate of the position of this entity.
+	 */
+	@Raw
+	double getXPosition() {
+		if (this.store != null)
+			return this.store.getX(this.storeSlot);
+		return this.position.getXComponent();
+	}
+	
+	/**
+	 * Return the y coordinate of the position of this entity.
+	 */
+	@Raw
+	double getYPosition() {
+		if (this.store != null)
+			return this.store.getY(this.storeSlot);
+		return this.position.getYComponent();
+	}
+	
 
 	/**
 	 * Check whether the given position is a valid position for
@@ -170,10 +231,12 @@ public abstract class Entity {
 	 */
 	public boolean liesWithinBoundsWorld(World world) {
 		
-		if(	this.getPosition().getXComponent() >= 0.99 * this.getRadius() &&
-			this.getPosition().getXComponent() <= world.getSize().getXComponent() - (0.99 * this.getRadius()) &&
-			this.getPosition().getYComponent() >= 0.99 * this.getRadius() &&
-			this.getPosition().getYComponent() <= world.getSize().getYComponent() - (0.99 * this.getRadius()) )
+		double x = this.getXPosition();
+		double y = this.getYPosition();
+		if(	x >= 0.99 * this.getRadius() &&
+			x <= world.getSize().getXComponent() - (0.99 * this.getRadius()) &&
+			y >= 0.99 * this.getRadius() &&
+			y <= world.getSize().getYComponent() - (0.99 * this.getRadius()) )
 				return true;
 		return false;
 	}
@@ -193,8 +256,7 @@ public abstract class Entity {
 	 */
 	 void move(double dt) throws IllegalArgumentException {
 		if (dt < 0) throw new IllegalArgumentException();
-		Vector newPosition = this.getPosition().add(this.getVelocity().times(dt)); 
-		this.setPosition(newPosition);         			
+		this.setPosition(this.getXPosition() + (this.getXVelocity() * dt), this.getYPosition() + (this.getYVelocity() * dt));
 	}
 	
 	/**
@@ -217,9 +279,10 @@ public abstract class Entity {
 	public double getDistanceBetween(Entity other) throws IllegalArgumentException {
 		if (other == null) throw new IllegalArgumentException();
 		if (this == other) return 0;
-		Vector differenceVector = other.getPosition().subtract(this.getPosition());
+		double dx = other.getXPosition() - this.getXPosition();
+		double dy = other.getYPosition() - this.getYPosition();
 				
-		return (Math.sqrt(differenceVector.dot(differenceVector)) - this.getRadius() - other.getRadius()); 	
+		return (Math.sqrt(Vector.dot(dx, dy, dx, dy)) - this.getRadius() - other.getRadius()); 	
 		
 	}
 	
@@ -249,16 +312,10 @@ public abstract class Entity {
      * 		  The world to check for overlapping entities.
      *
      * @return
-     * 		 | @see implementation
+     * 		 | result == (world.getEntityOverlapping(this) != null)
      */
     public boolean checkOverlapInWorld(World world) {
-        Set<Entity> entities = world.getEntities();
-        for (Iterator<Entity> i = entities.iterator(); i.hasNext();) {
-            Entity entity = i.next();
-            if (this.overlap(entity) && this != entity)
-                return true;
-        }
-        return false;
+        return world.getEntityOverlapping(this) != null;
     }
 	
 	/**
@@ -277,14 +334,50 @@ public abstract class Entity {
 	@Raw
 	protected void setPosition(Vector position) throws IllegalArgumentException {
 		if (!isValidPosition(position)) throw new IllegalArgumentException();
+		this.invalidateBoundaryCollisionTime();
 		this.position = position;
+		if (this.store != null) {
+			this.store.setPosition(this.storeSlot, position.getXComponent(), position.getYComponent());
+			this.positionEpoch = this.store.getEpoch();
+		}
+	}
+	
+	/**
+	 * Set the position of this entity to the position with the given coordinates.
+	 * While this entity is in an entity store, the position is set without
+	 * creating a vector.
+	 * 
+	 * @param	x
+	 * 			The x coordinate of the new position.
+	 * @param	y
+	 * 			The y coordinate of the new position.
+	 * @effect	| setPosition(new Vector(x, y))
+	 */
+	@Raw
+	void setPosition(double x, double y) throws IllegalArgumentException {
+		if (this.store == null) {
+			this.setPosition(new Vector(x, y));
+			return;
+		}
+		if (Double.isNaN(x) || Double.isNaN(y)) throw new IllegalArgumentException();
+		this.invalidateBoundaryCollisionTime();
+		this.store.setPosition(this.storeSlot, x, y);
+		this.positionEpoch = -1;
 	}
 	
 	/**
-	 * Variable registering the position of this entity.
+	 * Variable registering the position of this entity. While this entity is
+	 * in an entity store, it caches the position in the store and is only
+	 * valid if the position epoch equals the epoch of the store.
 	 */
 	private Vector position = Vector.NULL_VECTOR;
 	
+	/**
+	 * Variable registering the epoch of the entity store at which the position
+	 * of this entity was cached.
+	 */
+	private long positionEpoch = 0;
+	
 	/**
 	 * Return the velocity of this entity.
 	 * 
@@ -293,9 +386,31 @@ public abstract class Entity {
 	 */
 	@Basic @Raw
 	public Vector getVelocity() {
+		if (this.velocity == null)
+			this.velocity = new Vector(this.store.getVelocityX(this.storeSlot), this.store.getVelocityY(this.storeSlot));
 		return this.velocity;
 	}
 	
+	/**
+	 * Return the x component of the velocity of this entity.
+	 */
+	@Raw
+	double getXVelocity() {
+		if (this.store != null)
+			return this.store.getVelocityX(this.storeSlot);
+		return this.velocity.getXComponent();
+	}
+	
+	/**
+	 * Return the y component of the velocity of this entity.
+	 */
+	@Raw
+	double getYVelocity() {
+		if (this.store != null)
+			return this.store.getVelocityY(this.storeSlot);
+		return this.velocity.getYComponent();
+	}
+	
 	/**
 	 * Check whether the given velocity is a valid velocity for
 	 * any entity.
@@ -310,6 +425,16 @@ public abstract class Entity {
 		return velocity.getMagnitude() <= C;
 	}
 	
+	/**
+	 * Check whether the velocity with the given components is a valid velocity
+	 * for any entity.
+	 * 
+	 * @return	| result == isValidVelocity(new Vector(xVelocity, yVelocity))
+	 */
+	public static boolean isValidVelocity(double xVelocity, double yVelocity) {
+		return Vector.getMagnitude(xVelocity, yVelocity) <= C;
+	}
+	
 	/**
 	 * Set the velocity of this entity to the given velocity.
 	 * 
@@ -335,11 +460,38 @@ public abstract class Entity {
 				velocity = new Vector(velocity.getXComponent(), C);
 			velocity = velocity.normalise().times(C);
 		}
+		this.invalidateBoundaryCollisionTime();
 		this.velocity = velocity;
+		if (this.store != null)
+			this.store.setVelocity(this.storeSlot, velocity.getXComponent(), velocity.getYComponent());
 	}
 	
 	/**
-	 * Variable registering the velocity of this entity.
+	 * Set the velocity of this entity to the velocity with the given components.
+	 * While this entity is in an entity store, a valid velocity is set without
+	 * creating a vector.
+	 * 
+	 * @param	xVelocity
+	 * 			The x component of the new velocity.
+	 * @param	yVelocity
+	 * 			The y component of the new velocity.
+	 * @effect	| setVelocity(new Vector(xVelocity, yVelocity))
+	 */
+	@Raw
+	void setVelocity(double xVelocity, double yVelocity) {
+		if (this.store == null || ! isValidVelocity(xVelocity, yVelocity)) {
+			this.setVelocity(new Vector(xVelocity, yVelocity));
+			return;
+		}
+		this.invalidateBoundaryCollisionTime();
+		this.store.setVelocity(this.storeSlot, xVelocity, yVelocity);
+		this.velocity = null;
+	}
+	
+	/**
+	 * Variable registering the velocity of this entity. While this entity is
+	 * in an entity store, it caches the velocity in the store and is null
+	 * if the velocity in the store has changed since.
 	 */
 	private Vector velocity = Vector.NULL_VECTOR;
 	
@@ -401,6 +553,8 @@ public abstract class Entity {
 	 */
 	@Basic @Raw @Immutable
 	public double getMass() {
+		if (this.store != null)
+			return this.store.getMass(this.storeSlot);
 		return this.mass;
 	}
 	
@@ -434,14 +588,34 @@ public abstract class Entity {
 	 */
 	@Raw
 	public void setMass(double mass) {
-		if (this.isValidMass(mass))
+		if (! this.isValidMass(mass))
+			mass = 4.0/3.0 * Math.PI * Math.pow(this.getRadius(), 3) * this.getDensity();
+		if (this.store != null)
+			this.store.setMass(this.storeSlot, mass);
+		else
 			this.mass = mass;
+	}
+	
+	/**
+	 * Set the mass of this entity to the given mass, without checking it
+	 * against the radius and density of this entity. The mass of a minor
+	 * planet that shrank no longer matches its radius, so a restored entity
+	 * gets its saved mass this way.
+	 * 
+	 * @param  	mass
+	 *         	The new mass for this entity.
+	 * @post	| new.getMass() == mass
+	 */
+	@Raw
+	void restoreMass(double mass) {
+		if (this.store != null)
+			this.store.setMass(this.storeSlot, mass);
 		else
-			this.mass = 4.0/3.0 * Math.PI * Math.pow(this.getRadius(), 3) * this.getDensity();
+			this.mass = mass;
 	}
 	
 	/**
-	 * Variable registering the mass of this bullet.
+	 * Variable registering the mass of this entity while it is not in an entity store.
 	 */
 	private double mass = 0;
 
@@ -487,7 +661,20 @@ public abstract class Entity {
 	protected void setWorld(World world) throws IllegalArgumentException {
 		if (! isValidWorld(world))
 			throw new IllegalArgumentException();
+		this.changeWorld(world);
+	}
+	
+	/**
+	 * Set the world of this entity to the given world, without checking it.
+	 * 
+	 * @param 	world
+	 * 			The new world for this entity.
+	 * @post	| new.getWorld() == world
+	 */
+	@Raw
+	void changeWorld(World world) {
 		this.world = world;
+		this.invalidateBoundaryCollisionTime();
 	}
 	
 	/**
@@ -510,6 +697,60 @@ public abstract class Entity {
 	 protected boolean isTerminated = false;
 
 	 public abstract void terminate();
+
+	/**
+	 * Variable registering the stamp of the collision events of this entity.
+	 * Incremented whenever the predicted collisions of this entity become stale.
+	 */
+	int collisionStamp = 0;
+
+	/**
+	 * Variable registering the slot of this entity in the entity store of
+	 * its world, -1 if this entity is not in a store.
+	 */
+	int storeSlot = -1;
+
+	/**
+	 * Variable registering the index of this entity in the registry of its
+	 * world, -1 if this entity is not in a registry.
+	 */
+	int registryIndex = -1;
+	
+	/**
+	 * Variable referencing the entity store holding the position, velocity,
+	 * radius and mass of this entity, null if this entity holds them itself.
+	 */
+	private EntityStore store = null;
+	
+	/**
+	 * Move the state of this entity into the given slot of the given store.
+	 * 
+	 * @param	store
+	 * 			The store to attach this entity to.
+	 * @param	slot
+	 * 			The slot of this entity in the given store.
+	 */
+	void attachTo(EntityStore store, int slot) {
+		store.setPosition(slot, this.position.getXComponent(), this.position.getYComponent());
+		store.setVelocity(slot, this.velocity.getXComponent(), this.velocity.getYComponent());
+		store.setRadius(slot, this.radius);
+		store.setMass(slot, this.mass);
+		this.store = store;
+		this.storeSlot = slot;
+		this.positionEpoch = store.getEpoch();
+	}
+	
+	/**
+	 * Move the state of this entity out of its entity store, back into this entity.
+	 */
+	void detach() {
+		this.position = this.getPosition();
+		this.velocity = this.getVelocity();
+		this.radius = this.getRadius();
+		this.mass = this.getMass();
+		this.store = null;
+		this.storeSlot = -1;
+	}
 	
 	/**
 	 * Return when, if ever, two entities will collide.
@@ -534,18 +775,23 @@ public abstract class Entity {
 	public double getTimeToCollision(Entity other) throws IllegalArgumentException {
 		if ((other == null) || (this.overlap(other))) throw new IllegalArgumentException();
 		
-		Vector dv = other.getVelocity().subtract(this.getVelocity());
-		Vector dr = other.getPosition().subtract(this.getPosition());
+		double dvx = other.getXVelocity() - this.getXVelocity();
+		double dvy = other.getYVelocity() - this.getYVelocity();
+		double drx = other.getXPosition() - this.getXPosition();
+		double dry = other.getYPosition() - this.getYPosition();
 		
+		double dvdr = Vector.dot(dvx, dvy, drx, dry);
+		double dvdv = Vector.dot(dvx, dvy, dvx, dvy);
+		double drdr = Vector.dot(drx, dry, drx, dry);
 		double sigma = this.getRadius() + other.getRadius();
-		double d = Math.pow(dv.dot(dr), 2) - (dv.dot(dv) * (dr.dot(dr) - Math.pow(sigma, 2))); 
+		double d = (dvdr * dvdr) - (dvdv * (drdr - (sigma * sigma))); 
 		
-		if (dv.dot(dr) >= 0)
+		if (dvdr >= 0)
 			return Double.POSITIVE_INFINITY;
 		else if (d <= 0)
 			return Double.POSITIVE_INFINITY;
 		else
-			return (-(dv.dot(dr) + Math.sqrt(d))/dv.dot(dv));		
+			return (-(dvdr + Math.sqrt(d))/dvdv);		
 	}
 	
 	/**
@@ -566,34 +812,64 @@ public abstract class Entity {
 	 * 		|	other == null
 	 */
 	public Vector getCollisionPosition(Entity other) throws IllegalArgumentException {
+		double[] position = new double[2];
+		if (! this.getCollisionPosition(other, position))
+			return null;
+		return new Vector(position[0], position[1]);
+	}
+
+	/**
+	 * Store where, if ever, this entity and the other entity collide in the
+	 * given array, as {x, y}, so resolving collisions creates no vectors.
+	 *
+	 * @param 	other
+	 * 			The other entity.
+	 * @param	position
+	 * 			The array to store the position in.
+	 * @return	False if the entities never collide.
+	 * 		|	result == (getCollisionPosition(other) != null)
+	 * @post	| if (result) then position[0] == getCollisionPosition(other).getXComponent()
+	 * 		|	&& position[1] == getCollisionPosition(other).getYComponent()
+	 * @throws 	IllegalArgumentException
+	 * 		|	other == null
+	 */
+	boolean getCollisionPosition(Entity other, double[] position) throws IllegalArgumentException {
 		if (other == null) throw new IllegalArgumentException();
 		
 		double dt = this.getTimeToCollision(other);
 		if (dt == Double.POSITIVE_INFINITY)
-			return null;
-		
-		Vector newThisPosition = this.getPosition().add(this.getVelocity().times(dt));
-		Vector newOtherPosition = other.getPosition().add(other.getVelocity().times(dt));
+			return false;
 		
-		Vector difference;
-		Vector collisionPosition;
+		double x = this.getXPosition() + (this.getXVelocity() * dt);
+		double y = this.getYPosition() + (this.getYVelocity() * dt);
+		double otherX = other.getXPosition() + (other.getXVelocity() * dt);
+		double otherY = other.getYPosition() + (other.getYVelocity() * dt);
 		
-		if (newThisPosition.compareTo(newOtherPosition) < 0) {
-			difference = newOtherPosition.subtract(newThisPosition);
-			collisionPosition = newThisPosition.add(difference.times(this.getRadius() / difference.getMagnitude()));
+		// Same order as comparing both positions as vectors.
+		if ((int) (Vector.getMagnitude(x, y) - Vector.getMagnitude(otherX, otherY)) < 0) {
+			double dx = otherX - x;
+			double dy = otherY - y;
+			double factor = this.getRadius() / Vector.getMagnitude(dx, dy);
+			position[0] = x + (dx * factor);
+			position[1] = y + (dy * factor);
 		}
 		else {
-			difference = newThisPosition.subtract(newOtherPosition);
-			collisionPosition = newOtherPosition.add(difference.times(other.getRadius() / difference.getMagnitude()));
+			double dx = x - otherX;
+			double dy = y - otherY;
+			double factor = other.getRadius() / Vector.getMagnitude(dx, dy);
+			position[0] = otherX + (dx * factor);
+			position[1] = otherY + (dy * factor);
 		}
-		
-		return collisionPosition;
-		
+		return true;
 	}
 
 	/**
 	 * Return when, if ever, this entity collides with a boundary.
 	 * Return Double.POSITIVE_INFINITY if this entity never collides with a boundary.
+	 * 
+	 * The time is kept until the entities of the world of this entity move or
+	 * the velocity, position, radius or world of this entity changes, so it
+	 * always equals the time computed from the current state of this entity.
 	 *
 	 * @return	The time this entity needs to reach the collision position.
 	 * 		|	while (new.getPosition != this.getCollisionBoundaryPosition()) {
@@ -603,40 +879,68 @@ public abstract class Entity {
 	 * 		|	result == time
 	 */
 	public double getTimeToCollisionBoundary() {
-		if ((this.getWorld() == null) || (this.getVelocity().equals(Vector.NULL_VECTOR)))
+		if (this.getWorld() == null)
 			return Double.POSITIVE_INFINITY;
+		long epoch = (this.store == null) ? -1 : this.store.getEpoch();
+		if (Double.isNaN(this.timeToCollisionBoundary) || this.boundaryEpoch != epoch) {
+			this.timeToCollisionBoundary = this.computeTimeToCollisionBoundary();
+			this.boundaryEpoch = epoch;
+		}
+		return this.timeToCollisionBoundary;
+	}
+	
+	/**
+	 * Compute when, if ever, this entity collides with a boundary of its world.
+	 */
+	private double computeTimeToCollisionBoundary() {
+		double vxi = this.getXVelocity();
+		double vyi = this.getYVelocity();
 		
-		double xi = this.getPosition().getXComponent();
-		double yi = this.getPosition().getYComponent();
-		
-		double vxi = this.getVelocity().getXComponent();
-		double vyi = this.getVelocity().getYComponent();
+		if ((this.getWorld() == null) || (vxi == 0 && vyi == 0))
+			return Double.POSITIVE_INFINITY;
 		
 		double sigma = this.getRadius();
 		
-		double xj = this.getWorld().getSize().getXComponent();
-		double yj = this.getWorld().getSize().getYComponent();
-		
 		// Get time to collision with vertical (endless) boundary
-		double dt1;
-		if (vxi > 0)
-			dt1 = (-sigma + xj - xi) / vxi;
-		else if (vxi < 0)
-			dt1 = (-sigma + xi) / -vxi;
-		else 
-			dt1 = Double.POSITIVE_INFINITY;
-		
+		double dt1 = getTimeToBoundary(this.getXPosition(), vxi, sigma, this.getWorld().getSize().getXComponent());
 		// Get time to collision with the horizontal (endless) boundary
-		double dt2 = 0;
-		if (vyi > 0)
-			dt2 = (-sigma + yj - yi) / vyi;
-		else if (vyi < 0)
-			dt2 = (-sigma + yi) / -vyi;
-		else
-			dt2 = Double.POSITIVE_INFINITY;
+		double dt2 = getTimeToBoundary(this.getYPosition(), vyi, sigma, this.getWorld().getSize().getYComponent());
 		
 		return Math.min(dt1, dt2);
 	}
+	
+	/**
+	 * Return the time an entity with the given coordinate, velocity component and
+	 * radius needs to reach a boundary at 0 or at the given size along one axis.
+	 */
+	private static double getTimeToBoundary(double position, double velocity, double radius, double size) {
+		if (velocity > 0)
+			return (-radius + size - position) / velocity;
+		else if (velocity < 0)
+			return (-radius + position) / -velocity;
+		else
+			return Double.POSITIVE_INFINITY;
+	}
+	
+	/**
+	 * Forget the time of the next collision of this entity with a boundary.
+	 */
+	private void invalidateBoundaryCollisionTime() {
+		this.timeToCollisionBoundary = Double.NaN;
+	}
+	
+	/**
+	 * Variable registering the time until this entity collides with a boundary,
+	 * NaN if not known.
+	 */
+	private double timeToCollisionBoundary = Double.NaN;
+	
+	/**
+	 * Variable registering the epoch of the entity store of this entity at which
+	 * the time until it collides with a boundary was computed, -1 if this entity
+	 * was not in a store.
+	 */
+	private long boundaryEpoch = -1;
 
 	/**
 	 * Return where, if ever, this entity collides with a boundary.
@@ -651,54 +955,51 @@ public abstract class Entity {
 	 *		|		return position
 	 */
 	public Vector getCollisionBoundaryPosition() {
-		if ((this.getWorld() == null) || (this.getVelocity().equals(Vector.NULL_VECTOR)))
+		double[] position = new double[2];
+		if (! this.getCollisionBoundaryPosition(position))
 			return null;
+		return new Vector(position[0], position[1]);
+	}
+
+	/**
+	 * Store where, if ever, this entity collides with a boundary in the given
+	 * array, as {x, y}, so resolving boundary collisions creates no vectors.
+	 *
+	 * @param	position
+	 * 			The array to store the position in.
+	 * @return	False if the entity never collides with a boundary.
+	 * 		|	result == (getCollisionBoundaryPosition() != null)
+	 * @post	| if (result) then position[0] == getCollisionBoundaryPosition().getXComponent()
+	 * 		|	&& position[1] == getCollisionBoundaryPosition().getYComponent()
+	 */
+	boolean getCollisionBoundaryPosition(double[] position) {
+		double vxi = this.getXVelocity();
+		double vyi = this.getYVelocity();
 		
-		double xi = this.getPosition().getXComponent();
-		double yi = this.getPosition().getYComponent();
+		if ((this.getWorld() == null) || (vxi == 0 && vyi == 0))
+			return false;
 		
-		double vxi = this.getVelocity().getXComponent();
-		double vyi = this.getVelocity().getYComponent();
+		double xi = this.getXPosition();
+		double yi = this.getYPosition();
 		
 		double sigma = this.getRadius();
 		
-		double xj = this.getWorld().getSize().getXComponent();
-		double yj = this.getWorld().getSize().getYComponent();
-		
-		// Get time to collision with vertical (endless) boundary
-		double dt1;
-		if (vxi > 0)
-			dt1 = (-sigma + xj - xi) / vxi;
-		else if (vxi < 0)
-			dt1 = (-sigma + xi) / -vxi;
-		else 
-			dt1 = Double.POSITIVE_INFINITY;
-		
-		// Get time to collision with the horizontal (endless) boundary
-		double dt2 = 0;
-		if (vyi > 0)
-			dt2 = (-sigma + yj - yi) / vyi;
-		else if (vyi < 0)
-			dt2 = (-sigma + yi) / -vyi;
-		else
-			dt2 = Double.POSITIVE_INFINITY;
-		
-		Vector newPosition;
+		double dt1 = getTimeToBoundary(xi, vxi, sigma, this.getWorld().getSize().getXComponent());
+		double dt2 = getTimeToBoundary(yi, vyi, sigma, this.getWorld().getSize().getYComponent());
 		
 		if (dt1 < dt2) {
-			newPosition = this.getPosition().add(this.getVelocity().times(dt1));
-			if (vxi > 0)
-				return newPosition.add(new Vector(sigma, 0));
-			else
-				return newPosition.add(new Vector(-sigma, 0));
+			double x = xi + (vxi * dt1);
+			double y = yi + (vyi * dt1);
+			position[0] = (vxi > 0) ? x + sigma : x - sigma;
+			position[1] = y;
 		}
 		else {
-			newPosition = this.getPosition().add(this.getVelocity().times(dt2));
-			if (vyi > 0)
-				return newPosition.add(new Vector(0, sigma));
-			else
-				return newPosition.add(new Vector(0, -sigma));
+			double x = xi + (vxi * dt2);
+			double y = yi + (vyi * dt2);
+			position[0] = x;
+			position[1] = (vyi > 0) ? y + sigma : y - sigma;
 		}
+		return true;
 	}
 
 	/**
@@ -710,12 +1011,6 @@ public abstract class Entity {
 	abstract void objectCollision(Entity entity);
 	
 	void bounceOff(Entity entity) {
-		Vector newVelocity;
-		Vector newVelocityEntity;
-
-		Vector dv = entity.getVelocity().subtract(this.getVelocity());
-		Vector dr = entity.getPosition().subtract(this.getPosition());
-
 		double sigma = this.getRadius() + entity.getRadius();
 
 		double mass = 0;
@@ -729,28 +1024,26 @@ public abstract class Entity {
 			massEntity = entity.getMass();
 		}
 
-		double xi = this.getPosition().getXComponent();
-		double yi = this.getPosition().getYComponent();
+		double xi = this.getXPosition();
+		double yi = this.getYPosition();
 
-		double xj = entity.getPosition().getXComponent();
-		double yj = entity.getPosition().getYComponent();
+		double xj = entity.getXPosition();
+		double yj = entity.getYPosition();
 
-		double vxi = this.getVelocity().getXComponent();
-		double vyi = this.getVelocity().getYComponent();
+		double vxi = this.getXVelocity();
+		double vyi = this.getYVelocity();
 
-		double vxj = entity.getVelocity().getXComponent();
-		double vyj = entity.getVelocity().getYComponent();
+		double vxj = entity.getXVelocity();
+		double vyj = entity.getYVelocity();
 
-		double J = (2 * mass * massEntity  * (dv.dot(dr))) / (sigma * (mass + massEntity));
+		double dvdr = Vector.dot(vxj - vxi, vyj - vyi, xj - xi, yj - yi);
+		double J = (2 * mass * massEntity  * dvdr) / (sigma * (mass + massEntity));
 
 		double JX = (J * (xj - xi)) / sigma;
 		double JY = (J * (yj - yi)) / sigma;
 
-		newVelocity = new Vector (vxi + (JX / mass), vyi + (JY / mass));
-		newVelocityEntity = new Vector (vxj - (JX / massEntity), vyj - (JY / massEntity));
-
-		this.setVelocity(newVelocity);
-		entity.setVelocity(newVelocityEntity);
+		this.setVelocity(vxi + (JX / mass), vyi + (JY / mass));
+		entity.setVelocity(vxj - (JX / massEntity), vyj - (JY / massEntity));
 	}
 }
 
@@ -0,0 +1,182 @@
+package asteroids.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A class of registries collecting the entities of one type in a world.
+ *
+ * A registry is a read-only set for its clients, only its world adds and
+ * removes entities. Iterators run over a snapshot of the registry, so the
+ * world may change while a registry is iterated. The snapshot is only
+ * copied again after the registry has changed, iterating an unchanged
+ * registry does not copy anything.
+ *
+ * The entities are kept in an array in the order they were registered, and
+ * the index of each entity in that array is registered in the entity itself,
+ * so registering, unregistering and checking for an entity take constant
+ * time without hashing. The index of an unregistered entity is left empty
+ * until the array is compacted, which keeps the order of the others.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+class EntityRegistry<T extends Entity> extends AbstractSet<T> {
+
+	/**
+	 * Add the given entity to this registry.
+	 *
+	 * @pre		The given entity is not in another registry.
+	 */
+	void register(T entity) {
+		if (this.contains(entity))
+			return;
+		if (this.end == this.members.length) {
+			this.compact();
+			if (this.end == this.members.length)
+				this.members = Arrays.copyOf(this.members, 2 * this.members.length);
+		}
+		this.members[this.end] = entity;
+		entity.registryIndex = this.end;
+		this.end++;
+		this.size++;
+		this.snapshot = null;
+	}
+
+	/**
+	 * Make room for the given number of entities in this registry, so
+	 * registering entities up to that number does not grow it again.
+	 */
+	void ensureCapacity(int nbMembers) {
+		if (nbMembers > this.members.length) {
+			this.compact();
+			this.members = Arrays.copyOf(this.members, nbMembers);
+		}
+	}
+
+	/**
+	 * Remove the given entity from this registry.
+	 */
+	void unregister(Entity entity) {
+		if (! this.contains(entity))
+			return;
+		this.members[entity.registryIndex] = null;
+		entity.registryIndex = -1;
+		this.size--;
+		this.snapshot = null;
+	}
+
+	/**
+	 * Remove all entities from this registry.
+	 */
+	void unregisterAll() {
+		for (int index = 0; index < this.end; index++)
+			if (this.members[index] != null)
+				this.members[index].registryIndex = -1;
+		Arrays.fill(this.members, 0, this.end, null);
+		this.end = 0;
+		this.size = 0;
+		this.snapshot = null;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean contains(Object object) {
+		if (! (object instanceof Entity))
+			return false;
+		int index = ((Entity) object).registryIndex;
+		return index >= 0 && index < this.end && this.members[index] == object;
+	}
+
+	/**
+	 * Return an array with the entities in this registry at the time of the call,
+	 * in the order they were registered. The array is shared with later calls
+	 * until this registry changes, so it must not be modified.
+	 */
+	Entity[] getSnapshot() {
+		if (this.snapshot == null) {
+			this.compact();
+			this.snapshot = Arrays.copyOf(this.members, this.size);
+		}
+		return this.snapshot;
+	}
+
+	/**
+	 * Return an iterator over the entities in this registry at the time of the call,
+	 * in the order they were registered.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		final Entity[] entities = this.getSnapshot();
+		return new Iterator<T>() {
+
+			@Override
+			public boolean hasNext() {
+				return this.index < entities.length;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public T next() {
+				if (! this.hasNext())
+					throw new NoSuchElementException();
+				return (T) entities[this.index++];
+			}
+
+			private int index = 0;
+		};
+	}
+
+	/**
+	 * Move the entities of this registry to the start of its array, in the
+	 * order they were registered, and update their indices.
+	 */
+	private void compact() {
+		if (this.size == this.end)
+			return;
+		int next = 0;
+		for (int index = 0; index < this.end; index++) {
+			Entity entity = this.members[index];
+			if (entity != null) {
+				this.members[next] = entity;
+				entity.registryIndex = next;
+				next++;
+			}
+		}
+		Arrays.fill(this.members, next, this.end, null);
+		this.end = next;
+	}
+
+	/**
+	 * Variable referencing the array holding the entities of this registry,
+	 * up to the end index.
+	 */
+	private Entity[] members = new Entity[INITIAL_CAPACITY];
+
+	/**
+	 * Variable registering the index after the last entity of this registry.
+	 */
+	private int end = 0;
+
+	/**
+	 * Variable registering the number of entities in this registry.
+	 */
+	private int size = 0;
+
+	/**
+	 * Constant registering the number of entities a new registry can hold.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Variable referencing the entities of this registry at the time of the last
+	 * iteration, null if this registry has changed since.
+	 */
+	private Entity[] snapshot = null;
+}
@@ -0,0 +1,327 @@
+package asteroids.model;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A class of dense stores of entities, in which every entity occupies a slot.
+ *
+ * The slot of an entity is registered in the entity itself, so adding,
+ * removing and checking for an entity take constant time. When an entity
+ * is removed, the entity in the last slot is moved into its slot, so the
+ * occupied slots always range from 0 to size() - 1. An entity can be in
+ * at most one store at a time.
+ *
+ * While an entity is in a store, its position, velocity, radius and mass
+ * are kept in parallel arrays indexed by slot, so all entities can be
+ * moved in a single loop over primitive arrays. The epoch of a store is
+ * incremented each time all entities are moved, entities use it to know
+ * whether the position they cached is still valid.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+class EntityStore extends AbstractCollection<Entity> {
+
+	/**
+	 * Return the entity in the given slot.
+	 *
+	 * @param 	slot
+	 * 			The slot of the entity to return.
+	 * @throws	IndexOutOfBoundsException
+	 * 		|	slot < 0 || slot >= size()
+	 */
+	Entity get(int slot) throws IndexOutOfBoundsException {
+		if (slot < 0 || slot >= this.size)
+			throw new IndexOutOfBoundsException();
+		return this.entities[slot];
+	}
+
+	/**
+	 * Return the epoch of this store.
+	 */
+	long getEpoch() {
+		return this.epoch;
+	}
+
+	/**
+	 * Move every entity in this store along its velocity during the given time.
+	 *
+	 * @param 	dt
+	 * 			The time to move the entities.
+	 * @post	The epoch of this store is incremented.
+	 * 		|	new.getEpoch() == getEpoch() + 1
+	 */
+	void move(double dt) {
+		this.move(dt, null);
+	}
+
+	/**
+	 * Move every entity in this store along its velocity during the given time,
+	 * splitting the slots over the given pool.
+	 *
+	 * @param 	dt
+	 * 			The time to move the entities.
+	 * @param 	pool
+	 * 			The pool to move the entities in, or null to move them in this thread.
+	 * @post	The epoch of this store is incremented.
+	 * 		|	new.getEpoch() == getEpoch() + 1
+	 */
+	void move(double dt, ForkJoinPool pool) {
+		if (pool == null || this.size <= PARALLEL_GRAIN)
+			this.move(dt, 0, this.size);
+		else
+			ParallelRange.run(pool, this.size, PARALLEL_GRAIN, (from, to) -> this.move(dt, from, to));
+		this.epoch++;
+	}
+
+	/**
+	 * Move the entities in the given range of slots along their velocity during the given time.
+	 */
+	private void move(double dt, int from, int to) {
+		double[] xs = this.xs;
+		double[] ys = this.ys;
+		double[] xVelocities = this.xVelocities;
+		double[] yVelocities = this.yVelocities;
+		for (int slot = from; slot < to; slot++) {
+			xs[slot] += xVelocities[slot] * dt;
+			ys[slot] += yVelocities[slot] * dt;
+		}
+	}
+
+	/**
+	 * Constant registering the number of slots moved by a single task in a pool.
+	 */
+	private static final int PARALLEL_GRAIN = 4096;
+
+	double getX(int slot) {
+		return this.xs[slot];
+	}
+
+	double getY(int slot) {
+		return this.ys[slot];
+	}
+
+	void setPosition(int slot, double x, double y) {
+		this.xs[slot] = x;
+		this.ys[slot] = y;
+	}
+
+	double getVelocityX(int slot) {
+		return this.xVelocities[slot];
+	}
+
+	double getVelocityY(int slot) {
+		return this.yVelocities[slot];
+	}
+
+	void setVelocity(int slot, double xVelocity, double yVelocity) {
+		this.xVelocities[slot] = xVelocity;
+		this.yVelocities[slot] = yVelocity;
+	}
+
+	double getRadius(int slot) {
+		return this.radii[slot];
+	}
+
+	void setRadius(int slot, double radius) {
+		this.radii[slot] = radius;
+	}
+
+	double getMass(int slot) {
+		return this.masses[slot];
+	}
+
+	void setMass(int slot, double mass) {
+		this.masses[slot] = mass;
+	}
+
+	/**
+	 * Copy the positions, velocities and radii of the entities in the given
+	 * number of slots at the start of the given array of slots into the given
+	 * arrays, in the order of those slots.
+	 */
+	void gather(int[] slots, int count, double[] xs, double[] ys, double[] xVelocities,
+			double[] yVelocities, double[] radii) {
+		for (int i = 0; i < count; i++) {
+			int slot = slots[i];
+			xs[i] = this.xs[slot];
+			ys[i] = this.ys[slot];
+			xVelocities[i] = this.xVelocities[slot];
+			yVelocities[i] = this.yVelocities[slot];
+			radii[i] = this.radii[slot];
+		}
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean contains(Object object) {
+		if (! (object instanceof Entity))
+			return false;
+		int slot = ((Entity) object).storeSlot;
+		return slot >= 0 && slot < this.size && this.entities[slot] == object;
+	}
+
+	/**
+	 * Add the given entity to this store, in the first free slot.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			The given entity is not effective or already occupies a slot in a store.
+	 * 		|	entity == null || entity.storeSlot >= 0
+	 */
+	@Override
+	public boolean add(Entity entity) throws IllegalArgumentException {
+		if (entity == null || entity.storeSlot >= 0)
+			throw new IllegalArgumentException();
+		if (this.size == this.entities.length)
+			this.grow();
+		this.entities[this.size] = entity;
+		entity.attachTo(this, this.size);
+		this.size++;
+		this.modCount++;
+		return true;
+	}
+
+	/**
+	 * Remove the given entity from this store, moving the entity in the last
+	 * slot into the freed slot.
+	 */
+	@Override
+	public boolean remove(Object object) {
+		if (! this.contains(object))
+			return false;
+		Entity entity = (Entity) object;
+		int slot = entity.storeSlot;
+		entity.detach();
+		int last = --this.size;
+		if (slot != last) {
+			this.entities[slot] = this.entities[last];
+			this.entities[slot].storeSlot = slot;
+			this.xs[slot] = this.xs[last];
+			this.ys[slot] = this.ys[last];
+			this.xVelocities[slot] = this.xVelocities[last];
+			this.yVelocities[slot] = this.yVelocities[last];
+			this.radii[slot] = this.radii[last];
+			this.masses[slot] = this.masses[last];
+		}
+		this.entities[last] = null;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		for (int slot = 0; slot < this.size; slot++) {
+			this.entities[slot].detach();
+			this.entities[slot] = null;
+		}
+		this.size = 0;
+		this.modCount++;
+	}
+
+	/**
+	 * Return an iterator over the entities of this store, in slot order.
+	 * The iterator fails when the store is modified during the iteration.
+	 */
+	@Override
+	public Iterator<Entity> iterator() {
+		return new Iterator<Entity>() {
+
+			@Override
+			public boolean hasNext() {
+				return this.slot < EntityStore.this.size;
+			}
+
+			@Override
+			public Entity next() {
+				if (EntityStore.this.modCount != this.expectedModCount)
+					throw new ConcurrentModificationException();
+				if (! this.hasNext())
+					throw new NoSuchElementException();
+				return EntityStore.this.entities[this.slot++];
+			}
+
+			private int slot = 0;
+
+			private final int expectedModCount = EntityStore.this.modCount;
+		};
+	}
+
+	/**
+	 * Make room for the given number of entities in this store, so adding
+	 * entities up to that number does not grow it again.
+	 */
+	void ensureCapacity(int capacity) {
+		if (capacity > this.entities.length)
+			this.grow(capacity);
+	}
+
+	/**
+	 * Double the capacity of this store.
+	 */
+	private void grow() {
+		this.grow(2 * this.entities.length);
+	}
+
+	/**
+	 * Grow this store to the given capacity.
+	 */
+	private void grow(int capacity) {
+		this.entities = Arrays.copyOf(this.entities, capacity);
+		this.xs = Arrays.copyOf(this.xs, capacity);
+		this.ys = Arrays.copyOf(this.ys, capacity);
+		this.xVelocities = Arrays.copyOf(this.xVelocities, capacity);
+		this.yVelocities = Arrays.copyOf(this.yVelocities, capacity);
+		this.radii = Arrays.copyOf(this.radii, capacity);
+		this.masses = Arrays.copyOf(this.masses, capacity);
+	}
+
+	/**
+	 * Variable referencing the slots of this store.
+	 */
+	private Entity[] entities = new Entity[INITIAL_CAPACITY];
+
+	/**
+	 * Variables referencing the positions, velocities, radii and masses of the
+	 * entities in this store, indexed by slot.
+	 */
+	private double[] xs = new double[INITIAL_CAPACITY];
+
+	private double[] ys = new double[INITIAL_CAPACITY];
+
+	private double[] xVelocities = new double[INITIAL_CAPACITY];
+
+	private double[] yVelocities = new double[INITIAL_CAPACITY];
+
+	private double[] radii = new double[INITIAL_CAPACITY];
+
+	private double[] masses = new double[INITIAL_CAPACITY];
+
+	/**
+	 * Constant registering the number of slots of a new store.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Variable registering the epoch of this store.
+	 */
+	private long epoch = 0;
+
+	/**
+	 * Variable registering the number of occupied slots of this store.
+	 */
+	private int size = 0;
+
+	/**
+	 * Variable registering the number of modifications of this store.
+	 */
+	private int modCount = 0;
+}
@@ -0,0 +1,38 @@
+package asteroids.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * A class of flight recorder events for evolves of a world that take at
+ * least the threshold. The fields are only filled in if the event is committed.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+@Name("asteroids.Evolve")
+@Label("World Evolve")
+@Category("Asteroids")
+@Description("An evolve of a world")
+@Threshold("1 ms")
+@StackTrace(false)
+final class EvolveEvent extends jdk.jfr.Event {
+
+	@Label("Time Evolved")
+	@Timespan(Timespan.SECONDS)
+	double dt;
+
+	@Label("Entities")
+	int nbEntities;
+
+	@Label("Collisions Resolved")
+	int nbEvents;
+
+	@Label("Incremental")
+	boolean incremental;
+}
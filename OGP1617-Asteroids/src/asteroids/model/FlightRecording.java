@@ -0,0 +1,59 @@
+package asteroids.model;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * A class tracking whether the flight recorder is recording, so the events
+ * of the simulation are not even created while it is not.
+ *
+ * Creating an event that is never committed is cheap, but not free when
+ * the compiler does not eliminate it: evolving a world must not allocate.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+final class FlightRecording {
+
+	/**
+	 * Check whether the flight recorder has a running recording.
+	 */
+	static boolean isRecording() {
+		return isRecording;
+	}
+
+	/**
+	 * Variable registering whether the flight recorder has a running recording.
+	 */
+	private static volatile boolean isRecording = false;
+
+	/**
+	 * Update whether the flight recorder has a running recording.
+	 */
+	private static void update() {
+		boolean isRunning = false;
+		for (Recording recording: FlightRecorder.getFlightRecorder().getRecordings())
+			if (recording.getState() == RecordingState.RUNNING)
+				isRunning = true;
+		isRecording = isRunning;
+	}
+
+	static {
+		FlightRecorder.addListener(new FlightRecorderListener() {
+			@Override
+			public void recorderInitialized(FlightRecorder recorder) {
+				update();
+			}
+
+			@Override
+			public void recordingStateChanged(Recording recording) {
+				update();
+			}
+		});
+	}
+
+	private FlightRecording() {
+	}
+}
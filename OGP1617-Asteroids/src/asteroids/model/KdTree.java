@@ -0,0 +1,213 @@
+package asteroids.model;
+
+import java.util.Collection;
+
+/**
+ * A class of 2-d trees over the positions of a fixed set of entities,
+ * used to find the entity nearest to a given position.
+ *
+ * The tree is stored implicitly in arrays: the median of each range is the
+ * root of the subtree for that range, the entities before it lie on its
+ * lower side and the entities after it on its upper side. Ranges at even
+ * depths are split along the x axis, at odd depths along the y axis.
+ * A tree does not follow the entities as they move, it must be refitted.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+class KdTree {
+
+	/**
+	 * Initialize this new tree with the given entities at their current positions.
+	 *
+	 * @param 	entities
+	 * 			The entities of this new tree. Ties between entities at the same
+	 * 			distance are broken in favour of the entity that comes first.
+	 */
+	KdTree(Collection<? extends Entity> entities) {
+		int size = entities.size();
+		this.entities = new Entity[size];
+		this.xs = new double[size];
+		this.ys = new double[size];
+		this.order = new int[size];
+		int i = 0;
+		for (Entity entity: entities) {
+			this.entities[i] = entity;
+			this.xs[i] = entity.getPosition().getXComponent();
+			this.ys[i] = entity.getPosition().getYComponent();
+			this.order[i] = i;
+			i++;
+		}
+		this.build(0, size, 0);
+	}
+
+	/**
+	 * Rebuild this tree in place for the current positions of its entities.
+	 */
+	void refit() {
+		for (int i = 0; i < this.getSize(); i++) {
+			this.xs[i] = this.entities[i].getPosition().getXComponent();
+			this.ys[i] = this.entities[i].getPosition().getYComponent();
+		}
+		this.build(0, this.getSize(), 0);
+	}
+
+	/**
+	 * Variable registering the number of moves of the world of this tree
+	 * when it was built or last refitted, maintained by that world.
+	 */
+	long stamp;
+
+	/**
+	 * Return the number of entities in this tree.
+	 */
+	int getSize() {
+		return this.entities.length;
+	}
+
+	/**
+	 * Return the entity of this tree whose position is nearest to the given position,
+	 * ignoring the given entity.
+	 *
+	 * @param 	position
+	 * 			The position to search from.
+	 * @param 	excluded
+	 * 			The entity to ignore, may be null.
+	 * @return	Null if this tree has no entity other than the excluded entity.
+	 * 		|	@see implementation
+	 */
+	Entity getNearest(Vector position, Entity excluded) {
+		this.queryX = position.getXComponent();
+		this.queryY = position.getYComponent();
+		this.excluded = excluded;
+		this.bestIndex = -1;
+		this.bestDistance = Double.POSITIVE_INFINITY;
+		this.search(0, this.getSize(), 0);
+		this.excluded = null;
+		return (this.bestIndex < 0) ? null : this.entities[this.bestIndex];
+	}
+
+	/**
+	 * Search the subtree over the given range for an entity nearer than the best one so far.
+	 */
+	private void search(int low, int high, int axis) {
+		if (low >= high)
+			return;
+		int middle = (low + high) >>> 1;
+		this.consider(middle);
+		double delta = (axis == 0) ? this.queryX - this.xs[middle] : this.queryY - this.ys[middle];
+		if (delta < 0) {
+			this.search(low, middle, 1 - axis);
+			if (delta * delta <= this.bestDistance)
+				this.search(middle + 1, high, 1 - axis);
+		}
+		else {
+			this.search(middle + 1, high, 1 - axis);
+			if (delta * delta <= this.bestDistance)
+				this.search(low, middle, 1 - axis);
+		}
+	}
+
+	/**
+	 * Make the entity at the given index the best one so far if it is nearer,
+	 * or as near but earlier in the order the tree was built with.
+	 */
+	private void consider(int index) {
+		if (this.entities[index] == this.excluded)
+			return;
+		double dx = this.queryX - this.xs[index];
+		double dy = this.queryY - this.ys[index];
+		double distance = dx * dx + dy * dy;
+		if (distance < this.bestDistance
+				|| (distance == this.bestDistance && this.order[index] < this.order[this.bestIndex])) {
+			this.bestDistance = distance;
+			this.bestIndex = index;
+		}
+	}
+
+	/**
+	 * Arrange the given range so that its median along the given axis is in the
+	 * middle, and do the same for both halves along the other axis.
+	 */
+	private void build(int low, int high, int axis) {
+		if (high - low < 2)
+			return;
+		int middle = (low + high) >>> 1;
+		this.select(low, high - 1, middle, axis);
+		this.build(low, middle, 1 - axis);
+		this.build(middle + 1, high, 1 - axis);
+	}
+
+	/**
+	 * Partially sort the given inclusive range along the given axis, so that the
+	 * element at index k is the one that would be there if the range were sorted.
+	 */
+	private void select(int low, int high, int k, int axis) {
+		double[] keys = (axis == 0) ? this.xs : this.ys;
+		while (low < high) {
+			double pivot = keys[(low + high) >>> 1];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (keys[i] < pivot)
+					i++;
+				while (keys[j] > pivot)
+					j--;
+				if (i <= j) {
+					this.swap(i, j);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j)
+				high = j;
+			else if (k >= i)
+				low = i;
+			else
+				return;
+		}
+	}
+
+	/**
+	 * Swap the entities at the given indices.
+	 */
+	private void swap(int i, int j) {
+		Entity entity = this.entities[i];
+		this.entities[i] = this.entities[j];
+		this.entities[j] = entity;
+		double x = this.xs[i];
+		this.xs[i] = this.xs[j];
+		this.xs[j] = x;
+		double y = this.ys[i];
+		this.ys[i] = this.ys[j];
+		this.ys[j] = y;
+		int rank = this.order[i];
+		this.order[i] = this.order[j];
+		this.order[j] = rank;
+	}
+
+	/**
+	 * Variables referencing the entities of this tree and their coordinates, in tree order.
+	 */
+	private final Entity[] entities;
+
+	private final double[] xs;
+
+	private final double[] ys;
+
+	/**
+	 * Variable referencing the position of each entity in the collection this tree was built with.
+	 */
+	private final int[] order;
+
+	/**
+	 * Variables registering the state of the query in progress.
+	 */
+	private double queryX, queryY;
+
+	private Entity excluded;
+
+	private int bestIndex;
+
+	private double bestDistance;
+}
@@ -0,0 +1,80 @@
+package asteroids.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A class of fork/join tasks that apply an action to a range of indices,
+ * splitting the range in halves until the parts are small enough.
+ *
+ * The action must only write to state that belongs to the indices it is
+ * given, so the parts can run in any order.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+class ParallelRange extends RecursiveAction {
+
+	/**
+	 * An interface of actions on a range of indices.
+	 */
+	interface RangeAction {
+
+		/**
+		 * Apply this action to the indices from the given start index up to,
+		 * but not including, the given end index.
+		 */
+		void apply(int from, int to);
+	}
+
+	/**
+	 * Apply the given action to the indices from 0 up to the given size in
+	 * the given pool, in parts of at most the given grain.
+	 *
+	 * @param 	pool
+	 * 			The pool to run the action in, or null to run it in this thread.
+	 * @param 	size
+	 * 			The number of indices.
+	 * @param 	grain
+	 * 			The largest number of indices handled by a single task.
+	 * @param 	action
+	 * 			The action to apply.
+	 */
+	static void run(ForkJoinPool pool, int size, int grain, RangeAction action) {
+		if (pool == null || size <= grain)
+			action.apply(0, size);
+		else
+			pool.invoke(new ParallelRange(0, size, grain, action));
+	}
+
+	/**
+	 * Initialize this new task for the given range, grain and action.
+	 */
+	private ParallelRange(int from, int to, int grain, RangeAction action) {
+		this.from = from;
+		this.to = to;
+		this.grain = grain;
+		this.action = action;
+	}
+
+	@Override
+	protected void compute() {
+		if (this.to - this.from <= this.grain) {
+			this.action.apply(this.from, this.to);
+			return;
+		}
+		int middle = (this.from + this.to) >>> 1;
+		invokeAll(new ParallelRange(this.from, middle, this.grain, this.action),
+				new ParallelRange(middle, this.to, this.grain, this.action));
+	}
+
+	private final int from;
+
+	private final int to;
+
+	private final int grain;
+
+	private final RangeAction action;
+
+	private static final long serialVersionUID = 1L;
+}
@@ -1,7 +1,5 @@
 package asteroids.model;
 
-import java.util.Random;
-
 import be.kuleuven.cs.som.annotate.*;
 
 /**
@@ -152,8 +150,7 @@ public class Planetoid extends MinorPlanet {
 	 * 		
 	 */
 	private void spawnAsteroids(World world) {
-		Random randomNumber = new Random();
-		double velocityDirection = randomNumber.nextDouble() * 2 * Math.PI;
+		double velocityDirection = world.nextRandomDouble() * 2 * Math.PI;
 		double speed = this.getVelocity().getMagnitude();
 		
 		Vector velocity = new Vector(Math.cos(velocityDirection), Math.sin(velocityDirection)).times(speed);
@@ -179,7 +176,7 @@ public class Planetoid extends MinorPlanet {
 	 *      | 	new.getRadius() == radius
 	 */
 	private void setRadius(double radius) {
-		this.radius = radius;
+		this.changeRadius(radius);
 	}
 	
 	/**
@@ -206,12 +203,32 @@ public class Planetoid extends MinorPlanet {
 		
 		if (dt < 0) throw new IllegalArgumentException();
 		Vector newPosition = this.getPosition().add(this.getVelocity().times(dt)); 
-		double distance = newPosition.getDistanceBetween(this.getPosition());
-		this.setTotalDistanceTraveled(this.getTotalDistanceTraveled() + distance);
-		double newRadius = this.getRadius() - (0.000001 * this.getTotalDistanceTraveled());
+		this.travel(dt);
 		if (!this.isTerminated) {
-			this.setRadius(newRadius);
 			this.setPosition(newPosition); 
 		}	     			
 	}
+	
+	/**
+	 * Update the total distance traveled and the radius of this planetoid as if it
+	 * moved during the given time, without changing its position.
+	 * 
+	 * @param 	dt
+	 * 			The given time duration.
+	 * @post	| new.getTotalDistanceTraveled() == this.getTotalDistanceTraveled() + 
+	 * 			|	this.getVelocity().times(dt).getMagnitude()
+	 * @post	| if (! this.isTerminated())
+	 * 			|	then new.getRadius() == this.getRadius() - 0.000001 * new.getTotalDistanceTraveled()
+	 */
+	void travel(double dt) {
+		double x = this.getXPosition();
+		double y = this.getYPosition();
+		double newX = x + this.getXVelocity() * dt;
+		double newY = y + this.getYVelocity() * dt;
+		double distance = Math.sqrt(Math.pow(newX - x, 2) + Math.pow(newY - y, 2));
+		this.setTotalDistanceTraveled(this.getTotalDistanceTraveled() + distance);
+		double newRadius = this.getRadius() - (0.000001 * this.getTotalDistanceTraveled());
+		if (!this.isTerminated)
+			this.setRadius(newRadius);
+	}
 }
@@ -16,12 +16,24 @@ import asteroids.programs.expressions.BasicExpression;
 public class Program {
 
 	public Program(List<MyFunction> functions, MyStatement main) {
+		this(functions, main, null);
+	}
+	
+	public Program(List<MyFunction> functions, MyStatement main, String source) {
 		for (MyFunction function: functions) {
 			this.addFunction(function.getName(), function);
 		}
 		this.main = main;
+		this.source = source;
+	}
+	
+	
+	public String getSource() {
+		return this.source;
 	}
 	
+	private final String source;
+	
 	
 	public void setExecutingShip(Ship ship) {
         this.executingShip = ship;
@@ -141,6 +153,10 @@ public class Program {
 		this.inWhile.pop();
 	}
 
+	public int getWhileDepth() {
+		return this.inWhile.size();
+	}
+
 	private Deque<String> inWhile = new ArrayDeque<>();
 	
 	
@@ -0,0 +1,35 @@
+package asteroids.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A class of flight recorder events for executions of the program of a ship
+ * that take at least the threshold. The fields are only filled in if the
+ * event is committed.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+@Name("asteroids.ProgramSlice")
+@Label("Program Slice")
+@Category("Asteroids")
+@Description("An execution of the program of a ship for the time of an evolve")
+@Threshold("100 us")
+@StackTrace(false)
+final class ProgramSliceEvent extends jdk.jfr.Event {
+
+	@Label("Ship")
+	long ship;
+
+	@Label("Actions Executed")
+	int nbActions;
+
+	@Label("Suspended")
+	@Description("Whether the program ran out of time and was suspended until the next slice")
+	boolean suspended;
+}
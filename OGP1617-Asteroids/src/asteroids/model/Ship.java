@@ -1,10 +1,10 @@
 package asteroids.model;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Random;
 import java.util.Set;
 
+import asteroids.programs.statements.ActionStatement;
 import asteroids.programs.statements.OutOfTimeException;
 import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Raw;
@@ -104,6 +104,9 @@ public class Ship extends Entity{
 	 */
 	public void turn(double angle) {
 		assert (isValidOrientation(this.getOrientation() + angle));
+		WorldJournal journal = this.getJournal();
+		if (journal != null)
+			journal.recordTurn(this, angle);
 		this.setOrientation(this.getOrientation() + angle);		
 	}
 	
@@ -289,8 +292,16 @@ public class Ship extends Entity{
 	 *         The set of bullets to be loaded.
 	 * @post   This ship has each of the given bullet as one of its bullets.
 	 *       | @see implementation
+	 * @throws IllegalArgumentException
+	 *         One of the given bullets cannot be loaded, no bullet is loaded then.
+	 *       | for some bullet in bullets:
+	 *       |   bullet == null || bullet.getShip() != null || bullet.getWorld() != null
 	 */
-	public void loadBullets(Set<Bullet> bullets) {
+	public void loadBullets(Set<Bullet> bullets) throws IllegalArgumentException {
+		for (Bullet bullet: bullets) {
+			if (bullet == null || bullet.getShip() != null || bullet.getWorld() != null)
+				throw new IllegalArgumentException();
+		}
 		for (Bullet bullet: bullets) {
 			loadBullet(bullet);
 		}
@@ -323,6 +334,9 @@ public class Ship extends Entity{
 	 * |@see implementation
 	 */
 	public void fireBullet() {
+		WorldJournal journal = this.getJournal();
+		if (journal != null)
+			journal.recordFire(this);
 		// if there are no bullets left, or if the ship is not in a world, no bullets are fired
 		if ((this.getNbBullets() > 0) && (this.getWorld() != null)){
 			Bullet bullet = null;
@@ -367,7 +381,7 @@ public class Ship extends Entity{
 	 *       |   ( (bullet != null) &&
 	 *       |     (! bullet.isTerminated()) )
 	 */
-	private final Set<Bullet> bullets = new HashSet<>();
+	private final Set<Bullet> bullets = new LinkedHashSet<>();
 	
 	/**
 	 * Change the velocity of this ship based on the velocity, 
@@ -384,9 +398,10 @@ public class Ship extends Entity{
 	 * 		|		== this.getVelocity().getYComponent() + (this.getAcceleration() * Math.sin(this.getOrientation()))
 	 */
 	public void thrust(double dt) {
-		Vector vectorAngle = new Vector(Math.cos(this.getOrientation()), Math.sin(this.getOrientation()));
-		Vector newVelocity = this.getVelocity().add(vectorAngle.times(this.getAcceleration()).times(dt));					
-		this.setVelocity(newVelocity);	
+		double acceleration = this.getAcceleration();
+		double xVelocity = this.getXVelocity() + Math.cos(this.getOrientation()) * acceleration * dt;
+		double yVelocity = this.getYVelocity() + Math.sin(this.getOrientation()) * acceleration * dt;
+		this.setVelocity(xVelocity, yVelocity);	
 	}
 	
 	/**
@@ -405,6 +420,9 @@ public class Ship extends Entity{
 	 * Enable the thruster.
 	 */
 	public void thrustOn() {
+		WorldJournal journal = this.getJournal();
+		if (journal != null)
+			journal.recordThrust(this, true);
 		this.thruster = new Thruster(this.thruster.getForce(), true);
 	}
 	
@@ -412,6 +430,9 @@ public class Ship extends Entity{
 	 * Disable the thruster.
 	 */
 	public void thrustOff() {
+		WorldJournal journal = this.getJournal();
+		if (journal != null)
+			journal.recordThrust(this, false);
 		this.thruster = new Thruster(this.thruster.getForce(), false);
 	}
 	
@@ -432,6 +453,15 @@ public class Ship extends Entity{
 	 */
 	private Thruster thruster = Thruster.DEFAULT;
 
+	/**
+	 * Return the journal of the world of this ship, null if this ship is not
+	 * in a world or its world is not journaled.
+	 */
+	private WorldJournal getJournal() {
+		World world = this.getWorld();
+		return (world == null) ? null : world.getJournal();
+	}
+
 	/**
 	 * Check whether any ship can have the given radius as its radius.
 	 *
@@ -526,9 +556,9 @@ public class Ship extends Entity{
 			this.terminate();
 		}
 		else if (entity instanceof Planetoid) {
-			Random randomNumber = new Random();
-			double x = this.getRadius() + randomNumber.nextDouble() * (this.getWorld().getSize().getXComponent() - this.getRadius());
-			double y = this.getRadius() + randomNumber.nextDouble() * (this.getWorld().getSize().getYComponent() - this.getRadius());
+			World world = this.getWorld();
+			double x = this.getRadius() + world.nextRandomDouble() * (world.getSize().getXComponent() - this.getRadius());
+			double y = this.getRadius() + world.nextRandomDouble() * (world.getSize().getYComponent() - this.getRadius());
 			this.setPosition(new Vector(x, y));
 			
 			if(! this.hasValidPositionInWorld(this.getWorld()))
@@ -565,6 +595,16 @@ public class Ship extends Entity{
 		this.program = program;
 	}
 
+	/**
+	 * Remove the program of this Ship, so it is no longer executed.
+	 * 
+	 * @post	| new.getProgram() == null
+	 */
+	@Raw
+	void unloadProgram() {
+		this.program = null;
+	}
+
 	/**
 	 * Check whether the given program is a valid program for
 	 * any ship.
@@ -598,8 +638,12 @@ public class Ship extends Entity{
 	 */
 	public List<Object> executeProgram(double dt) {
 		Program program = this.getProgram();
+		ProgramSliceEvent event = FlightRecording.isRecording() ? new ProgramSliceEvent() : null;
+		if (event != null)
+			event.begin();
 		program.setExecutingShip(this);
 		program.addTime(dt);
+		double available = program.getTime();
 		if(program.isFirstExecution()) {
 			program.setFirstExecution(false);
 			
@@ -618,6 +662,16 @@ public class Ship extends Entity{
 				program.setIsExecuted(false);
 			}
 		}
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.ship = this.getIdentifier();
+				// Every action takes ActionStatement.ACTION_TIME of the time of the program.
+				event.nbActions = (int) Math.round((available - program.getTime()) / ActionStatement.ACTION_TIME);
+				event.suspended = ! program.isExecuted();
+				event.commit();
+			}
+		}
 		if (program.isExecuted()) {
 			List<Object> printed = program.getPrinted();
 			program.clearExecution();
@@ -0,0 +1,248 @@
+package asteroids.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A class of sweep-and-prune broad phases, which keep the areas swept by
+ * the entities sorted along the x axis. Only entities whose swept areas
+ * overlap are reported as candidates.
+ *
+ * The order of the entities is kept from one build to the next. As entities
+ * move only a little between two evolves, the list is nearly sorted when it
+ * is rebuilt and an insertion sort restores the order in about linear time.
+ * This broad phase uses no memory for empty space, which makes it suited
+ * for long, thin worlds.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+public class SweepAndPrune implements BroadPhase {
+
+	/**
+	 * Initialize this new sweep-and-prune broad phase without entities.
+	 */
+	public SweepAndPrune() {
+	}
+
+	@Override
+	public void build(Collection<? extends Entity> entities, double horizon) {
+		this.generation++;
+		for (Entity entity: entities) {
+			Interval interval = this.intervals.get(entity);
+			if (interval == null) {
+				interval = new Interval(entity);
+				interval.index = this.sortedIntervals.size();
+				this.intervals.put(entity, interval);
+				this.sortedIntervals.add(interval);
+			}
+			interval.generation = this.generation;
+			interval.setBounds(horizon);
+		}
+
+		// Drop the entities that are no longer tracked, keeping the order of the others.
+		if (this.sortedIntervals.size() != entities.size()) {
+			List<Interval> kept = new ArrayList<>(entities.size());
+			for (Interval interval: this.sortedIntervals) {
+				if (interval.generation == this.generation)
+					kept.add(interval);
+				else
+					this.intervals.remove(interval.entity);
+			}
+			this.sortedIntervals.clear();
+			this.sortedIntervals.addAll(kept);
+		}
+
+		this.maxWidth = 0;
+		for (int i = 0; i < this.sortedIntervals.size(); i++) {
+			Interval interval = this.sortedIntervals.get(i);
+			interval.index = i;
+			this.maxWidth = Math.max(this.maxWidth, interval.maxX - interval.minX);
+			this.siftDown(interval);
+		}
+	}
+
+	@Override
+	public void insert(Entity entity, double horizon) {
+		Interval interval = this.intervals.get(entity);
+		if (interval == null) {
+			interval = new Interval(entity);
+			interval.index = this.sortedIntervals.size();
+			interval.generation = this.generation;
+			this.intervals.put(entity, interval);
+			this.sortedIntervals.add(interval);
+		}
+		interval.setBounds(horizon);
+		this.maxWidth = Math.max(this.maxWidth, interval.maxX - interval.minX);
+		this.siftDown(interval);
+		this.siftUp(interval);
+	}
+
+	@Override
+	public void remove(Entity entity) {
+		Interval interval = this.intervals.remove(entity);
+		if (interval == null)
+			return;
+		this.sortedIntervals.remove(interval.index);
+		for (int i = interval.index; i < this.sortedIntervals.size(); i++)
+			this.sortedIntervals.get(i).index = i;
+	}
+
+	@Override
+	public void clear() {
+		this.intervals.clear();
+		this.sortedIntervals.clear();
+		this.maxWidth = 0;
+	}
+
+	@Override
+	public void forEachCandidatePair(BiConsumer<Entity, Entity> action) {
+		for (int i = 0; i < this.sortedIntervals.size(); i++) {
+			Interval interval = this.sortedIntervals.get(i);
+			for (int j = i + 1; j < this.sortedIntervals.size(); j++) {
+				Interval other = this.sortedIntervals.get(j);
+				if (other.minX > interval.maxX)
+					break;
+				if (interval.overlapsInY(other))
+					action.accept(interval.entity, other.entity);
+			}
+		}
+	}
+
+	@Override
+	public void forEachCandidate(Entity entity, Consumer<Entity> action) {
+		Interval interval = this.intervals.get(entity);
+		if (interval == null)
+			return;
+		// No interval is wider than maxWidth, so intervals starting before this
+		// bound cannot reach the given interval.
+		for (int i = this.getFirstIndexFrom(interval.minX - this.maxWidth); i < this.sortedIntervals.size(); i++) {
+			Interval other = this.sortedIntervals.get(i);
+			if (other.minX > interval.maxX)
+				break;
+			if (other != interval && other.maxX >= interval.minX && interval.overlapsInY(other))
+				action.accept(other.entity);
+		}
+	}
+
+	@Override
+	public void forEachEntityIn(double minX, double minY, double maxX, double maxY, Consumer<Entity> action) {
+		for (int i = this.getFirstIndexFrom(minX - this.maxWidth); i < this.sortedIntervals.size(); i++) {
+			Interval other = this.sortedIntervals.get(i);
+			if (other.minX > maxX)
+				break;
+			if (other.maxX >= minX && other.minY <= maxY && minY <= other.maxY)
+				action.accept(other.entity);
+		}
+	}
+
+	/**
+	 * Return the index of the first interval that starts at or after the given x.
+	 */
+	private int getFirstIndexFrom(double x) {
+		int low = 0;
+		int high = this.sortedIntervals.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.sortedIntervals.get(middle).minX < x)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Move the given interval towards the front of the list until the intervals
+	 * before it start no later than it does. This is one step of an insertion sort.
+	 */
+	private void siftDown(Interval interval) {
+		int i = interval.index;
+		while (i > 0 && this.sortedIntervals.get(i - 1).minX > interval.minX) {
+			Interval previous = this.sortedIntervals.get(i - 1);
+			this.sortedIntervals.set(i, previous);
+			previous.index = i;
+			i--;
+		}
+		this.sortedIntervals.set(i, interval);
+		interval.index = i;
+	}
+
+	/**
+	 * Move the given interval towards the back of the list until the intervals
+	 * after it start no earlier than it does.
+	 */
+	private void siftUp(Interval interval) {
+		int i = interval.index;
+		while (i < this.sortedIntervals.size() - 1 && this.sortedIntervals.get(i + 1).minX < interval.minX) {
+			Interval next = this.sortedIntervals.get(i + 1);
+			this.sortedIntervals.set(i, next);
+			next.index = i;
+			i++;
+		}
+		this.sortedIntervals.set(i, interval);
+		interval.index = i;
+	}
+
+	/**
+	 * Variable referencing the intervals of the tracked entities, sorted by their minimum x.
+	 */
+	private final List<Interval> sortedIntervals = new ArrayList<>();
+
+	/**
+	 * Variable referencing the map of the tracked entities to their intervals.
+	 */
+	private final Map<Entity, Interval> intervals = new IdentityHashMap<>();
+
+	/**
+	 * Variable registering an upper bound on the width along the x axis of the intervals.
+	 */
+	private double maxWidth = 0;
+
+	/**
+	 * Variable registering the number of builds, used to find the intervals
+	 * of entities that are no longer tracked.
+	 */
+	private int generation = 0;
+
+	/**
+	 * A class of intervals involving an entity and the bounds of the area it sweeps.
+	 */
+	private static class Interval {
+
+		Interval(Entity entity) {
+			this.entity = entity;
+		}
+
+		/**
+		 * Set the bounds of this interval to the area swept by its entity during the given horizon.
+		 */
+		void setBounds(double horizon) {
+			double[] bounds = BroadPhase.getSweptBounds(this.entity, horizon);
+			this.minX = bounds[0];
+			this.minY = bounds[1];
+			this.maxX = bounds[2];
+			this.maxY = bounds[3];
+		}
+
+		/**
+		 * Check whether this interval and the other interval overlap along the y axis.
+		 */
+		boolean overlapsInY(Interval other) {
+			return this.minY <= other.maxY && other.minY <= this.maxY;
+		}
+
+		final Entity entity;
+
+		double minX, minY, maxX, maxY;
+
+		int index;
+
+		int generation;
+	}
+}
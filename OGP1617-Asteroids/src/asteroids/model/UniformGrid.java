@@ -0,0 +1,683 @@
+package asteroids.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of uniform grids, which are broad phases that hash the area
+ * swept by each entity into square cells of equal size. Only entities
+ * sharing a cell are reported as candidates.
+ *
+ * Entities whose swept area covers too many cells are not hashed, but
+ * are reported as a candidate for every other entity. A grid whose cell
+ * size is computed recomputes it as entities are inserted, as soon as
+ * too many of them are not hashed, so filling a new grid stays linear.
+ *
+ * The tracked entities, their cell ranges and the contents of the cells
+ * are kept in arrays and open addressing tables that only grow, so once
+ * a grid has held as many entities and cells as it holds now, building
+ * it again, inserting, removing and querying entities allocate nothing.
+ *
+ * @invar	The cell size of each uniform grid is positive, or zero if
+ * 			the cell size is computed when the grid is built.
+ * 		|	getConfiguredCellSize() >= 0
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+public class UniformGrid implements BroadPhase {
+
+	/**
+	 * Initialize this new uniform grid with the given cell size.
+	 *
+	 * @param 	cellSize
+	 * 			The cell size of this new uniform grid.
+	 * @post	| new.getConfiguredCellSize() == cellSize
+	 * @throws	IllegalArgumentException
+	 * 		|	! (cellSize > 0) || Double.isInfinite(cellSize)
+	 */
+	public UniformGrid(double cellSize) throws IllegalArgumentException {
+		if (! (cellSize > 0) || Double.isInfinite(cellSize))
+			throw new IllegalArgumentException();
+		this.configuredCellSize = cellSize;
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Initialize this new uniform grid with a cell size that is computed from
+	 * the radii and velocities of the entities each time the grid is built.
+	 *
+	 * @post	| new.getConfiguredCellSize() == 0
+	 */
+	public UniformGrid() {
+		this.configuredCellSize = 0;
+		this.cellSize = 1;
+	}
+
+	/**
+	 * Return a uniform grid suited for a world of the given size in which
+	 * entities typically have the given radius.
+	 *
+	 * @param 	size
+	 * 			The size of the world.
+	 * @param 	typicalRadius
+	 * 			The typical radius of the entities in the world.
+	 * @return	A grid whose cells are a few typical diameters wide, but not
+	 * 			so small that the world spans more than MAX_CELLS_PER_AXIS
+	 * 			cells along its longest side.
+	 * 		|	@see implementation
+	 */
+	public static UniformGrid forWorld(Size size, double typicalRadius) {
+		double longestSide = Math.max(size.getXComponent(), size.getYComponent());
+		double cellSize = Math.max(4 * typicalRadius, longestSide / MAX_CELLS_PER_AXIS);
+		if (! (cellSize > 0) || Double.isInfinite(cellSize))
+			cellSize = 4 * typicalRadius;
+		return new UniformGrid(cellSize);
+	}
+
+	/**
+	 * Return the cell size this grid was configured with, zero if the cell
+	 * size is computed when the grid is built.
+	 */
+	@Basic @Immutable
+	public double getConfiguredCellSize() {
+		return this.configuredCellSize;
+	}
+
+	/**
+	 * Variable registering the configured cell size of this grid.
+	 */
+	private final double configuredCellSize;
+
+	/**
+	 * Return the cell size currently in use by this grid.
+	 */
+	@Basic
+	public double getCellSize() {
+		return this.cellSize;
+	}
+
+	/**
+	 * Variable registering the cell size currently in use by this grid.
+	 */
+	private double cellSize;
+
+	/**
+	 * Constant registering the maximum number of cells along one side of a world
+	 * for grids created with forWorld.
+	 */
+	public static final int MAX_CELLS_PER_AXIS = 4096;
+
+	/**
+	 * Constant registering the maximum number of cells an entity is hashed into.
+	 * Entities that would cover more cells are checked against all entities.
+	 */
+	private static final int MAX_CELLS_PER_ENTITY = 64;
+
+	/**
+	 * Constant registering the largest cell index, so cell coordinates can be
+	 * packed in a single long.
+	 */
+	private static final double MAX_CELL_INDEX = 1 << 30;
+
+	/**
+	 * Constant registering the fraction of the tracked entities that may be
+	 * too large to hash before a grid with a computed cell size is rebuilt.
+	 */
+	private static final int MAX_LARGE_FRACTION = 8;
+
+	@Override
+	public void build(Collection<? extends Entity> entities, double horizon) {
+		this.clear();
+		if (this.getConfiguredCellSize() == 0)
+			this.cellSize = computeCellSize(entities, horizon);
+		this.nbSizedEntities = entities.size();
+		this.reserve(entities.size());
+		// The entities of a world are walked by slot, which needs no iterator,
+		// and are all distinct, so they need not be looked up before tracking.
+		if (entities instanceof EntityStore) {
+			EntityStore store = (EntityStore) entities;
+			for (int slot = 0; slot < store.size(); slot++)
+				this.hash(this.track(store.get(slot)), store.get(slot), horizon);
+		}
+		else {
+			for (Entity entity: entities)
+				this.hash(entity, horizon);
+		}
+	}
+
+	/**
+	 * Return a cell size for the given entities and horizon: twice the mean
+	 * diameter plus the mean distance travelled during the horizon.
+	 */
+	private static double computeCellSize(Collection<? extends Entity> entities, double horizon) {
+		if (entities.isEmpty())
+			return 1;
+		double totalRadius = 0;
+		double totalSpeed = 0;
+		if (entities instanceof EntityStore) {
+			EntityStore store = (EntityStore) entities;
+			for (int slot = 0; slot < store.size(); slot++) {
+				totalRadius += store.getRadius(slot);
+				totalSpeed += Vector.getMagnitude(store.getVelocityX(slot), store.getVelocityY(slot));
+			}
+		}
+		else {
+			for (Entity entity: entities) {
+				totalRadius += entity.getRadius();
+				totalSpeed += Vector.getMagnitude(entity.getXVelocity(), entity.getYVelocity());
+			}
+		}
+		double cellSize = 4 * totalRadius / entities.size() + totalSpeed / entities.size() * horizon;
+		if (! (cellSize > 0) || Double.isInfinite(cellSize))
+			return 1;
+		return cellSize;
+	}
+
+	/**
+	 * Insert the given entity in this grid, and rebuild this grid with a new
+	 * cell size if its cell size is computed and the entities that are too
+	 * large to hash are more than one in MAX_LARGE_FRACTION of the tracked entities.
+	 * The cell size is checked again only once the number of tracked entities
+	 * has doubled, so inserting n entities costs O(n) rebuilding in total.
+	 *
+	 * @see implementation
+	 */
+	@Override
+	public void insert(Entity entity, double horizon) {
+		this.hash(entity, horizon);
+		if (this.getConfiguredCellSize() == 0
+				&& this.nbLarge * MAX_LARGE_FRACTION > this.nbTracked
+				&& this.nbTracked >= 2 * this.nbSizedEntities) {
+			List<Entity> entities = new ArrayList<>(this.nbTracked);
+			for (int id = 0; id < this.nbIds; id++)
+				if (this.entities[id] != null)
+					entities.add(this.entities[id]);
+			if (computeCellSize(entities, horizon) > 2 * this.getCellSize())
+				this.build(entities, horizon);
+			else
+				this.nbSizedEntities = entities.size();
+		}
+	}
+
+	/**
+	 * Variable registering the number of tracked entities when the cell size
+	 * of this grid was last computed or checked.
+	 */
+	private int nbSizedEntities = 0;
+
+	/**
+	 * Hash the given entity into the cells its swept area covers, or register
+	 * it as too large to hash, removing it from its cells first if it is
+	 * already tracked.
+	 */
+	private void hash(Entity entity, double horizon) {
+		int id = this.getId(entity);
+		if (id >= 0)
+			this.unhash(id);
+		else
+			id = this.track(entity);
+		this.hash(id, entity, horizon);
+	}
+
+	/**
+	 * Hash the given entity, tracked with the given id but not hashed yet,
+	 * into the cells its swept area covers, or register it as too large to hash.
+	 */
+	private void hash(int id, Entity entity, double horizon) {
+		double x = entity.getXPosition();
+		double y = entity.getYPosition();
+		double endX = x + entity.getXVelocity() * horizon;
+		double endY = y + entity.getYVelocity() * horizon;
+		double radius = entity.getRadius();
+		double minX = Math.floor((Math.min(x, endX) - radius) / this.getCellSize());
+		double minY = Math.floor((Math.min(y, endY) - radius) / this.getCellSize());
+		double maxX = Math.floor((Math.max(x, endX) + radius) / this.getCellSize());
+		double maxY = Math.floor((Math.max(y, endY) + radius) / this.getCellSize());
+
+		if (! (Math.abs(minX) < MAX_CELL_INDEX && Math.abs(minY) < MAX_CELL_INDEX
+				&& Math.abs(maxX) < MAX_CELL_INDEX && Math.abs(maxY) < MAX_CELL_INDEX)
+				|| (maxX - minX + 1) * (maxY - minY + 1) > MAX_CELLS_PER_ENTITY) {
+			this.isLarge[id] = true;
+			if (this.nbLarge == this.largeIds.length)
+				this.largeIds = Arrays.copyOf(this.largeIds, 2 * this.largeIds.length);
+			this.largeIds[this.nbLarge++] = id;
+			return;
+		}
+
+		this.isLarge[id] = false;
+		this.ranges[4 * id] = (int) minX;
+		this.ranges[4 * id + 1] = (int) minY;
+		this.ranges[4 * id + 2] = (int) maxX;
+		this.ranges[4 * id + 3] = (int) maxY;
+		for (int cx = (int) minX; cx <= maxX; cx++)
+			for (int cy = (int) minY; cy <= maxY; cy++)
+				this.addToCell(getKey(cx, cy), id);
+	}
+
+	/**
+	 * Remove the entity with the given id from the cells it is hashed into,
+	 * or from the entities that are too large to hash.
+	 */
+	private void unhash(int id) {
+		if (this.isLarge[id]) {
+			for (int i = 0; i < this.nbLarge; i++)
+				if (this.largeIds[i] == id) {
+					this.largeIds[i] = this.largeIds[--this.nbLarge];
+					break;
+				}
+			return;
+		}
+		for (int cx = this.ranges[4 * id]; cx <= this.ranges[4 * id + 2]; cx++)
+			for (int cy = this.ranges[4 * id + 1]; cy <= this.ranges[4 * id + 3]; cy++)
+				this.removeFromCell(getKey(cx, cy), id);
+	}
+
+	@Override
+	public void remove(Entity entity) {
+		int id = this.getId(entity);
+		if (id < 0)
+			return;
+		this.unhash(id);
+		this.untrack(id);
+	}
+
+	@Override
+	public void clear() {
+		this.nbSizedEntities = 0;
+		Arrays.fill(this.entities, 0, this.nbIds, null);
+		Arrays.fill(this.idKeys, null);
+		this.nbIds = 0;
+		this.nbFreeIds = 0;
+		this.nbTracked = 0;
+		this.nbLarge = 0;
+		Arrays.fill(this.isUsedCell, false);
+		this.nbCells = 0;
+		this.nbNodes = 0;
+		this.firstFreeNode = -1;
+	}
+
+	@Override
+	public void forEachCandidatePair(BiConsumer<Entity, Entity> action) {
+		for (int cell = 0; cell < this.cellKeys.length; cell++) {
+			if (! this.isUsedCell[cell])
+				continue;
+			int cx = (int) (this.cellKeys[cell] >> 32);
+			int cy = (int) this.cellKeys[cell];
+			for (int node = this.cellHeads[cell]; node >= 0; node = this.nodeNexts[node]) {
+				int id = this.nodeIds[node];
+				for (int otherNode = this.nodeNexts[node]; otherNode >= 0; otherNode = this.nodeNexts[otherNode]) {
+					int otherId = this.nodeIds[otherNode];
+					if (this.isFirstSharedCell(cx, cy, this.ranges[4 * id], this.ranges[4 * id + 1], otherId))
+						action.accept(this.entities[id], this.entities[otherId]);
+				}
+			}
+		}
+		for (int i = 0; i < this.nbLarge; i++) {
+			Entity large = this.entities[this.largeIds[i]];
+			for (int j = i + 1; j < this.nbLarge; j++)
+				action.accept(large, this.entities[this.largeIds[j]]);
+			for (int id = 0; id < this.nbIds; id++)
+				if (this.entities[id] != null && ! this.isLarge[id])
+					action.accept(large, this.entities[id]);
+		}
+	}
+
+	@Override
+	public void forEachCandidate(Entity entity, Consumer<Entity> action) {
+		int id = this.getId(entity);
+		if (id < 0)
+			return;
+		if (this.isLarge[id]) {
+			for (int other = 0; other < this.nbIds; other++)
+				if (this.entities[other] != null && other != id)
+					action.accept(this.entities[other]);
+			return;
+		}
+		int minX = this.ranges[4 * id];
+		int minY = this.ranges[4 * id + 1];
+		for (int cx = minX; cx <= this.ranges[4 * id + 2]; cx++)
+			for (int cy = minY; cy <= this.ranges[4 * id + 3]; cy++)
+				for (int node = this.cellHeads[this.findCell(getKey(cx, cy))]; node >= 0; node = this.nodeNexts[node]) {
+					int other = this.nodeIds[node];
+					if (other != id && this.isFirstSharedCell(cx, cy, minX, minY, other))
+						action.accept(this.entities[other]);
+				}
+		for (int i = 0; i < this.nbLarge; i++)
+			action.accept(this.entities[this.largeIds[i]]);
+	}
+
+	@Override
+	public void forEachEntityIn(double minX, double minY, double maxX, double maxY, Consumer<Entity> action) {
+		double cellMinX = Math.floor(minX / this.getCellSize());
+		double cellMinY = Math.floor(minY / this.getCellSize());
+		double cellMaxX = Math.floor(maxX / this.getCellSize());
+		double cellMaxY = Math.floor(maxY / this.getCellSize());
+		if (! (Math.abs(cellMinX) < MAX_CELL_INDEX && Math.abs(cellMinY) < MAX_CELL_INDEX
+				&& Math.abs(cellMaxX) < MAX_CELL_INDEX && Math.abs(cellMaxY) < MAX_CELL_INDEX)
+				|| (cellMaxX - cellMinX + 1) * (cellMaxY - cellMinY + 1) > MAX_CELLS_PER_ENTITY) {
+			for (int id = 0; id < this.nbIds; id++)
+				if (this.entities[id] != null)
+					action.accept(this.entities[id]);
+			return;
+		}
+		for (int cx = (int) cellMinX; cx <= cellMaxX; cx++)
+			for (int cy = (int) cellMinY; cy <= cellMaxY; cy++) {
+				int cell = this.findCell(getKey(cx, cy));
+				if (cell < 0)
+					continue;
+				for (int node = this.cellHeads[cell]; node >= 0; node = this.nodeNexts[node])
+					if (this.isFirstSharedCell(cx, cy, (int) cellMinX, (int) cellMinY, this.nodeIds[node]))
+						action.accept(this.entities[this.nodeIds[node]]);
+			}
+		for (int i = 0; i < this.nbLarge; i++)
+			action.accept(this.entities[this.largeIds[i]]);
+	}
+
+	/**
+	 * Check whether the given cell is the first cell shared by the cell range
+	 * starting at the given cell and the cell range of the entity with the
+	 * given id, so that a pair spanning several common cells is reported only once.
+	 */
+	private boolean isFirstSharedCell(int cx, int cy, int minX, int minY, int id) {
+		return cx == Math.max(minX, this.ranges[4 * id]) && cy == Math.max(minY, this.ranges[4 * id + 1]);
+	}
+
+	/**
+	 * Return the key of the cell with the given coordinates.
+	 */
+	private static long getKey(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xffffffffL);
+	}
+
+	/**
+	 * Return a hash of the given value, spreading its bits over the low bits.
+	 */
+	private static int mix(long value) {
+		value *= 0x9E3779B97F4A7C15L;
+		return (int) (value ^ (value >>> 32));
+	}
+
+	/**
+	 * Return the id of the given entity, -1 if it is not tracked.
+	 */
+	private int getId(Entity entity) {
+		int mask = this.idKeys.length - 1;
+		for (int slot = mix(System.identityHashCode(entity)) & mask; this.idKeys[slot] != null; slot = (slot + 1) & mask)
+			if (this.idKeys[slot] == entity)
+				return this.idValues[slot];
+		return -1;
+	}
+
+	/**
+	 * Start tracking the given entity and return its new id.
+	 */
+	private int track(Entity entity) {
+		int id;
+		if (this.nbFreeIds > 0)
+			id = this.freeIds[--this.nbFreeIds];
+		else {
+			if (this.nbIds == this.entities.length) {
+				int capacity = 2 * this.entities.length;
+				this.entities = Arrays.copyOf(this.entities, capacity);
+				this.isLarge = Arrays.copyOf(this.isLarge, capacity);
+				this.ranges = Arrays.copyOf(this.ranges, 4 * capacity);
+				this.freeIds = Arrays.copyOf(this.freeIds, capacity);
+			}
+			id = this.nbIds++;
+		}
+		this.entities[id] = entity;
+		this.nbTracked++;
+		if (2 * this.nbTracked > this.idKeys.length)
+			this.rehashIds(2 * this.idKeys.length);
+		int mask = this.idKeys.length - 1;
+		int slot = mix(System.identityHashCode(entity)) & mask;
+		while (this.idKeys[slot] != null)
+			slot = (slot + 1) & mask;
+		this.idKeys[slot] = entity;
+		this.idValues[slot] = id;
+		return id;
+	}
+
+	/**
+	 * Stop tracking the entity with the given id and free that id.
+	 */
+	private void untrack(int id) {
+		Entity entity = this.entities[id];
+		int mask = this.idKeys.length - 1;
+		int slot = mix(System.identityHashCode(entity)) & mask;
+		while (this.idKeys[slot] != entity)
+			slot = (slot + 1) & mask;
+		// Shift back the entities after the freed slot that probed past it.
+		for (int next = (slot + 1) & mask; this.idKeys[next] != null; next = (next + 1) & mask) {
+			int home = mix(System.identityHashCode(this.idKeys[next])) & mask;
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				this.idKeys[slot] = this.idKeys[next];
+				this.idValues[slot] = this.idValues[next];
+				slot = next;
+			}
+		}
+		this.idKeys[slot] = null;
+		this.entities[id] = null;
+		this.freeIds[this.nbFreeIds++] = id;
+		this.nbTracked--;
+	}
+
+	/**
+	 * Rebuild the table of ids with the given capacity.
+	 */
+	private void rehashIds(int capacity) {
+		this.idKeys = new Entity[capacity];
+		this.idValues = new int[capacity];
+		int mask = capacity - 1;
+		for (int id = 0; id < this.nbIds; id++) {
+			Entity entity = this.entities[id];
+			if (entity == null)
+				continue;
+			int slot = mix(System.identityHashCode(entity)) & mask;
+			while (this.idKeys[slot] != null)
+				slot = (slot + 1) & mask;
+			this.idKeys[slot] = entity;
+			this.idValues[slot] = id;
+		}
+	}
+
+	/**
+	 * Grow the arrays and tables of this grid, if needed, so the given number
+	 * of entities can be tracked and each hashed into a cell of its own
+	 * without growing them again.
+	 */
+	private void reserve(int nbEntities) {
+		if (nbEntities > this.entities.length) {
+			this.entities = Arrays.copyOf(this.entities, nbEntities);
+			this.isLarge = Arrays.copyOf(this.isLarge, nbEntities);
+			this.ranges = Arrays.copyOf(this.ranges, 4 * nbEntities);
+			this.freeIds = Arrays.copyOf(this.freeIds, nbEntities);
+		}
+		int capacity = this.idKeys.length;
+		while (2 * nbEntities > capacity)
+			capacity *= 2;
+		if (capacity > this.idKeys.length)
+			this.rehashIds(capacity);
+		capacity = this.cellKeys.length;
+		while (2 * (nbEntities + 1) > capacity)
+			capacity *= 2;
+		if (capacity > this.cellKeys.length)
+			this.rehashCells(capacity);
+		if (nbEntities > this.nodeIds.length) {
+			this.nodeIds = Arrays.copyOf(this.nodeIds, nbEntities);
+			this.nodeNexts = Arrays.copyOf(this.nodeNexts, nbEntities);
+		}
+	}
+
+	/**
+	 * Return the index of the cell with the given key in the table of cells,
+	 * -1 if that cell was not used since this grid was last cleared.
+	 */
+	private int findCell(long key) {
+		int mask = this.cellKeys.length - 1;
+		for (int cell = mix(key) & mask; this.isUsedCell[cell]; cell = (cell + 1) & mask)
+			if (this.cellKeys[cell] == key)
+				return cell;
+		return -1;
+	}
+
+	/**
+	 * Add the entity with the given id to the cell with the given key.
+	 */
+	private void addToCell(long key, int id) {
+		int cell = this.findCell(key);
+		if (cell < 0) {
+			if (2 * (this.nbCells + 1) > this.cellKeys.length)
+				this.rehashCells(this.cellKeys.length);
+			int mask = this.cellKeys.length - 1;
+			cell = mix(key) & mask;
+			while (this.isUsedCell[cell])
+				cell = (cell + 1) & mask;
+			this.isUsedCell[cell] = true;
+			this.cellKeys[cell] = key;
+			this.cellHeads[cell] = -1;
+			this.nbCells++;
+		}
+		int node;
+		if (this.firstFreeNode >= 0) {
+			node = this.firstFreeNode;
+			this.firstFreeNode = this.nodeNexts[node];
+		}
+		else {
+			if (this.nbNodes == this.nodeIds.length) {
+				this.nodeIds = Arrays.copyOf(this.nodeIds, 2 * this.nbNodes);
+				this.nodeNexts = Arrays.copyOf(this.nodeNexts, 2 * this.nbNodes);
+			}
+			node = this.nbNodes++;
+		}
+		this.nodeIds[node] = id;
+		this.nodeNexts[node] = this.cellHeads[cell];
+		this.cellHeads[cell] = node;
+	}
+
+	/**
+	 * Remove the entity with the given id from the cell with the given key.
+	 * The cell stays in the table of cells, empty, until the table is rehashed
+	 * or this grid is cleared.
+	 */
+	private void removeFromCell(long key, int id) {
+		int cell = this.findCell(key);
+		int previous = -1;
+		for (int node = this.cellHeads[cell]; node >= 0; previous = node, node = this.nodeNexts[node])
+			if (this.nodeIds[node] == id) {
+				if (previous < 0)
+					this.cellHeads[cell] = this.nodeNexts[node];
+				else
+					this.nodeNexts[previous] = this.nodeNexts[node];
+				this.nodeNexts[node] = this.firstFreeNode;
+				this.firstFreeNode = node;
+				return;
+			}
+	}
+
+	/**
+	 * Rebuild the table of cells without its empty cells, with the given
+	 * capacity, doubled as long as it would still be more than half full.
+	 */
+	private void rehashCells(int capacity) {
+		long[] keys = this.cellKeys;
+		int[] heads = this.cellHeads;
+		boolean[] isUsed = this.isUsedCell;
+		int nbCells = 0;
+		for (int cell = 0; cell < keys.length; cell++)
+			if (isUsed[cell] && heads[cell] >= 0)
+				nbCells++;
+		while (2 * (nbCells + 1) > capacity)
+			capacity *= 2;
+		this.cellKeys = new long[capacity];
+		this.cellHeads = new int[capacity];
+		this.isUsedCell = new boolean[capacity];
+		this.nbCells = nbCells;
+		int mask = capacity - 1;
+		for (int cell = 0; cell < keys.length; cell++) {
+			if (! isUsed[cell] || heads[cell] < 0)
+				continue;
+			int slot = mix(keys[cell]) & mask;
+			while (this.isUsedCell[slot])
+				slot = (slot + 1) & mask;
+			this.isUsedCell[slot] = true;
+			this.cellKeys[slot] = keys[cell];
+			this.cellHeads[slot] = heads[cell];
+		}
+	}
+
+	/**
+	 * Constant registering the initial capacity of the arrays and tables of a grid.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Variables referencing the tracked entities, indexed by id, with null for
+	 * free ids, whether each of them is too large to hash, and their cell
+	 * ranges {minX, minY, maxX, maxY}, four per id, for entities that are hashed.
+	 */
+	private Entity[] entities = new Entity[INITIAL_CAPACITY];
+
+	private boolean[] isLarge = new boolean[INITIAL_CAPACITY];
+
+	private int[] ranges = new int[4 * INITIAL_CAPACITY];
+
+	/**
+	 * Variables registering the number of ids ever handed out since this grid
+	 * was last cleared, the number of tracked entities, and the free ids.
+	 */
+	private int nbIds = 0;
+
+	private int nbTracked = 0;
+
+	private int[] freeIds = new int[INITIAL_CAPACITY];
+
+	private int nbFreeIds = 0;
+
+	/**
+	 * Variables referencing the table of tracked entities to their ids,
+	 * with open addressing on their identity hash codes.
+	 */
+	private Entity[] idKeys = new Entity[2 * INITIAL_CAPACITY];
+
+	private int[] idValues = new int[2 * INITIAL_CAPACITY];
+
+	/**
+	 * Variables referencing the ids of the entities that are too large to hash.
+	 */
+	private int[] largeIds = new int[INITIAL_CAPACITY];
+
+	private int nbLarge = 0;
+
+	/**
+	 * Variables referencing the table of cells, with open addressing on their
+	 * keys: whether each slot holds a cell, its key, and the first node of the
+	 * list of entities hashed into it, -1 if it is empty.
+	 */
+	private boolean[] isUsedCell = new boolean[4 * INITIAL_CAPACITY];
+
+	private long[] cellKeys = new long[4 * INITIAL_CAPACITY];
+
+	private int[] cellHeads = new int[4 * INITIAL_CAPACITY];
+
+	private int nbCells = 0;
+
+	/**
+	 * Variables referencing the nodes of the lists of entities in the cells:
+	 * the id of the entity and the next node in the list, -1 at the end.
+	 * Free nodes are linked from the first free node.
+	 */
+	private int[] nodeIds = new int[4 * INITIAL_CAPACITY];
+
+	private int[] nodeNexts = new int[4 * INITIAL_CAPACITY];
+
+	private int nbNodes = 0;
+
+	private int firstFreeNode = -1;
+}
@@ -52,7 +52,21 @@ public class Vector extends OrderedPair implements Comparable<Vector>{
 	 * 		|	result == Math.sqrt(Math.pow(getXComponent(), 2) + Math.pow(getYComponent(), 2))
 	 */
 	public double getMagnitude() {
-		return Math.sqrt(Math.pow(this.getXComponent(), 2) + Math.pow(this.getYComponent(), 2));
+		return getMagnitude(this.getXComponent(), this.getYComponent());
+	}
+	
+	/**
+	 * Returns the magnitude of the vector with the given components.
+	 * 
+	 * @param 	xComponent
+	 * 			The x component of the vector.
+	 * @param 	yComponent
+	 * 			The y component of the vector.
+	 * @return	The square root of the sum of the squares of the given components.
+	 * 		|	result == Math.sqrt(Math.pow(xComponent, 2) + Math.pow(yComponent, 2))
+	 */
+	public static double getMagnitude(double xComponent, double yComponent) {
+		return Math.sqrt((xComponent * xComponent) + (yComponent * yComponent));
 	}
 	
 	/**
@@ -65,8 +79,7 @@ public class Vector extends OrderedPair implements Comparable<Vector>{
 	 * 		|					   + Math.pow(getYComponent() - other.getYComponent(), 2) )
 	 */
 	public double getDistanceBetween(Vector other) {
-		return Math.sqrt( Math.pow(getXComponent() - other.getXComponent(), 2) 
-				+ Math.pow(getYComponent() - other.getYComponent(), 2));
+		return getMagnitude(getXComponent() - other.getXComponent(), getYComponent() - other.getYComponent());
 	}
 	
 	/**
@@ -80,7 +93,18 @@ public class Vector extends OrderedPair implements Comparable<Vector>{
 	 * 		|	+ (this.getYComponent() * other.getYComponent())
 	 */
 	public double dot(Vector other) {
-		return (this.getXComponent() * other.getXComponent()) + (this.getYComponent() * other.getYComponent());
+		return dot(this.getXComponent(), this.getYComponent(), other.getXComponent(), other.getYComponent());
+	}
+	
+	/**
+	 * Compute the dot product of the vectors with the given components.
+	 * 
+	 * @return	The sum of the products of the x components and the 
+	 * 			y components of both vectors.
+	 * 		|	result == (xComponent * otherXComponent) + (yComponent * otherYComponent)
+	 */
+	public static double dot(double xComponent, double yComponent, double otherXComponent, double otherYComponent) {
+		return (xComponent * otherXComponent) + (yComponent * otherYComponent);
 	}
 	
 	/**
@@ -1,14 +1,18 @@
 package asteroids.model;
 import be.kuleuven.cs.som.annotate.*;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
+import asteroids.model.CollisionEngine.CollisionEvent;
 import asteroids.part2.CollisionListener;
 
 /**
@@ -48,6 +52,22 @@ public class World {
 			this.size = Size.MAX_SIZE;
 	}
 
+	/**
+	 * Initialize this new world as a non-terminated world with given size,
+	 * with no entities yet and with the given seed for its random generator.
+	 * 
+	 * @param 	size
+	 * 		  	The size for this new world.
+	 * @param 	seed
+	 * 			The seed for the random generator of this new world.
+	 * @effect	| this(size)
+	 * @effect	| setSeed(seed)
+	 */
+	public World (Size size, long seed) {
+		this(size);
+		this.setSeed(seed);
+	}
+
 	/**
 	 * Initialize this new world as a non-terminated world with 
 	 * no entities yet.
@@ -96,7 +116,7 @@ public class World {
 	 */
 	@Basic
 	public Set<Entity> getEntities() {
-		return new HashSet<Entity>(this.entities.values());
+		return new LinkedHashSet<Entity>(this.entities);
 	}
 	
 	/**
@@ -109,7 +129,7 @@ public class World {
 	@Basic
 	@Raw
 	public boolean hasAsEntity(@Raw Entity entity) {
-		return entities.containsValue(entity);
+		return entities.contains(entity);
 	}
 
 	/**
@@ -142,7 +162,7 @@ public class World {
 	 *       |          (entity.getWorld() == this)
 	 */
 	public boolean hasProperEntities() {
-		for (Entity entity : entities.values()) {
+		for (Entity entity : entities) {
 			if (!canHaveAsEntity(entity))
 				return false;
 			if (entity.getWorld() != this)
@@ -182,7 +202,58 @@ public class World {
 		if (! entity.hasValidPositionInWorld(this))
 			throw new IllegalArgumentException();
 		entity.setWorld(this);
-		entities.put(entity.getPosition(), entity);
+		entities.add(entity);
+		this.register(entity);
+		this.invalidateNearestEntityIndices(entity);
+		if (this.getBroadPhase() != null && ! this.getCollisionEngine().isActive())
+			this.getBroadPhase().insert(entity, 0);
+		this.getCollisionEngine().update(entity);
+	}
+
+	/**
+	 * Add the given number of entities at the start of the given array to the
+	 * set of entities of this world at once, without checking their positions.
+	 * Used to restore entities whose positions were valid when they were saved,
+	 * which avoids checking every entity for overlap with every other one.
+	 * The store and the registries are grown once and the broad phase is
+	 * rebuilt once, instead of for every entity.
+	 * 
+	 * @param  restored
+	 *         The array holding the entities to be added.
+	 * @param  count
+	 *         The number of entities to be added.
+	 * @pre    | for each i in 0..count-1:
+	 *         |   restored[i] != null && restored[i].getWorld() == null &&
+	 *         |   restored[i].hasValidPositionInWorld(this)
+	 * @post   | for each i in 0..count-1: new.hasAsEntity(restored[i])
+	 */
+	void addRestoredEntities(@Raw Entity[] restored, int count) {
+		this.entities.ensureCapacity(this.entities.size() + count);
+		int nbShips = 0, nbBullets = 0, nbAsteroids = 0, nbPlanetoids = 0;
+		for (int i = 0; i < count; i++) {
+			Class<?> type = restored[i].getClass();
+			if (type == Ship.class)
+				nbShips++;
+			else if (type == Bullet.class)
+				nbBullets++;
+			else if (type == Asteroid.class)
+				nbAsteroids++;
+			else if (type == Planetoid.class)
+				nbPlanetoids++;
+		}
+		this.ships.ensureCapacity(this.ships.size() + nbShips);
+		this.bullets.ensureCapacity(this.bullets.size() + nbBullets);
+		this.asteroids.ensureCapacity(this.asteroids.size() + nbAsteroids);
+		this.planetoids.ensureCapacity(this.planetoids.size() + nbPlanetoids);
+		for (int i = 0; i < count; i++) {
+			restored[i].changeWorld(this);
+			this.entities.add(restored[i]);
+			this.register(restored[i]);
+		}
+		this.nearestEntityIndices.clear();
+		if (this.getBroadPhase() != null && ! this.getCollisionEngine().isActive())
+			this.getBroadPhase().build(this.entities, 0);
+		this.getCollisionEngine().update(restored, count);
 	}
 
 	/**
@@ -202,7 +273,12 @@ public class World {
 	public void removeEntity(Entity entity) throws IllegalArgumentException {
 		if (! this.hasAsEntity(entity) || entity.getWorld() != this) throw new IllegalArgumentException();
 		entity.setWorld(null);
-		entities.values().remove(entity);
+		entities.remove(entity);
+		this.unregister(entity);
+		this.invalidateNearestEntityIndices(entity);
+		this.getCollisionEngine().invalidate(entity);
+		if (this.getBroadPhase() != null)
+			this.getBroadPhase().remove(entity);
 	}
 	
 	/**
@@ -223,6 +299,7 @@ public class World {
 	
 	 /**
 	  * Return the entity, if any, at a given position.
+	  * The entities near the position are found with the broad phase of this world.
 	  * 
 	  * @param position
 	  * 	   The given position.
@@ -230,7 +307,20 @@ public class World {
 	  * 	  | @see implemantation
 	  */
 	 public Entity returnEntityGivenPosition(Vector position) {
-		 return entities.get(position);
+		 if (this.getBroadPhase() == null) {
+			 for (Entity entity: this.entities)
+				 if (entity.getPosition().equals(position))
+					 return entity;
+			 return null;
+		 }
+		 double x = position.getXComponent();
+		 double y = position.getYComponent();
+		 Entity[] found = new Entity[1];
+		 this.getBroadPhase().forEachEntityIn(x, y, x, y, entity -> {
+			 if (found[0] == null && entity.getPosition().equals(position))
+				 found[0] = entity;
+		 });
+		 return found[0];
 	 }
 
 	/**
@@ -241,15 +331,97 @@ public class World {
 	 * 		|	@see implementation
 	 */
 	 public Set<? extends Entity> getEntitiesOfType(Class<? extends Entity> type) {
+		EntityRegistry<?> registry = this.getRegistry(type);
+		if (registry != null)
+			return new LinkedHashSet<Entity>(registry);
 		Set<Entity> entities = this.getEntities();
-	 	return entities.stream().filter(entity -> type.isInstance(entity)).collect(Collectors.toSet());
+	 	return entities.stream().filter(entity -> type.isInstance(entity)).collect(Collectors.toCollection(LinkedHashSet::new));
+	 }
+	 
+	 /**
+	  * Return a read-only view of the ships of this world.
+	  * The view follows the changes to this world.
+	  */
+	 public Set<Ship> getShips() {
+		 return this.ships;
+	 }
+	 
+	 /**
+	  * Return a read-only view of the bullets of this world.
+	  * The view follows the changes to this world.
+	  */
+	 public Set<Bullet> getBullets() {
+		 return this.bullets;
+	 }
+	 
+	 /**
+	  * Return a read-only view of the asteroids of this world.
+	  * The view follows the changes to this world.
+	  */
+	 public Set<Asteroid> getAsteroids() {
+		 return this.asteroids;
+	 }
+	 
+	 /**
+	  * Return a read-only view of the planetoids of this world.
+	  * The view follows the changes to this world.
+	  */
+	 public Set<Planetoid> getPlanetoids() {
+		 return this.planetoids;
+	 }
+	 
+	 /**
+	  * Add the given entity to the registry of its class, if any.
+	  */
+	 @SuppressWarnings("unchecked")
+	 private void register(Entity entity) {
+		 EntityRegistry<Entity> registry = (EntityRegistry<Entity>) this.getRegistry(entity.getClass());
+		 if (registry != null)
+			 registry.register(entity);
+	 }
+	 
+	 /**
+	  * Remove the given entity from the registry of its class, if any.
+	  */
+	 private void unregister(Entity entity) {
+		 EntityRegistry<?> registry = this.getRegistry(entity.getClass());
+		 if (registry != null)
+			 registry.unregister(entity);
+	 }
+	 
+	 /**
+	  * Variables referencing the registries of the ships, bullets, asteroids
+	  * and planetoids of this world.
+	  */
+	 private final EntityRegistry<Ship> ships = new EntityRegistry<>();
+	 
+	 private final EntityRegistry<Bullet> bullets = new EntityRegistry<>();
+	 
+	 private final EntityRegistry<Asteroid> asteroids = new EntityRegistry<>();
+	 
+	 private final EntityRegistry<Planetoid> planetoids = new EntityRegistry<>();
+	 
+	 /**
+	  * Return the registry collecting the entities of exactly the given class
+	  * in this world, null if entities of that class are not registered.
+	  */
+	 private EntityRegistry<?> getRegistry(Class<?> type) {
+		 if (type == Ship.class)
+			 return this.ships;
+		 if (type == Bullet.class)
+			 return this.bullets;
+		 if (type == Asteroid.class)
+			 return this.asteroids;
+		 if (type == Planetoid.class)
+			 return this.planetoids;
+		 return null;
 	 }
 
 	/**
-	 * Variable referencing a set collecting all the entities
+	 * Variable referencing a store collecting all the entities
 	 * of this world.
 	 * 
-	 * @invar  The referenced set is effective.
+	 * @invar  The referenced store is effective.
 	 *       | entities != null
 	 * @invar  Each entity registered in the referenced list is
 	 *         effective and not yet terminated.
@@ -257,7 +429,15 @@ public class World {
 	 *       |   ( (entity != null) &&
 	 *       |     (! entity.isTerminated()) )
 	 */
-	private Map<Vector, Entity> entities = new HashMap<>();
+	private final EntityStore entities = new EntityStore();
+	
+	/**
+	 * Return the store collecting all the entities of this world.
+	 */
+	@Basic @Immutable
+	EntityStore getEntityStore() {
+		return this.entities;
+	}
 	
 	/**
 	 * Terminate this world.
@@ -273,12 +453,17 @@ public class World {
 	 public void terminate() {
 		 if (!isTerminated()) {
 			 // We avoid ConcurrentModificationException by using the remove prepare method
-			 // together with the iterator remove method from Java.
-			 for (Iterator<Entity> i = entities.values().iterator(); i.hasNext();) {
-			    Entity entity = i.next();
+			 // and clearing the store afterwards.
+			 for (Entity entity: entities)
 			    this.prepareRemovalForEntity(entity);
-			    i.remove();
-			 }
+			 entities.clear();
+			 this.ships.unregisterAll();
+			 this.bullets.unregisterAll();
+			 this.asteroids.unregisterAll();
+			 this.planetoids.unregisterAll();
+			 if (this.getBroadPhase() != null)
+				 this.getBroadPhase().clear();
+			 this.nearestEntityIndices.clear();
 			 this.isTerminated = true;
 		 }
 	 }
@@ -297,48 +482,673 @@ public class World {
 	  */
 	 private boolean isTerminated = false;
 	 
-	 public void evolve(double dt, CollisionListener listener) throws IllegalArgumentException { 	 
+	 /**
+	  * Return the seed of the random generator of this world.
+	  * A world that is not given a seed gets a random seed.
+	  */
+	 @Basic
+	 public long getSeed() {
+		 return this.seed;
+	 }
+	 
+	 /**
+	  * Restart the random generator of this world with the given seed.
+	  * Every random decision in this world is drawn from this generator,
+	  * so two worlds with the same seed and the same entities evolve in
+	  * the same way.
+	  * 
+	  * @param 	seed
+	  * 		The new seed.
+	  * @post	| new.getSeed() == seed
+	  * @post	| new.getNbRandomDraws() == 0
+	  */
+	 public void setSeed(long seed) {
+		 this.seed = seed;
+		 this.random = new Random(seed);
+		 this.nbRandomDraws = 0;
+	 }
+	 
+	 /**
+	  * Restart the random generator of this world with the given seed and
+	  * draw the given number of values from it, so it continues where a
+	  * generator with that seed and number of draws left off.
+	  * 
+	  * @post	| new.getSeed() == seed
+	  * @post	| new.getNbRandomDraws() == nbRandomDraws
+	  */
+	 void restoreRandom(long seed, long nbRandomDraws) {
+		 this.setSeed(seed);
+		 for (long draw = 0; draw < nbRandomDraws; draw++)
+			 this.random.nextDouble();
+		 this.nbRandomDraws = nbRandomDraws;
+	 }
+	 
+	 /**
+	  * Return the number of values drawn from the random generator of this
+	  * world since it was last seeded.
+	  */
+	 @Basic
+	 public long getNbRandomDraws() {
+		 return this.nbRandomDraws;
+	 }
+	 
+	 /**
+	  * Draw the next value from the random generator of this world.
+	  * 
+	  * @return	A value in the range [0, 1).
+	  * @post	| new.getNbRandomDraws() == getNbRandomDraws() + 1
+	  */
+	 double nextRandomDouble() {
+		 this.nbRandomDraws++;
+		 return this.random.nextDouble();
+	 }
+	 
+	 /**
+	  * Variable registering the seed of the random generator of this world.
+	  */
+	 private long seed = new Random().nextLong();
+	 
+	 /**
+	  * Variable referencing the random generator of this world.
+	  */
+	 private Random random = new Random(this.seed);
+	 
+	 /**
+	  * Variable registering the number of values drawn from the random generator of this world.
+	  */
+	 private long nbRandomDraws = 0;
+	 
+	/**
+	 * Evolve this world for the given time.
+	 * 
+	 * @param 	dt
+	 * 			The time to evolve this world for.
+	 * @param 	listener
+	 * 			The listener to notify of every collision, may be null.
+	 * @effect	The collisions in this world are resolved in order of time,
+	 * 			each time only recomputing the events of the entities involved.
+	 * 			Collisions at exactly the same time are resolved as one batch.
+	 * 		|	@see implementation
+	 * @effect	The programs of the ships in this world are executed for
+	 * 			the time that is left after the last collision.
+	 * 		|	@see implementation
+	 * @effect	If the given listener is a collision dispatcher, the collisions
+	 * 			are dispatched once this world has evolved.
+	 * 		|	if (listener instanceof CollisionDispatcher)
+	 * 		|	then ((CollisionDispatcher) listener).dispatch()
+	 * @throws 	IllegalArgumentException
+	 * 		|	Double.isNaN(dt) || dt < 0
+	 * @throws	IllegalStateException
+	 * 		|	listener instanceof CollisionDispatcher && ((CollisionDispatcher) listener).isClosed()
+	 */
+	 public void evolve(double dt, CollisionListener listener) throws IllegalArgumentException, IllegalStateException { 	 
 		 if (Double.isNaN(dt) || dt < 0) throw new IllegalArgumentException();
-		 
-		 while (dt > 0) {
-			 double tC = Double.POSITIVE_INFINITY;
-			  Map<Double, Entity[]> collisions = this.getCollisions();
-			  if (!collisions.keySet().isEmpty())
-				  tC = Collections.min(collisions.keySet());
-				  
-			  if (tC < dt) {
-				  advance(tC);
-				  Entity entity = collisions.get(tC)[0];
-				  Entity otherEntity = collisions.get(tC)[1];
-				  
-				  if (otherEntity == null) {
-					  Vector collisionPosition = entity.getCollisionBoundaryPosition();
-					  if (listener != null)
-						  listener.boundaryCollision(entity, collisionPosition.getXComponent(), collisionPosition.getYComponent());
-					  this.boundaryCollision(entity, collisionPosition);
+		 checkListener(listener);
+		 this.evolve(dt, false, 0, Integer.MAX_VALUE, false, listener);
+		 this.publishSnapshot();
+		 dispatch(listener);
+	 }
+	 
+	 /**
+	  * Hand the collisions of the evolve that just ended to the listener of
+	  * the given dispatcher, if the given listener is a dispatcher.
+	  */
+	 private static void dispatch(CollisionListener listener) {
+		 if (listener instanceof CollisionDispatcher)
+			 ((CollisionDispatcher) listener).dispatch();
+	 }
+	 
+	 /**
+	  * Check that the given listener can be handed the collisions of an evolve,
+	  * before this world starts evolving.
+	  * 
+	  * @throws	IllegalStateException
+	  * 		|	listener instanceof CollisionDispatcher && ((CollisionDispatcher) listener).isClosed()
+	  */
+	 private static void checkListener(CollisionListener listener) throws IllegalStateException {
+		 if (listener instanceof CollisionDispatcher && ((CollisionDispatcher) listener).isClosed())
+			 throw new IllegalStateException();
+	 }
+	 
+	/**
+	 * Evolve this world for the given time, stopping between two batches of
+	 * collisions once the given deadline has passed or the given number of
+	 * collisions has been resolved. At least one batch is resolved per call,
+	 * so this world always progresses.
+	 * 
+	 * @param 	dt
+	 * 			The time to evolve this world for.
+	 * @param 	hasDeadline
+	 * 			Whether the given deadline applies.
+	 * @param 	deadlineNanos
+	 * 			The value of System.nanoTime after which no new batch is resolved.
+	 * @param 	maxEvents
+	 * 			The number of collisions after which no new batch is resolved.
+	 * @param 	incremental
+	 * 			Whether the evolve is journaled as an incremental one.
+	 * @param 	listener
+	 * 			The listener to notify of every collision, may be null.
+	 * @return	The time this world was not evolved for, 0 if it was evolved
+	 * 			for the full time. The programs of the ships are only executed
+	 * 			if this world was evolved for the full time.
+	 */
+	 private double evolve(double dt, boolean hasDeadline, long deadlineNanos, int maxEvents, boolean incremental,
+			 CollisionListener listener) {
+		 CollisionEngine engine = this.getCollisionEngine();
+		 EvolveEvent evolveEvent = FlightRecording.isRecording() ? new EvolveEvent() : null;
+		 if (evolveEvent != null)
+			 evolveEvent.begin();
+		 if (this.metrics != null)
+			 this.metrics.startEvolve();
+		 long evolveStart = this.startTiming();
+		 long nbPairsTested = engine.getNbPairsTested();
+		 engine.start(dt);
+		 this.endTiming(WorldMetrics.Phase.COLLISION_SEARCH, evolveStart);
+		 double duration = dt;
+		 int nbEvents = 0;
+		 try {
+			 while (dt > 0) {
+				  double tC = Double.POSITIVE_INFINITY;
+				  CollisionEvent event = engine.peekEvent();
+				  if (event != null)
+					  tC = event.getTime() - engine.getTime();
+					  
+				  if (tC < dt) {
+					  if (nbEvents > 0 && (nbEvents >= maxEvents
+							  || (hasDeadline && System.nanoTime() - deadlineNanos >= 0))) {
+						  this.recordEvolve(incremental, duration, nbEvents);
+						  return dt;
+					  }
+					  List<CollisionEvent> events = engine.pollSimultaneousEvents();
+					  advance(tC);
+					  this.resolveCollisions(events, listener);
+					  nbEvents += events.size();
+					  dt = dt - tC;  
 				  }
 				  
 				  else {
-					  Vector collisionPosition = entity.getCollisionPosition(otherEntity);
-					  if (listener != null)
-						  listener.objectCollision(entity, otherEntity, collisionPosition.getXComponent(), collisionPosition.getYComponent());
-					  entity.objectCollision(otherEntity);
+					  advance(dt);
+					  engine.stop();
+					  this.recordEvolve(incremental, duration, -1);
+					  long programsStart = this.startTiming();
+					  for(Entity ship: this.ships.getSnapshot()) {
+						  if(((Ship) ship).getProgram() != null) {
+							  ((Ship) ship).executeProgram(dt);
+							  if (this.metrics != null)
+								  this.metrics.addProgramExecuted();
+						  }
+					  }
+					  this.endTiming(WorldMetrics.Phase.PROGRAM_EXECUTION, programsStart);
+					  return 0;
 				  }
-				  
-				  dt = dt - tC;  
-			  }
-			  
-			  else {
-				  advance(dt);
-				  for(Ship ship: (Set<Ship>) this.getEntitiesOfType(Ship.class)) {
-					  if(ship.getProgram() != null)
-						  ship.executeProgram(dt);
-				  }
-				  return;
 			  }
+			 this.recordEvolve(incremental, duration, -1);
+			 return 0;
+		 } finally {
+			 engine.stop();
+			 if (this.metrics != null) {
+				 this.metrics.addPairsTested(engine.getNbPairsTested() - nbPairsTested);
+				 this.endTiming(WorldMetrics.Phase.EVOLVE, evolveStart);
+				 this.metrics.endEvolve();
+			 }
+			 if (evolveEvent != null) {
+				 evolveEvent.end();
+				 if (evolveEvent.shouldCommit()) {
+					 evolveEvent.dt = duration;
+					 evolveEvent.nbEntities = this.getNbEntities();
+					 evolveEvent.nbEvents = nbEvents;
+					 evolveEvent.incremental = incremental;
+					 evolveEvent.commit();
+				 }
+			 }
+		 }
+	 }
+	 
+	/**
+	 * Evolve this world for the given time on top of the time it is behind,
+	 * but stop between two batches of collisions once the given wall-clock
+	 * deadline has passed or the given number of collisions has been resolved.
+	 * The time that is not evolved is kept and evolved by later calls, so a
+	 * caller with a frame budget can bound the time one call takes, at the
+	 * cost of the simulation falling behind real time for a while.
+	 * At least one batch of collisions is resolved per call.
+	 * 
+	 * @param 	dt
+	 * 			The real time that passed since the previous call.
+	 * @param 	deadlineNanos
+	 * 			The value of System.nanoTime after which no new batch of
+	 * 			collisions is resolved.
+	 * @param 	maxEvents
+	 * 			The number of collisions after which no new batch is resolved.
+	 * @return	True if and only if this world caught up with real time.
+	 * 		|	result == (new.getLag() == 0)
+	 * @effect	This world is evolved for at most the time it was behind plus
+	 * 			the given time, in the same way as by evolve.
+	 * 		|	@see implementation
+	 * @throws	IllegalArgumentException
+	 * 		|	Double.isNaN(dt) || dt < 0 || Double.isInfinite(dt) || maxEvents <= 0
+	 * @throws	IllegalStateException
+	 * 		|	listener instanceof CollisionDispatcher && ((CollisionDispatcher) listener).isClosed()
+	 */
+	public boolean evolveIncrementally(double dt, long deadlineNanos, int maxEvents, CollisionListener listener)
+			throws IllegalArgumentException, IllegalStateException {
+		if (Double.isNaN(dt) || dt < 0 || Double.isInfinite(dt) || maxEvents <= 0)
+			throw new IllegalArgumentException();
+		checkListener(listener);
+		this.lag = this.evolve(this.lag + dt, true, deadlineNanos, maxEvents, true, listener);
+		this.publishSnapshot();
+		dispatch(listener);
+		return this.lag == 0;
+	}
+	
+	/**
+	 * Replay an incremental evolve of this world for the given time, including
+	 * the time this world is behind, that resolved the given number of collisions.
+	 * 
+	 * @param 	dt
+	 * 			The time this world was evolved for, including its lag.
+	 * @param 	nbEvents
+	 * 			The number of collisions the evolve resolved before it stopped,
+	 * 			negative if it evolved this world for the full time.
+	 * @param 	listener
+	 * 			The listener to notify of every collision, may be null.
+	 */
+	void replayIncrementalEvolve(double dt, int nbEvents, CollisionListener listener) {
+		int maxEvents = (nbEvents < 0) ? Integer.MAX_VALUE : nbEvents;
+		this.lag = this.evolve(dt, false, 0, maxEvents, true, listener);
+		this.publishSnapshot();
+	}
+	
+	/**
+	 * Return the time this world is behind real time, the time passed to
+	 * evolveIncrementally that was not evolved yet.
+	 */
+	@Basic
+	public double getLag() {
+		return this.lag;
+	}
+	
+	/**
+	 * Variable registering the time this world is behind real time.
+	 */
+	private double lag = 0;
+	 
+	/**
+	 * Check whether this world publishes a snapshot of its entities at the
+	 * end of each evolve.
+	 */
+	@Basic
+	public boolean publishesSnapshots() {
+		return this.publishesSnapshots;
+	}
+	
+	/**
+	 * Set whether this world publishes a snapshot of its entities at the end
+	 * of each evolve. A snapshot of the current state is published right away
+	 * when publishing is switched on.
+	 * 
+	 * @param 	publishesSnapshots
+	 * 			Whether this world publishes snapshots.
+	 * @post	| new.publishesSnapshots() == publishesSnapshots
+	 * @post	| if (! publishesSnapshots)
+	 * 		|	then new.getPublishedSnapshot() == null
+	 */
+	public void setPublishesSnapshots(boolean publishesSnapshots) {
+		this.publishesSnapshots = publishesSnapshots;
+		this.publishedSnapshot = null;
+		this.publishSnapshot();
+	}
+	
+	/**
+	 * Return the last snapshot this world published, null if it does not
+	 * publish snapshots. Unlike the other inspectors of this world, this one
+	 * may be called by any thread while this world evolves: it returns the
+	 * state of this world at the end of its last complete evolve.
+	 */
+	public WorldSnapshot getPublishedSnapshot() {
+		return this.publishedSnapshot;
+	}
+	
+	/**
+	 * Publish a snapshot of the current state of this world, if it publishes snapshots.
+	 */
+	private void publishSnapshot() {
+		if (this.publishesSnapshots())
+			this.publishedSnapshot = new WorldSnapshot(this);
+	}
+	
+	/**
+	 * Variable registering whether this world publishes snapshots.
+	 */
+	private boolean publishesSnapshots = false;
+	
+	/**
+	 * Variable referencing the last snapshot this world published. The
+	 * reference is volatile, so a reader always sees a complete snapshot.
+	 */
+	private volatile WorldSnapshot publishedSnapshot = null;
+	
+	/**
+	 * Return the journal recording the commands and collisions of this world,
+	 * null if they are not recorded.
+	 */
+	@Basic
+	WorldJournal getJournal() {
+		return this.journal;
+	}
+	
+	/**
+	 * Set the journal recording the commands and collisions of this world to
+	 * the given journal.
+	 * 
+	 * @post	| new.getJournal() == journal
+	 */
+	void setJournal(WorldJournal journal) {
+		this.journal = journal;
+	}
+	
+	/**
+	 * Record an evolve of this world for the given time in its journal, if any.
+	 */
+	private void recordEvolve(boolean incremental, double dt, int nbEvents) {
+		if (this.journal != null)
+			this.journal.recordEvolve(incremental, dt, nbEvents);
+	}
+	
+	/**
+	 * Variable referencing the journal of this world.
+	 */
+	private WorldJournal journal = null;
+	
+	/**
+	 * Check whether this world records metrics of its evolves.
+	 */
+	public boolean recordsMetrics() {
+		return this.metrics != null;
+	}
+	
+	/**
+	 * Set whether this world records metrics of its evolves. Switching
+	 * recording on starts from empty metrics.
+	 * 
+	 * @param 	recordsMetrics
+	 * 			Whether this world records metrics.
+	 * @post	| new.recordsMetrics() == recordsMetrics
+	 * @post	| if (! recordsMetrics)
+	 * 		|	then new.getMetrics() == null
+	 */
+	public void setRecordsMetrics(boolean recordsMetrics) {
+		if (! recordsMetrics)
+			this.metrics = null;
+		else if (this.metrics == null)
+			this.metrics = new WorldMetrics();
+	}
+	
+	/**
+	 * Return the metrics of the evolves of this world, null if it does not
+	 * record metrics.
+	 */
+	@Basic
+	public WorldMetrics getMetrics() {
+		return this.metrics;
+	}
+	
+	/**
+	 * Return the value of System.nanoTime if this world records metrics, 0 otherwise.
+	 */
+	private long startTiming() {
+		return (this.metrics != null) ? System.nanoTime() : 0;
+	}
+	
+	/**
+	 * Add the time since the given value of System.nanoTime to the given
+	 * phase of the current evolve, if this world records metrics.
+	 */
+	private void endTiming(WorldMetrics.Phase phase, long startNanos) {
+		if (this.metrics != null)
+			this.metrics.addTime(phase, startNanos);
+	}
+	
+	/**
+	 * Variable referencing the metrics of this world, null if it does not record metrics.
+	 */
+	private WorldMetrics metrics = null;
+	
+	/**
+	 * Return the simulation time of this world, the total time it has evolved for.
+	 */
+	@Basic
+	public double getSimulationTime() {
+		return this.simulationTime;
+	}
+	
+	/**
+	 * Variable registering the simulation time of this world.
+	 */
+	private double simulationTime = 0;
+	
+	/**
+	 * Set the simulation time, the pending time and the lag of this world to
+	 * the given times, to restore them from a checkpoint.
+	 * 
+	 * @post	| new.getSimulationTime() == simulationTime
+	 * @post	| new.getPendingTime() == pendingTime
+	 * @post	| new.getLag() == lag
+	 */
+	void restoreTimes(double simulationTime, double pendingTime, double lag) {
+		this.simulationTime = simulationTime;
+		this.pendingTime = pendingTime;
+		this.lag = lag;
+	}
+	
+	/**
+	 * Return the fixed time step of this world, 0 if this world evolves in
+	 * steps of any length.
+	 */
+	@Basic
+	public double getFixedTimeStep() {
+		return this.fixedTimeStep;
+	}
+	
+	/**
+	 * Set the fixed time step of this world to the given time step.
+	 * 
+	 * @param 	fixedTimeStep
+	 * 			The new fixed time step, 0 to evolve in steps of any length.
+	 * @post	| new.getFixedTimeStep() == fixedTimeStep
+	 * @post	| new.getPendingTime() == 0
+	 * @throws	IllegalArgumentException
+	 * 		|	! (fixedTimeStep >= 0) || Double.isInfinite(fixedTimeStep)
+	 */
+	public void setFixedTimeStep(double fixedTimeStep) throws IllegalArgumentException {
+		if (! (fixedTimeStep >= 0) || Double.isInfinite(fixedTimeStep))
+			throw new IllegalArgumentException();
+		this.fixedTimeStep = fixedTimeStep;
+		this.pendingTime = 0;
+	}
+	
+	/**
+	 * Variable registering the fixed time step of this world.
+	 */
+	private double fixedTimeStep = 0;
+	
+	/**
+	 * Return the time that was passed to evolveInFixedSteps but is shorter
+	 * than a fixed time step, and so was not evolved yet.
+	 */
+	@Basic
+	public double getPendingTime() {
+		return this.pendingTime;
+	}
+	
+	/**
+	 * Variable registering the time that is not evolved yet.
+	 */
+	private double pendingTime = 0;
+	
+	/**
+	 * Evolve this world for the given time in steps of the fixed time step of
+	 * this world. The time left over that is shorter than a step is kept and
+	 * evolved by a later call, so the steps do not depend on how the time is
+	 * split over the calls.
+	 * 
+	 * @param 	dt
+	 * 			The time to evolve this world for.
+	 * @param 	listener
+	 * 			The listener to notify of every collision, may be null.
+	 * @return	The number of steps this world was evolved for.
+	 * 		|	@see implementation
+	 * @throws	IllegalArgumentException
+	 * 		|	Double.isNaN(dt) || dt < 0 || getFixedTimeStep() == 0
+	 * @throws	IllegalStateException
+	 * 		|	listener instanceof CollisionDispatcher && ((CollisionDispatcher) listener).isClosed()
+	 */
+	public int evolveInFixedSteps(double dt, CollisionListener listener)
+			throws IllegalArgumentException, IllegalStateException {
+		if (Double.isNaN(dt) || dt < 0 || this.getFixedTimeStep() == 0)
+			throw new IllegalArgumentException();
+		checkListener(listener);
+		this.pendingTime += dt;
+		int nbSteps = 0;
+		while (this.pendingTime >= this.getFixedTimeStep()) {
+			this.evolve(this.getFixedTimeStep(), listener);
+			this.pendingTime -= this.getFixedTimeStep();
+			nbSteps++;
+		}
+		return nbSteps;
+	}
+	 
+	/**
+	 * Resolve the given collision events, which all happen now, and recompute
+	 * the events of the entities involved once all of them are resolved.
+	 * 
+	 * The events are resolved in the given order. An event is skipped if one
+	 * of its entities left this world. An event whose entities were already
+	 * involved in an earlier event of the batch is only resolved if it still
+	 * applies: a collision between entities if they still touch and move
+	 * towards each other, never a collision with the boundary. The skipped events of
+	 * entities that are still in this world are predicted again.
+	 * 
+	 * @param 	events
+	 * 			The events to resolve.
+	 * @param 	listener
+	 * 			The listener to notify of the collisions, may be null.
+	 * 		|	@see implementation
+	 */
+	 private void resolveCollisions(List<CollisionEvent> events, CollisionListener listener) {
+		 long start = this.startTiming();
+		 this.nbChangedEntities = 0;
+		 for (int i = 0; i < events.size(); i++) {
+			 CollisionEvent event = events.get(i);
+			 Entity entity = event.getEntity();
+			 Entity otherEntity = event.getOther();
+			 if (entity.getWorld() != this || (otherEntity != null && otherEntity.getWorld() != this))
+				 continue;
+			 if (this.isChangedEntity(entity) || (otherEntity != null && this.isChangedEntity(otherEntity))) {
+				 if (otherEntity == null || ! isColliding(entity, otherEntity))
+					 continue;
+			 }
+			 this.resolveCollision(event, listener);
+			 this.addChangedEntity(entity);
+			 if (otherEntity != null)
+				 this.addChangedEntity(otherEntity);
+		 }
+		 this.nbMoves++;
+		 this.endTiming(WorldMetrics.Phase.RESOLUTION, start);
+		 this.updateCollisions();
+	 }
+	 
+	 /**
+	  * Check whether the given entities touch and move towards each other.
+	  */
+	 private static boolean isColliding(Entity entity, Entity other) {
+		 if (entity.overlap(other))
+			 return false;
+		 return entity.getDistanceBetween(other) <= 0.01 * (entity.getRadius() + other.getRadius())
+				 && entity.getTimeToCollision(other) != Double.POSITIVE_INFINITY;
+	 }
+	 
+	 /**
+	  * Check whether the given entity is one of the entities that changed during
+	  * the current advance or batch of collisions.
+	  */
+	 private boolean isChangedEntity(Entity entity) {
+		 for (int i = 0; i < this.nbChangedEntities; i++)
+			 if (this.changedEntities[i] == entity)
+				 return true;
+		 return false;
+	 }
+	 
+	/**
+	 * Resolve the given collision event.
+	 * 
+	 * @param 	event
+	 * 			The event to resolve.
+	 * @param 	listener
+	 * 			The listener to notify of the collision, may be null.
+	 * 		|	@see implementation
+	 */
+	 private void resolveCollision(CollisionEvent event, CollisionListener listener) {
+		  Entity entity = event.getEntity();
+		  Entity otherEntity = event.getOther();
+		  if (this.metrics != null)
+			  this.metrics.addCollision(getCollisionKind(entity, otherEntity));
+		  // The types are taken before the collision, which may terminate the entities.
+		  CollisionResolutionEvent resolution = FlightRecording.isRecording() ? new CollisionResolutionEvent() : null;
+		  if (resolution != null) {
+			  resolution.entityType = WorldSnapshot.EntityType.of(entity).name();
+			  resolution.otherType = (otherEntity == null) ? "BOUNDARY" : WorldSnapshot.EntityType.of(otherEntity).name();
+			  resolution.resolution = getCollisionKind(entity, otherEntity).name();
+			  resolution.begin();
+		  }
+		  
+		  if (otherEntity == null) {
+			  entity.getCollisionBoundaryPosition(this.collisionPosition);
+			  double x = this.collisionPosition[0];
+			  double y = this.collisionPosition[1];
+			  if (listener != null)
+				  listener.boundaryCollision(entity, x, y);
+			  if (this.journal != null)
+				  this.journal.recordCollision(entity, null, x, y);
+			  this.boundaryCollision(entity, x, y);
+		  }
+		  
+		  else {
+			  entity.getCollisionPosition(otherEntity, this.collisionPosition);
+			  double x = this.collisionPosition[0];
+			  double y = this.collisionPosition[1];
+			  if (listener != null)
+				  listener.objectCollision(entity, otherEntity, x, y);
+			  if (this.journal != null)
+				  this.journal.recordCollision(entity, otherEntity, x, y);
+			  entity.objectCollision(otherEntity);
+		  }
+		  if (resolution != null) {
+			  resolution.end();
+			  if (resolution.shouldCommit())
+				  resolution.commit();
 		  }
 	 }
 	 
+	 /**
+	  * Variable referencing the array the position of a collision is stored
+	  * in while it is resolved.
+	  */
+	 private final double[] collisionPosition = new double[2];
+	 
+	 /**
+	  * Return the kind of the collision of the given entity with the given
+	  * other entity, or with the boundary if the other entity is null.
+	  */
+	 private static WorldMetrics.CollisionKind getCollisionKind(Entity entity, Entity other) {
+		 if (other == null)
+			 return WorldMetrics.CollisionKind.BOUNDARY;
+		 if ((entity instanceof Bullet && ((Bullet) entity).getSourceShip() == other)
+				 || (other instanceof Bullet && ((Bullet) other).getSourceShip() == entity))
+			 return WorldMetrics.CollisionKind.BULLET_RELOAD;
+		 return WorldMetrics.CollisionKind.ENTITY;
+	 }
+	 
 	/**
 	 * Advance all the entities in this world by a given time dt.
 	 * 
@@ -347,58 +1157,215 @@ public class World {
 	 * @post	All the entities are moved and the 
 	 * 			the ships are thrusted if their thruster is on.
 	 * 		|	@see implementation
+	 * @effect	The clock of the collision engine is advanced and the events of the
+	 * 			entities whose trajectory changed while moving are recomputed.
+	 * 		|	@see implementation
 	 */
 	 private void advance(double dt) {
+		 if (dt < 0)
+			 return;
 		 
-		 Map<Vector, Entity> newEntities  = new HashMap<>();
-		 for (Iterator<Entity> i = entities.values().iterator(); i.hasNext();) {
-			    Entity entity = i.next();
-			    try {
-					entity.move(dt);
-				} catch (IllegalArgumentException e) {
-					return;
-				}
-			    
-			    if (entity instanceof Ship && ((Ship) entity).getThrusterState()) {
-			    	((Ship) entity).thrust(dt);
-			    }
-			    
-			    newEntities.put(entity.getPosition(), entity); 	    
+		 long start = this.startTiming();
+		 if (this.metrics != null)
+			 this.metrics.addEntitiesAdvanced(this.entities.size());
+		 this.nbChangedEntities = 0;
+		 // Planetoids shrink with the distance they travel, computed before they move.
+		 for (Entity planetoid: this.planetoids.getSnapshot()) {
+			 ((Planetoid) planetoid).travel(dt);
+			 this.addChangedEntity(planetoid);
 		 }
-		 this.entities = newEntities;
+		 
+		 entities.move(dt, this.getForkJoinPool());
+		 this.simulationTime += dt;
+		 
+		 int firstThrustingShip = this.nbChangedEntities;
+		 for (Entity ship: this.ships.getSnapshot())
+			 if (((Ship) ship).getThrusterState())
+				 this.addChangedEntity(ship);
+		 this.thrust(this.changedEntities, firstThrustingShip, this.nbChangedEntities, dt);
+		 this.nbMoves++;
+		 
+		 this.getCollisionEngine().advanceClock(dt);
+		 this.endTiming(WorldMetrics.Phase.ADVANCE, start);
+		 if (dt > 0 && this.nbChangedEntities > 0)
+			 this.updateCollisions();
 	 }
 	 
-	/**
-	 * Return a map containing all the collisions that will occur in this world.
-	 * 
-	 * @return 	The hashmap containing all the collisions that will occur in this world.
-	 * 		| 	result == collisions
-	 */
-	 private Map<Double, Entity[]> getCollisions() { 
-		  Map<Double, Entity[]> collisions = new HashMap<>();
-		  double time;
-		  
-		  for (Iterator<Entity> i = entities.values().iterator(); i.hasNext();) {
-			    Entity entity = i.next();
-			    
-			    for (Iterator<Entity> j = entities.values().iterator(); j.hasNext();) { 
-			    	Entity otherEntity = j.next();
-			    	
-			    	if ((otherEntity != null) && !(entity.overlap(otherEntity)))
-			    		time = entity.getTimeToCollision(otherEntity);
-			    	else
-			    		time = Double.POSITIVE_INFINITY;
-					
-			    	if	(time != Double.POSITIVE_INFINITY && collisions.get(time) == null)
-			    		collisions.put(time, new Entity[] {entity, otherEntity});
-			    }
-			    
-				time = entity.getTimeToCollisionBoundary();	 
-				 
-				if (time != Double.POSITIVE_INFINITY && collisions.get(time) == null)
-					collisions.put(time, new Entity[] {entity, null});		     	 			    	    	
-		  }
-		  return collisions; 
+	 /**
+	  * Recompute the events of the entities whose trajectory changed during the
+	  * current advance or batch of collisions.
+	  */
+	 private void updateCollisions() {
+		 long start = this.startTiming();
+		 this.getCollisionEngine().update(this.changedEntities, this.nbChangedEntities);
+		 this.endTiming(WorldMetrics.Phase.COLLISION_SEARCH, start);
+	 }
+	 
+	 /**
+	  * Thrust the ships in the given range of the given array during the given time,
+	  * in the pool of this world if there are enough of them.
+	  */
+	 private void thrust(Entity[] ships, int from, int to, double dt) {
+		 if (this.getForkJoinPool() == null || to - from <= PARALLEL_THRUST_GRAIN) {
+			 for (int i = from; i < to; i++)
+				 ((Ship) ships[i]).thrust(dt);
+			 return;
+		 }
+		 ParallelRange.run(this.getForkJoinPool(), to - from, PARALLEL_THRUST_GRAIN, (first, last) -> {
+			 for (int i = first; i < last; i++)
+				 ((Ship) ships[from + i]).thrust(dt);
+		 });
+	 }
+	 
+	 /**
+	  * Add the given entity to the entities whose trajectory changed during the current advance.
+	  */
+	 private void addChangedEntity(Entity entity) {
+		 if (this.nbChangedEntities == this.changedEntities.length)
+			 this.changedEntities = Arrays.copyOf(this.changedEntities, 2 * this.changedEntities.length);
+		 this.changedEntities[this.nbChangedEntities++] = entity;
+	 }
+	 
+	 /**
+	  * Variables referencing the entities whose trajectory changed during the current
+	  * advance or batch of collisions, and registering their number. The array is
+	  * reused by every advance and batch.
+	  */
+	 private Entity[] changedEntities = new Entity[16];
+	 
+	 private int nbChangedEntities = 0;
+	 
+	 /**
+	  * Return the collision engine of this world.
+	  */
+	 @Basic @Immutable
+	 CollisionEngine getCollisionEngine() {
+		 return this.collisionEngine;
+	 }
+	 
+	 /**
+	  * Variable referencing the collision engine of this world.
+	  */
+	 private final CollisionEngine collisionEngine = new CollisionEngine(this);
+	 
+	 /**
+	  * Constant registering the number of ships thrusted by a single task in a pool.
+	  */
+	 private static final int PARALLEL_THRUST_GRAIN = 1024;
+	 
+	 /**
+	  * Return the pool this world uses to evolve in parallel, null if this
+	  * world evolves in the calling thread.
+	  */
+	 @Basic
+	 public ForkJoinPool getForkJoinPool() {
+		 return this.forkJoinPool;
+	 }
+	 
+	 /**
+	  * Set the pool this world uses to evolve in parallel to the given pool.
+	  * Moving the entities and predicting their collisions is then split over
+	  * the pool. The results are the same as those of an evolve in the calling
+	  * thread, bit for bit.
+	  * 
+	  * @param 	forkJoinPool
+	  * 		The new pool, null to evolve in the calling thread.
+	  * @post	| new.getForkJoinPool() == forkJoinPool
+	  * @throws	IllegalStateException
+	  * 		The collision engine of this world is evolving the world.
+	  * 	|	getCollisionEngine().isActive()
+	  */
+	 public void setForkJoinPool(ForkJoinPool forkJoinPool) throws IllegalStateException {
+		 if (this.getCollisionEngine().isActive())
+			 throw new IllegalStateException();
+		 this.forkJoinPool = forkJoinPool;
+	 }
+	 
+	 /**
+	  * Variable referencing the pool this world uses to evolve in parallel.
+	  */
+	 private ForkJoinPool forkJoinPool = null;
+	 
+	 /**
+	  * Return the broad phase this world uses to select the pairs of entities
+	  * that may collide during an evolve, null if every pair is checked.
+	  */
+	 @Basic
+	 public BroadPhase getBroadPhase() {
+		 return this.broadPhase;
+	 }
+	 
+	 /**
+	  * Set the broad phase of this world to the given broad phase.
+	  * The given broad phase starts tracking the entities of this world.
+	  * 
+	  * @param 	broadPhase
+	  * 		The new broad phase, null to check every pair of entities.
+	  * @post	| new.getBroadPhase() == broadPhase
+	  * @throws	IllegalStateException
+	  * 		The collision engine of this world is evolving the world.
+	  * 	|	getCollisionEngine().isActive()
+	  */
+	 public void setBroadPhase(BroadPhase broadPhase) throws IllegalStateException {
+		 if (this.getCollisionEngine().isActive())
+			 throw new IllegalStateException();
+		 if (broadPhase != null)
+			 broadPhase.build(this.entities, 0);
+		 this.broadPhase = broadPhase;
+	 }
+	 
+	 /**
+	  * Variable referencing the broad phase of this world.
+	  * By default a uniform grid whose cell size follows the entities in this world.
+	  * 
+	  * @invar	Between two collisions the broad phase tracks every entity of this
+	  * 		world, with bounds that contain the current position of that entity.
+	  */
+	 private BroadPhase broadPhase = new UniformGrid();
+	 
+	 /**
+	  * Return an entity of this world, other than the given entity, that overlaps
+	  * with the given entity.
+	  * 
+	  * @param 	entity
+	  * 		The entity to find an overlapping entity for.
+	  * @return	Null if no entity of this world overlaps with the given entity.
+	  * 	 | 	@see implementation
+	  * @throws	IllegalArgumentException
+	  * 	 |	entity == null
+	  */
+	 public Entity getEntityOverlapping(Entity entity) throws IllegalArgumentException {
+		 if (entity == null)
+			 throw new IllegalArgumentException();
+		 if (this.getBroadPhase() == null) {
+			 for (Entity other: this.entities)
+				 if (other != entity && entity.overlap(other))
+					 return other;
+			 return null;
+		 }
+		 double x = entity.getPosition().getXComponent();
+		 double y = entity.getPosition().getYComponent();
+		 double radius = entity.getRadius();
+		 Entity[] overlapping = new Entity[1];
+		 this.getBroadPhase().forEachEntityIn(x - radius, y - radius, x + radius, y + radius, other -> {
+			 if (overlapping[0] == null && other != entity && entity.overlap(other))
+				 overlapping[0] = other;
+		 });
+		 return overlapping[0];
+	 }
+	 
+	 /**
+	  * Return the next collision event in this world, or null if no collision
+	  * will occur.
+	  * 
+	  * @return	The earliest predicted collision event.
+	  * 	 | 	@see implementation
+	  */
+	 private CollisionEvent getNextCollision() {
+		 CollisionEngine engine = this.getCollisionEngine();
+		 if (engine.isActive())
+			 return engine.peekEvent();
+		 return engine.findNextEvent();
 	 }
 	 
 	 /**
@@ -408,28 +1375,30 @@ public class World {
 	  * 	 | 	@see implementation
 	  */
 	 public double getTimeNextCollision() {
-		 Map<Double, Entity[]> collisions = this.getCollisions();
-		 return Collections.min(collisions.keySet());  
+		 CollisionEvent event = this.getNextCollision();
+		 if (event == null)
+			 return Double.POSITIVE_INFINITY;
+		 return event.getTime() - this.getCollisionEngine().getTime();  
 	 }
 	 
 	 /**
 	  * Return the position of the next collision in this world.
 	  * 
 	  * @return 
-	  * 		| if (collidingEntities[1] == null)
-	  * 		| 	return collidingEntities[0].getCollisionBoundaryPosition()
+	  * 		| if (event.getOther() == null)
+	  * 		| 	return event.getEntity().getCollisionBoundaryPosition()
 	  * @return 
-	  * 		| if(!collidingEntities[1] == null)
-	  * 		|   return collidingEntities[0].getCollisionPosition(collidingEntities[1])
+	  * 		| if(!event.getOther() == null)
+	  * 		|   return event.getEntity().getCollisionPosition(event.getOther())
 	  */
 	 public Vector getPositionNextCollision() { 
-		  Map<Double, Entity[]> collisions = this.getCollisions();
-		  double time = Collections.min(collisions.keySet()); 
-		  Entity[] collidingEntities = collisions.get(time);
-		  if (collidingEntities[1] == null)
-			  return  collidingEntities[0].getCollisionBoundaryPosition();
+		  CollisionEvent event = this.getNextCollision();
+		  if (event == null)
+			  return null;
+		  if (event.getOther() == null)
+			  return  event.getEntity().getCollisionBoundaryPosition();
 		  else
-			  return collidingEntities[0].getCollisionPosition(collidingEntities[1]);
+			  return event.getEntity().getCollisionPosition(event.getOther());
 	 }
 	 
 	/**
@@ -437,17 +1406,19 @@ public class World {
 	  * 
 	  * @param 	entity
 	  * 	   	The entity that will collide with the boundary.
-	  * @param 	collisionPosition
-	  * 	   	The position were the entity will collide with the boundary.
+	  * @param 	x
+	  * 	   	The x coordinate of the position were the entity will collide with the boundary.
+	  * @param 	y
+	  * 	   	The y coordinate of the position were the entity will collide with the boundary.
 	  * @post 	If entity is a bullet and bullet.getCollisionCounter >= 2,
 	  * 	  	entity will be terminated.
 	  * 	| 	if (((Bullet)entity).getCollisionCounter() >= 2) {
 					entity.terminate();
 	  * @post 	The entity will bounce off the boundary.
-	  * 	|	bounceOffBoundary(entity, collisionPosition)
+	  * 	|	bounceOffBoundary(entity, x, y)
 	  * 
 	  */
-	void boundaryCollision(Entity entity, Vector collisionPosition) {
+	void boundaryCollision(Entity entity, double x, double y) {
 		 if (entity instanceof Bullet) {
 			 if (((Bullet)entity).getCollisionCounter() >= 2) {
 				 entity.terminate();
@@ -456,7 +1427,7 @@ public class World {
 			((Bullet)entity).incrementCollisionCounter();
 		 }
 		 
-		 bounceOffBoundary(entity, collisionPosition);
+		 bounceOffBoundary(entity, x, y);
 	}
 	
 	/**
@@ -464,25 +1435,27 @@ public class World {
 	 * 
 	 * @param 	entity
 	 * 		  	The entity that will bounce off a boundary in this world.
-	 * @param 	collisionPosition
-	 * 		 	The position in this world were the entity will bounce off the boundary.
+	 * @param 	x
+	 * 		 	The x coordinate of the position in this world were the entity will bounce off the boundary.
+	 * @param 	y
+	 * 		 	The y coordinate of the position in this world were the entity will bounce off the boundary.
 	 * @post 	The entity will bounce off the boundary, it's velocity will be changed according
 	 * 		 	to the boundary it collides with.
 	 * 	   	| 	@see implementation
 	 * 
 	 */
-	private void bounceOffBoundary(Entity entity, Vector collisionPosition) {
-		if (collisionPosition.getXComponent() == 0){
-			entity.setVelocity(new Vector(entity.getVelocity().getXComponent() * -1, entity.getVelocity().getYComponent()));
+	private void bounceOffBoundary(Entity entity, double x, double y) {
+		if (x == 0){
+			entity.setVelocity(entity.getXVelocity() * -1, entity.getYVelocity());
 		}
-		 else if (collisionPosition.getXComponent() == (entity.getWorld().getSize().getXComponent())){
-			 entity.setVelocity(new Vector(entity.getVelocity().getXComponent() * -1, entity.getVelocity().getYComponent()));
+		 else if (x == (entity.getWorld().getSize().getXComponent())){
+			 entity.setVelocity(entity.getXVelocity() * -1, entity.getYVelocity());
 		 }
-		 if (collisionPosition.getYComponent() == 0){
-			 entity.setVelocity(new Vector(entity.getVelocity().getXComponent(), entity.getVelocity().getYComponent() * -1));
+		 if (y == 0){
+			 entity.setVelocity(entity.getXVelocity(), entity.getYVelocity() * -1);
 		 }
-		 else if (collisionPosition.getYComponent() == (entity.getWorld().getSize().getYComponent())){
-			 entity.setVelocity(new Vector(entity.getVelocity().getXComponent(), entity.getVelocity().getYComponent() * -1));
+		 else if (y == (entity.getWorld().getSize().getYComponent())){
+			 entity.setVelocity(entity.getXVelocity(), entity.getYVelocity() * -1);
 		 }
 	}
 	
@@ -493,24 +1466,54 @@ public class World {
 	 * 		  	The type of entity.
 	 * @param 	ship
 	 * 		  	The ship.
-	 * @return 	The entity of type that is closest to ship.
+	 * @return 	The entity of type, other than ship, that is closest to ship.
 	 * 		| 	@see implementation
 	 * 			
 	 */
+	@SuppressWarnings("unchecked")
 	public <T extends Entity> T getClosestEntityOfType(Class type, Ship ship) {
-	 	T closestEntity = null;
-	 	double minDistance = Double.POSITIVE_INFINITY;
-	 	for (T entity: (Set<T>) this.getEntitiesOfType(type)) {
-	 		double distance = entity.getPosition().getDistanceBetween(ship.getPosition());
-	 		if (distance < minDistance && ship != entity) {
-				minDistance = distance;
-	 			closestEntity = entity;
-			}
+		KdTree index = this.nearestEntityIndices.get(type);
+		if (index == null) {
+			List<Entity> entitiesOfType = new ArrayList<>();
+			for (Entity entity: this.entities)
+				if (type.isInstance(entity))
+					entitiesOfType.add(entity);
+			index = new KdTree(entitiesOfType);
+			index.stamp = this.nbMoves;
+			this.nearestEntityIndices.put(type, index);
 		}
-
-		return closestEntity;
+		else if (index.stamp != this.nbMoves) {
+			index.refit();
+			index.stamp = this.nbMoves;
+		}
+		return (T) index.getNearest(ship.getPosition(), ship);
 	}
 	
+	/**
+	 * Drop the nearest entity indices of this world over a type of the given
+	 * entity, because that entity was added or removed. The other indices are
+	 * kept, and the dropped ones are rebuilt when queried.
+	 * 
+	 * @param	entity
+	 * 			The entity that was added or removed.
+	 */
+	private void invalidateNearestEntityIndices(Entity entity) {
+		this.nearestEntityIndices.keySet().removeIf(type -> type.isInstance(entity));
+	}
+	
+	/**
+	 * Variable referencing a map of types of entities to a 2-d tree over the
+	 * entities of that type in this world, built by getClosestEntityOfType.
+	 */
+	private final Map<Class<?>, KdTree> nearestEntityIndices = new HashMap<>();
+	
+	/**
+	 * Variable registering the number of times the entities of this world
+	 * have moved, by an advance or by resolving collisions. A nearest entity
+	 * index is refitted once, when it is first queried after a move.
+	 */
+	private long nbMoves = 0;
+	
 	/**
 	 * Return a bullet that was fired by the executing ship 
 	 * and is not terminated yet. 
@@ -526,7 +1529,7 @@ public class World {
 	 * 		| 	result == null
 	 */
 	public Entity getBulletFromShip(Ship executingShip) {
-		for (Bullet bullet: (Set<Bullet>) this.getEntitiesOfType(Bullet.class))
+		for (Bullet bullet: this.getBullets())
 			if (bullet.getSourceShip() == executingShip)
 				return bullet;
 		return null;
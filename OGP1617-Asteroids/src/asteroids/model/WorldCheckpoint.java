@@ -0,0 +1,530 @@
+package asteroids.model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import asteroids.part3.programs.SourceLocation;
+import asteroids.part3.programs.internal.ParseOutcome;
+import asteroids.part3.programs.internal.ProgramParser;
+import asteroids.programs.ProgramFactory;
+
+/**
+ * A class of binary checkpoints of worlds, written and read through
+ * memory-mapped files.
+ *
+ * A checkpoint starts with a header holding the size of the world, the state
+ * of its random generator and its clock, followed by one record of a fixed
+ * size per entity. The records of the entities in the world come first, in
+ * the order of the entity store of the world, followed by the records of the
+ * bullets loaded in ships. Entities refer to each other by record index.
+ * All values are little-endian.
+ *
+ * The records are followed by the programs of the ships, each with the text
+ * it was parsed from and the state of its execution: its time left, the
+ * location it is suspended at, its global variables and what it printed.
+ * Values are saved by type, entities by record index. A program is parsed
+ * again when it is restored, so programs that were not parsed from a text
+ * are not saved, and an entity that is not in the checkpoint is restored
+ * as null. Checkpoints of the first version have no programs.
+ *
+ * A checkpoint is restored without checking the positions of the entities
+ * against each other, since they were valid when they were saved, and all
+ * entities are added to the restored world at once.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+public final class WorldCheckpoint {
+
+	/**
+	 * Prevent the creation of checkpoint objects, checkpoints are files.
+	 */
+	private WorldCheckpoint() {
+	}
+
+	/**
+	 * Write a checkpoint of the given world to the file at the given path,
+	 * replacing its content.
+	 *
+	 * @param 	world
+	 * 			The world to save.
+	 * @param 	path
+	 * 			The path of the file to write the checkpoint to.
+	 * @throws	IllegalArgumentException
+	 * 		|	world == null || world.isTerminated() || path == null
+	 * @throws	IllegalArgumentException
+	 * 			A program of a ship in the given world holds a value that is
+	 * 			not a number, a boolean or an entity.
+	 * @throws	IOException
+	 * 			The file could not be written.
+	 */
+	public static void save(World world, Path path) throws IllegalArgumentException, IOException {
+		if (world == null || world.isTerminated() || path == null)
+			throw new IllegalArgumentException();
+		EntityStore store = world.getEntityStore();
+		int nbEntities = store.size();
+		int nbRecords = nbEntities;
+		List<Ship> programmed = new ArrayList<>();
+		Map<Entity, Integer> loadedBullets = new IdentityHashMap<>();
+		for (int slot = 0; slot < nbEntities; slot++) {
+			if (store.get(slot) instanceof Ship) {
+				Ship ship = (Ship) store.get(slot);
+				if (ship.getProgram() != null && ship.getProgram().getSource() != null)
+					programmed.add(ship);
+				nbRecords += ship.getNbBullets();
+			}
+		}
+		if (! programmed.isEmpty()) {
+			int next = nbEntities;
+			for (int slot = 0; slot < nbEntities; slot++)
+				if (store.get(slot) instanceof Ship)
+					for (Bullet bullet: ((Ship) store.get(slot)).getBullets())
+						loadedBullets.put(bullet, next++);
+		}
+		ByteBuffer programs = writePrograms(programmed, store, loadedBullets);
+		long size = HEADER_SIZE + (long) nbRecords * RECORD_SIZE + programs.remaining();
+		if (size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException();
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putDouble(world.getSize().getXComponent());
+			buffer.putDouble(world.getSize().getYComponent());
+			buffer.putLong(world.getSeed());
+			buffer.putLong(world.getNbRandomDraws());
+			buffer.putDouble(world.getSimulationTime());
+			buffer.putDouble(world.getFixedTimeStep());
+			buffer.putDouble(world.getPendingTime());
+			buffer.putDouble(world.getLag());
+			buffer.putInt(nbEntities);
+			buffer.putInt(nbRecords);
+
+			int next = nbEntities;
+			for (int slot = 0; slot < nbEntities; slot++) {
+				Entity entity = store.get(slot);
+				writeRecord(buffer, slot, entity, -1, store);
+				if (entity instanceof Ship)
+					for (Bullet bullet: ((Ship) entity).getBullets())
+						writeRecord(buffer, next++, bullet, slot, store);
+			}
+			buffer.position(HEADER_SIZE + nbRecords * RECORD_SIZE);
+			buffer.put(programs);
+			buffer.force();
+		}
+	}
+
+	/**
+	 * Read the world saved in the checkpoint at the given path.
+	 *
+	 * @param 	path
+	 * 			The path of the file to read the checkpoint from.
+	 * @return	A new world with the size, entities, programs, random generator
+	 * 			and clock of the saved world.
+	 * @throws	IllegalArgumentException
+	 * 		|	path == null
+	 * @throws	IOException
+	 * 			The file could not be read or does not hold a valid checkpoint.
+	 */
+	public static World load(Path path) throws IllegalArgumentException, IOException {
+		if (path == null)
+			throw new IllegalArgumentException();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE)
+				throw new IOException("Not a world checkpoint");
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("Not a world checkpoint");
+			int version = buffer.getInt();
+			if (version != 1 && version != VERSION)
+				throw new IOException("Unsupported world checkpoint version");
+			try {
+				return readWorld(buffer, size, version);
+			} catch (IllegalArgumentException | ClassCastException | IndexOutOfBoundsException
+					| BufferUnderflowException exc) {
+				throw new IOException("Corrupt world checkpoint", exc);
+			}
+		}
+	}
+
+	/**
+	 * Read the world from the given buffer of a checkpoint of the given version,
+	 * positioned right after the version.
+	 */
+	private static World readWorld(MappedByteBuffer buffer, long size, int version) throws IOException {
+		World world = new World(new Size(buffer.getDouble(), buffer.getDouble()));
+		long seed = buffer.getLong();
+		long nbRandomDraws = buffer.getLong();
+		double simulationTime = buffer.getDouble();
+		world.setFixedTimeStep(buffer.getDouble());
+		double pendingTime = buffer.getDouble();
+		double lag = buffer.getDouble();
+		int nbEntities = buffer.getInt();
+		int nbRecords = buffer.getInt();
+		long recordsEnd = HEADER_SIZE + (long) nbRecords * RECORD_SIZE;
+		if (nbEntities < 0 || nbRecords < nbEntities || size < recordsEnd || (version == 1 && size != recordsEnd))
+			throw new IOException("Corrupt world checkpoint");
+		world.restoreRandom(seed, nbRandomDraws);
+		world.restoreTimes(simulationTime, pendingTime, lag);
+
+		Entity[] entities = new Entity[nbRecords];
+		for (int index = 0; index < nbRecords; index++)
+			entities[index] = readEntity(buffer, index);
+		for (int index = 0; index < nbRecords; index++) {
+			int offset = HEADER_SIZE + index * RECORD_SIZE;
+			int source = buffer.getInt(offset + SOURCE_OFFSET);
+			if (source >= 0)
+				((Bullet) entities[index]).setSourceShip((Ship) entities[source]);
+		}
+		for (int index = nbEntities; index < nbRecords; index++) {
+			Ship ship = (Ship) entities[buffer.getInt(HEADER_SIZE + index * RECORD_SIZE + SHIP_OFFSET)];
+			Bullet bullet = (Bullet) entities[index];
+			// Loaded bullets do not follow their ship, so they are loaded at its centre.
+			Vector position = bullet.getPosition();
+			bullet.setPosition(ship.getPosition());
+			ship.loadBullet(bullet);
+			bullet.setPosition(position);
+		}
+		for (int index = 0; index < nbEntities; index++)
+			if (entities[index] instanceof Ship)
+				((Ship) entities[index]).setTotalMass(buffer.getDouble(HEADER_SIZE + index * RECORD_SIZE + EXTRA_OFFSET + 8));
+		world.addRestoredEntities(entities, nbEntities);
+		if (version > 1) {
+			buffer.position((int) recordsEnd);
+			readPrograms(buffer, entities);
+			if (buffer.hasRemaining())
+				throw new IOException("Corrupt world checkpoint");
+		}
+		return world;
+	}
+
+	/**
+	 * Return a buffer holding the section of a checkpoint with the programs of
+	 * the given ships, ready to be read.
+	 */
+	private static ByteBuffer writePrograms(List<Ship> ships, EntityStore store, Map<Entity, Integer> loadedBullets)
+			throws IllegalArgumentException {
+		ByteBuffer buffer = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(ships.size());
+		for (Ship ship: ships) {
+			Program program = ship.getProgram();
+			SourceLocation goal = program.getGoalLocation();
+			List<Object> printed = program.getPrinted();
+			byte flags = 0;
+			if (program.isExecuted())
+				flags |= EXECUTED;
+			if (program.isFirstExecution())
+				flags |= FIRST_EXECUTION;
+			if (goal != null)
+				flags |= SUSPENDED;
+			if (printed != null)
+				flags |= PRINTING;
+			buffer = reserve(buffer, 33);
+			buffer.putInt(ship.storeSlot);
+			buffer.put(flags);
+			buffer.putDouble(program.getTime());
+			buffer.putInt((goal == null) ? 0 : goal.getLine());
+			buffer.putInt((goal == null) ? 0 : goal.getColumn());
+			buffer.putInt(program.getWhileDepth());
+			buffer.putInt(program.getGlobalVariables().size());
+			buffer.putInt((printed == null) ? 0 : printed.size());
+			buffer = putString(buffer, program.getSource());
+			for (Map.Entry<String, Object> variable: program.getGlobalVariables().entrySet()) {
+				buffer = putString(buffer, variable.getKey());
+				buffer = putValue(buffer, variable.getValue(), store, loadedBullets);
+			}
+			if (printed != null)
+				for (Object value: printed)
+					buffer = putValue(buffer, value, store, loadedBullets);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Read the programs of the ships among the given entities from the given
+	 * buffer, positioned at the start of the section with the programs.
+	 */
+	private static void readPrograms(ByteBuffer buffer, Entity[] entities) throws IOException {
+		int nbPrograms = buffer.getInt();
+		if (nbPrograms < 0)
+			throw new IOException("Corrupt world checkpoint");
+		if (nbPrograms == 0)
+			return;
+		ProgramParser<?, ?, ?, Program> parser = ProgramParser.create(new ProgramFactory());
+		for (int i = 0; i < nbPrograms; i++) {
+			Ship ship = (Ship) entities[buffer.getInt()];
+			byte flags = buffer.get();
+			double time = buffer.getDouble();
+			int goalLine = buffer.getInt();
+			int goalColumn = buffer.getInt();
+			int whileDepth = buffer.getInt();
+			int nbVariables = buffer.getInt();
+			int nbPrinted = buffer.getInt();
+			ParseOutcome<Program> outcome = parser.parseString(getString(buffer));
+			if (! outcome.isSuccess() || whileDepth < 0 || nbVariables < 0 || nbPrinted < 0)
+				throw new IOException("Corrupt world checkpoint");
+			Program program = outcome.getSuccessValue();
+			program.setExecutingShip(ship);
+			program.addTime(time);
+			program.setIsExecuted((flags & EXECUTED) != 0);
+			program.setFirstExecution((flags & FIRST_EXECUTION) != 0);
+			if ((flags & SUSPENDED) != 0)
+				program.setGoalLocation(new SourceLocation(goalLine, goalColumn));
+			for (int depth = 0; depth < whileDepth; depth++)
+				program.setInWhile();
+			for (int variable = 0; variable < nbVariables; variable++) {
+				String name = getString(buffer);
+				Object value = getValue(buffer, entities);
+				if (value != null)
+					program.addGlobalVariable(name, value);
+			}
+			List<Object> printed = null;
+			if ((flags & PRINTING) != 0) {
+				printed = new ArrayList<>(nbPrinted);
+				for (int index = 0; index < nbPrinted; index++)
+					printed.add(getValue(buffer, entities));
+			}
+			program.setPrinted(printed);
+			ship.loadProgram(program);
+		}
+	}
+
+	/**
+	 * Return the given buffer, or a copy of it with more capacity if it has
+	 * less than the given number of bytes remaining.
+	 */
+	private static ByteBuffer reserve(ByteBuffer buffer, int nbBytes) {
+		if (buffer.remaining() >= nbBytes)
+			return buffer;
+		ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + nbBytes));
+		grown.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.flip();
+		return grown.put(buffer);
+	}
+
+	/**
+	 * Append the given string to the given buffer as its length in bytes followed
+	 * by its UTF-8 encoding, and return the buffer it was appended to.
+	 */
+	private static ByteBuffer putString(ByteBuffer buffer, String string) {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		buffer = reserve(buffer, 4 + bytes.length);
+		buffer.putInt(bytes.length);
+		return buffer.put(bytes);
+	}
+
+	/**
+	 * Read a string appended by putString from the given buffer.
+	 */
+	private static String getString(ByteBuffer buffer) throws IOException {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining())
+			throw new IOException("Corrupt world checkpoint");
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Append the given value of a program to the given buffer as its type
+	 * followed by its value, and return the buffer it was appended to.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			The given value is not null, a number, a boolean or an entity.
+	 */
+	private static ByteBuffer putValue(ByteBuffer buffer, Object value, EntityStore store,
+			Map<Entity, Integer> loadedBullets) throws IllegalArgumentException {
+		buffer = reserve(buffer, 9);
+		if (value instanceof Double)
+			buffer.put(NUMBER).putDouble((Double) value);
+		else if (value instanceof Boolean)
+			buffer.put(BOOLEAN).put((byte) (((Boolean) value) ? 1 : 0));
+		else if (value instanceof Entity) {
+			Entity entity = (Entity) value;
+			Integer index = store.contains(entity) ? Integer.valueOf(entity.storeSlot) : loadedBullets.get(entity);
+			buffer.put(ENTITY).putInt((index == null) ? -1 : index);
+		}
+		else if (value == null)
+			buffer.put(NULL);
+		else
+			throw new IllegalArgumentException();
+		return buffer;
+	}
+
+	/**
+	 * Read a value appended by putValue from the given buffer.
+	 */
+	private static Object getValue(ByteBuffer buffer, Entity[] entities) throws IOException {
+		switch (buffer.get()) {
+			case NULL:
+				return null;
+			case NUMBER:
+				return buffer.getDouble();
+			case BOOLEAN:
+				return buffer.get() != 0;
+			case ENTITY:
+				int index = buffer.getInt();
+				return (index < 0) ? null : entities[index];
+			default:
+				throw new IOException("Corrupt world checkpoint");
+		}
+	}
+
+	/**
+	 * Write the record of the given entity at the given index.
+	 */
+	private static void writeRecord(MappedByteBuffer buffer, int index, Entity entity, int ship, EntityStore store) {
+		int offset = HEADER_SIZE + index * RECORD_SIZE;
+		byte flags = 0;
+		int source = -1;
+		double first = 0;
+		double second = 0;
+		if (entity instanceof Ship) {
+			flags = ((Ship) entity).getThrusterState() ? THRUSTING : 0;
+			first = ((Ship) entity).getOrientation();
+			second = ((Ship) entity).getTotalMass();
+		}
+		else if (entity instanceof Bullet) {
+			Ship sourceShip = ((Bullet) entity).getSourceShip();
+			if (sourceShip != null && store.contains(sourceShip))
+				source = sourceShip.storeSlot;
+			first = ((Bullet) entity).getCollisionCounter();
+		}
+		else if (entity instanceof Planetoid) {
+			first = ((Planetoid) entity).getTotalDistanceTraveled();
+		}
+		buffer.put(offset, (byte) WorldSnapshot.EntityType.of(entity).ordinal());
+		buffer.put(offset + 1, flags);
+		buffer.putInt(offset + SHIP_OFFSET, ship);
+		buffer.putInt(offset + SOURCE_OFFSET, source);
+		int values = offset + VALUES_OFFSET;
+		buffer.putDouble(values, entity.getXPosition());
+		buffer.putDouble(values + 8, entity.getYPosition());
+		buffer.putDouble(values + 16, entity.getXVelocity());
+		buffer.putDouble(values + 24, entity.getYVelocity());
+		buffer.putDouble(values + 32, entity.getRadius());
+		buffer.putDouble(values + 40, entity.getMass());
+		buffer.putDouble(values + 48, entity.getDensity());
+		buffer.putDouble(offset + EXTRA_OFFSET, first);
+		buffer.putDouble(offset + EXTRA_OFFSET + 8, second);
+	}
+
+	/**
+	 * Create the entity of the record at the given index, without its
+	 * references to other entities.
+	 */
+	private static Entity readEntity(MappedByteBuffer buffer, int index) throws IOException {
+		int offset = HEADER_SIZE + index * RECORD_SIZE;
+		int values = offset + VALUES_OFFSET;
+		Vector position = new Vector(buffer.getDouble(values), buffer.getDouble(values + 8));
+		Vector velocity = new Vector(buffer.getDouble(values + 16), buffer.getDouble(values + 24));
+		double radius = buffer.getDouble(values + 32);
+		double mass = buffer.getDouble(values + 40);
+		double density = buffer.getDouble(values + 48);
+		double first = buffer.getDouble(offset + EXTRA_OFFSET);
+		Entity entity;
+		switch (buffer.get(offset)) {
+			case 0:
+				Ship ship = new Ship(position, velocity, radius, first, mass);
+				if ((buffer.get(offset + 1) & THRUSTING) != 0)
+					ship.thrustOn();
+				entity = ship;
+				break;
+			case 1:
+				Bullet bullet = new Bullet(position, velocity, radius);
+				bullet.setCollisionCounter(first);
+				entity = bullet;
+				break;
+			case 2:
+				entity = new Asteroid(position, velocity, radius);
+				break;
+			case 3:
+				Planetoid planetoid = new Planetoid(position, velocity, radius, 0);
+				planetoid.setTotalDistanceTraveled(first);
+				entity = planetoid;
+				break;
+			default:
+				throw new IOException("Corrupt world checkpoint");
+		}
+		entity.setDensity(density);
+		entity.restoreMass(mass);
+		return entity;
+	}
+
+	/**
+	 * Constant registering the first four bytes of every checkpoint, "ASTC".
+	 */
+	private static final int MAGIC = 0x43545341;
+
+	/**
+	 * Constant registering the version of the checkpoint format.
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * Constant registering the number of bytes of the header of a checkpoint.
+	 */
+	private static final int HEADER_SIZE = 80;
+
+	/**
+	 * Constants registering the number of bytes of the record of an entity and
+	 * the offsets of its fields: the type and flags, the index of the ship the
+	 * bullet is loaded in and of its source ship, the position, velocity,
+	 * radius, mass and density, and two values that depend on the type.
+	 */
+	private static final int RECORD_SIZE = 88;
+
+	private static final int SHIP_OFFSET = 4;
+
+	private static final int SOURCE_OFFSET = 8;
+
+	private static final int VALUES_OFFSET = 16;
+
+	private static final int EXTRA_OFFSET = 72;
+
+	/**
+	 * Constant registering the flag of ships with their thruster on.
+	 */
+	private static final byte THRUSTING = 1;
+
+	/**
+	 * Constants registering the flags of programs that were executed completely,
+	 * that were not started yet, that are suspended at their goal location and
+	 * that keep what they printed.
+	 */
+	private static final byte EXECUTED = 1;
+
+	private static final byte FIRST_EXECUTION = 2;
+
+	private static final byte SUSPENDED = 4;
+
+	private static final byte PRINTING = 8;
+
+	/**
+	 * Constants registering the types of the values of programs.
+	 */
+	private static final byte NULL = 0;
+
+	private static final byte NUMBER = 1;
+
+	private static final byte BOOLEAN = 2;
+
+	private static final byte ENTITY = 3;
+}
@@ -0,0 +1,397 @@
+package asteroids.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of append-only journals recording the commands given to the ships
+ * of a world, its evolves and the collisions they resolve, so a run of the
+ * world can be replayed from a checkpoint.
+ *
+ * A journal is started together with a checkpoint of its world, and starts
+ * with the identifiers of the entities of the world in the order of the
+ * checkpoint. Every turn, thrust and fire of a ship in the world, every
+ * evolve and every resolved collision is appended as a binary record.
+ * Commands issued by the programs of ships are recorded like any other.
+ * Entities that are added to or removed from the world directly are not.
+ *
+ * The thread evolving the world only appends the records to a buffer in
+ * memory. Full buffers, and at the end of an evolve the buffer of the last
+ * flush interval, are handed to a background thread that writes them to the
+ * file in batches. The evolving thread never waits for the file.
+ * All values are little-endian.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+public final class WorldJournal implements Closeable {
+
+	/**
+	 * Save a checkpoint of the given world to the first given path and start
+	 * journaling the world to the second given path, replacing their content.
+	 *
+	 * @param 	world
+	 * 			The world to journal.
+	 * @param 	checkpointPath
+	 * 			The path of the file to write the checkpoint to.
+	 * @param 	journalPath
+	 * 			The path of the file to write the journal to.
+	 * @return	A new journal of the given world.
+	 * 		|	result.getWorld() == world && world.getJournal() == result
+	 * @throws	IllegalArgumentException
+	 * 		|	world == null || world.isTerminated() || checkpointPath == null || journalPath == null
+	 * @throws	IllegalStateException
+	 * 		|	world.getJournal() != null
+	 * @throws	IOException
+	 * 			The checkpoint or the journal could not be written.
+	 */
+	public static WorldJournal start(World world, Path checkpointPath, Path journalPath)
+			throws IllegalArgumentException, IllegalStateException, IOException {
+		if (world == null || world.isTerminated() || checkpointPath == null || journalPath == null)
+			throw new IllegalArgumentException();
+		if (world.getJournal() != null)
+			throw new IllegalStateException();
+		WorldCheckpoint.save(world, checkpointPath);
+		FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			EntityStore store = world.getEntityStore();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 8 * store.size()).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(store.size());
+			for (int slot = 0; slot < store.size(); slot++)
+				header.putLong(store.get(slot).getIdentifier());
+			header.flip();
+			while (header.hasRemaining())
+				channel.write(header);
+		} catch (IOException exc) {
+			channel.close();
+			throw exc;
+		}
+		WorldJournal journal = new WorldJournal(world, channel);
+		world.setJournal(journal);
+		return journal;
+	}
+
+	/**
+	 * Initialize this new journal of the given world, writing to the given channel.
+	 */
+	private WorldJournal(World world, FileChannel channel) {
+		this.world = world;
+		this.channel = channel;
+		this.buffer = newBuffer();
+		this.lastHandOff = System.nanoTime();
+		this.writer = new Thread(this::write, "world-journal-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Return the world of this journal.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Variable referencing the world of this journal.
+	 */
+	private final World world;
+
+	/**
+	 * Return the number of records appended to this journal.
+	 */
+	@Basic
+	public long getNbRecords() {
+		return this.nbRecords;
+	}
+
+	/**
+	 * Variable registering the number of records appended to this journal.
+	 */
+	private long nbRecords = 0;
+
+	/**
+	 * Check whether this journal is closed.
+	 */
+	@Basic
+	public boolean isClosed() {
+		return this.isClosed;
+	}
+
+	/**
+	 * Variable registering whether this journal is closed.
+	 */
+	private boolean isClosed = false;
+
+	/**
+	 * Stop journaling the world of this journal, write all records that are
+	 * left to the file and close it. Must be called by the thread evolving
+	 * the world.
+	 *
+	 * @post	| new.isClosed() && getWorld().getJournal() == null
+	 * @throws	IOException
+	 * 			A record could not be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.isClosed())
+			return;
+		this.isClosed = true;
+		if (this.world.getJournal() == this)
+			this.world.setJournal(null);
+		this.handOff();
+		this.filled.add(END);
+		try {
+			this.writer.join();
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		}
+		this.channel.close();
+		if (this.failure != null)
+			throw this.failure;
+	}
+
+	/**
+	 * Record that the given ship turned over the given angle.
+	 */
+	void recordTurn(Ship ship, double angle) {
+		ByteBuffer buffer = this.reserve(17);
+		buffer.put(TURN);
+		buffer.putLong(ship.getIdentifier());
+		buffer.putDouble(angle);
+	}
+
+	/**
+	 * Record that the thruster of the given ship was switched on or off.
+	 */
+	void recordThrust(Ship ship, boolean on) {
+		ByteBuffer buffer = this.reserve(9);
+		buffer.put(on ? THRUST_ON : THRUST_OFF);
+		buffer.putLong(ship.getIdentifier());
+	}
+
+	/**
+	 * Record that the given ship fired a bullet.
+	 */
+	void recordFire(Ship ship) {
+		ByteBuffer buffer = this.reserve(9);
+		buffer.put(FIRE);
+		buffer.putLong(ship.getIdentifier());
+	}
+
+	/**
+	 * Record that the world was evolved for the given time, and hand the
+	 * records of the last flush interval to the writer.
+	 *
+	 * @param 	incremental
+	 * 			Whether the world was evolved incrementally.
+	 * @param 	dt
+	 * 			The time the world was evolved for, including its lag if
+	 * 			it was evolved incrementally.
+	 * @param 	nbEvents
+	 * 			The number of collisions resolved before the evolve stopped,
+	 * 			negative if the world was evolved for the full time.
+	 */
+	void recordEvolve(boolean incremental, double dt, int nbEvents) {
+		if (incremental) {
+			ByteBuffer buffer = this.reserve(13);
+			buffer.put(EVOLVE_INCREMENTALLY);
+			buffer.putDouble(dt);
+			buffer.putInt(nbEvents);
+		}
+		else {
+			ByteBuffer buffer = this.reserve(9);
+			buffer.put(EVOLVE);
+			buffer.putDouble(dt);
+		}
+		if (System.nanoTime() - this.lastHandOff >= FLUSH_INTERVAL_NANOS)
+			this.handOff();
+	}
+
+	/**
+	 * Record a collision of the given entity with the given other entity, or
+	 * with the boundary if the other entity is null, at the given position.
+	 */
+	void recordCollision(Entity entity, Entity other, double x, double y) {
+		if (other == null) {
+			ByteBuffer buffer = this.reserve(25);
+			buffer.put(BOUNDARY_COLLISION);
+			buffer.putLong(entity.getIdentifier());
+			buffer.putDouble(x);
+			buffer.putDouble(y);
+		}
+		else {
+			ByteBuffer buffer = this.reserve(33);
+			buffer.put(OBJECT_COLLISION);
+			buffer.putLong(entity.getIdentifier());
+			buffer.putLong(other.getIdentifier());
+			buffer.putDouble(x);
+			buffer.putDouble(y);
+		}
+	}
+
+	/**
+	 * Return the buffer to append a record of the given number of bytes to,
+	 * handing the current buffer to the writer if the record does not fit.
+	 */
+	private ByteBuffer reserve(int size) {
+		if (this.buffer.remaining() < size)
+			this.handOff();
+		this.nbRecords++;
+		return this.buffer;
+	}
+
+	/**
+	 * Hand the current buffer to the writer, if it holds any records, and
+	 * continue in a free buffer or a new one if there is none.
+	 */
+	private void handOff() {
+		this.lastHandOff = System.nanoTime();
+		if (this.buffer.position() == 0)
+			return;
+		if (this.failure != null) {
+			// The file cannot be written anymore, the records are dropped.
+			this.buffer.clear();
+			return;
+		}
+		this.buffer.flip();
+		this.filled.add(this.buffer);
+		ByteBuffer free = this.free.poll();
+		this.buffer = (free != null) ? free : newBuffer();
+	}
+
+	/**
+	 * Write the buffers handed to the writer to the file in batches, until
+	 * this journal is closed.
+	 */
+	private void write() {
+		List<ByteBuffer> batch = new ArrayList<>();
+		try {
+			while (true) {
+				batch.add(this.filled.take());
+				this.filled.drainTo(batch);
+				boolean isLast = batch.get(batch.size() - 1) == END;
+				if (isLast)
+					batch.remove(batch.size() - 1);
+				ByteBuffer[] buffers = batch.toArray(new ByteBuffer[batch.size()]);
+				long remaining = 0;
+				for (ByteBuffer each: buffers)
+					remaining += each.remaining();
+				while (remaining > 0)
+					remaining -= this.channel.write(buffers);
+				this.channel.force(false);
+				for (ByteBuffer each: buffers)
+					this.free.offer(each.clear());
+				batch.clear();
+				if (isLast)
+					return;
+			}
+		} catch (IOException exc) {
+			this.failure = exc;
+		} catch (InterruptedException exc) {
+			this.failure = new IOException(exc);
+		}
+	}
+
+	/**
+	 * Return a new buffer for records.
+	 */
+	private static ByteBuffer newBuffer() {
+		return ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Variable referencing the channel of the file of this journal.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * Variable referencing the buffer the records are appended to.
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * Variable registering the value of System.nanoTime when a buffer was
+	 * last handed to the writer.
+	 */
+	private long lastHandOff;
+
+	/**
+	 * Variables referencing the buffers handed to the writer and the buffers
+	 * the writer is done with.
+	 */
+	private final BlockingQueue<ByteBuffer> filled = new LinkedBlockingQueue<>();
+
+	private final BlockingQueue<ByteBuffer> free = new LinkedBlockingQueue<>();
+
+	/**
+	 * Variable referencing the thread writing the buffers to the file.
+	 */
+	private final Thread writer;
+
+	/**
+	 * Variable referencing the exception the writer failed with, if any.
+	 */
+	private volatile IOException failure = null;
+
+	/**
+	 * Constant referencing the buffer that tells the writer to stop.
+	 */
+	private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+	/**
+	 * Constant registering the number of bytes of a buffer for records.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Constant registering the time in nanoseconds after which the records
+	 * are handed to the writer at the end of an evolve.
+	 */
+	private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+	/**
+	 * Constants registering the first four bytes of every journal, "ASTJ",
+	 * the version of the format and the number of bytes of the header
+	 * before the identifiers of the entities.
+	 */
+	static final int MAGIC = 0x4A545341;
+
+	static final int VERSION = 1;
+
+	static final int HEADER_SIZE = 12;
+
+	/**
+	 * Constants registering the kinds of records.
+	 */
+	static final byte TURN = 1;
+
+	static final byte THRUST_ON = 2;
+
+	static final byte THRUST_OFF = 3;
+
+	static final byte FIRE = 4;
+
+	static final byte EVOLVE = 5;
+
+	static final byte EVOLVE_INCREMENTALLY = 6;
+
+	static final byte BOUNDARY_COLLISION = 7;
+
+	static final byte OBJECT_COLLISION = 8;
+}
@@ -0,0 +1,438 @@
+package asteroids.model;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of metrics of the evolves of a world: counters of the work done
+ * and histograms of the time spent in every phase of an evolve.
+ *
+ * Every evolve adds one sample per phase to the histogram of that phase,
+ * the time spent in that phase during the evolve. The histograms have
+ * fixed buckets: a sample of t nanoseconds falls in bucket
+ * floor(log2(t)) + 1, so bucket b holds the samples from 2^(b-1) up to
+ * 2^b nanoseconds and the last bucket everything longer. Recording never
+ * allocates.
+ *
+ * If the JVM measures the memory allocated by each thread, the bytes the
+ * evolving thread allocates during every evolve are counted as well. That
+ * count includes whatever the listeners and programs called during the
+ * evolve allocate.
+ *
+ * The metrics are recorded by the thread evolving the world. Snapshots
+ * must be taken by that thread as well, or while the world is not evolving.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+public final class WorldMetrics {
+
+	/**
+	 * An enumeration of the phases of an evolve that are timed.
+	 * EVOLVE covers the whole evolve and the other phases are part of it.
+	 */
+	public static enum Phase {
+		EVOLVE, COLLISION_SEARCH, ADVANCE, RESOLUTION, PROGRAM_EXECUTION
+	}
+
+	/**
+	 * An enumeration of the kinds of resolved collisions: between two
+	 * entities, with the boundary of the world, and of a bullet with the
+	 * ship that fired it, which reloads the bullet.
+	 */
+	public static enum CollisionKind {
+		ENTITY, BOUNDARY, BULLET_RELOAD
+	}
+
+	/**
+	 * Initialize these new metrics with all counters and histograms empty.
+	 */
+	WorldMetrics() {
+	}
+
+	/**
+	 * Record that the given number of pairs of entities were tested for a collision.
+	 */
+	void addPairsTested(long nbPairs) {
+		this.nbPairsTested += nbPairs;
+	}
+
+	/**
+	 * Record that a collision of the given kind was resolved.
+	 */
+	void addCollision(CollisionKind kind) {
+		this.nbCollisions[kind.ordinal()]++;
+	}
+
+	/**
+	 * Record that the given number of entities were advanced.
+	 */
+	void addEntitiesAdvanced(long nbEntities) {
+		this.nbEntitiesAdvanced += nbEntities;
+	}
+
+	/**
+	 * Record that the program of a ship was executed.
+	 */
+	void addProgramExecuted() {
+		this.nbProgramsExecuted++;
+	}
+
+	/**
+	 * Start a new evolve, measuring the memory the current thread allocates
+	 * from now on if the JVM supports that.
+	 */
+	void startEvolve() {
+		this.allocatedBytesAtStart = getAllocatedBytes();
+	}
+
+	/**
+	 * Add the time since the given value of System.nanoTime to the time
+	 * spent in the given phase during the current evolve.
+	 */
+	void addTime(Phase phase, long startNanos) {
+		this.currentNanos[phase.ordinal()] += System.nanoTime() - startNanos;
+	}
+
+	/**
+	 * Record the time spent in every phase during the current evolve as a
+	 * sample of its histogram, and start a new evolve.
+	 */
+	void endEvolve() {
+		for (int phase = 0; phase < NB_PHASES; phase++) {
+			long nanos = this.currentNanos[phase];
+			this.buckets[phase * NB_BUCKETS + getBucket(nanos)]++;
+			this.totalNanos[phase] += nanos;
+			if (nanos > this.maxNanos[phase])
+				this.maxNanos[phase] = nanos;
+			this.currentNanos[phase] = 0;
+		}
+		if (this.allocatedBytesAtStart >= 0) {
+			long allocatedBytes = getAllocatedBytes() - this.allocatedBytesAtStart;
+			this.allocatedBytes += allocatedBytes;
+			if (allocatedBytes > this.maxAllocatedBytes)
+				this.maxAllocatedBytes = allocatedBytes;
+			this.allocatedBytesAtStart = -1;
+		}
+		this.nbEvolves++;
+	}
+
+	/**
+	 * Return the number of bytes the current thread allocated since it started,
+	 * -1 if the JVM does not measure that.
+	 */
+	private static long getAllocatedBytes() {
+		if (THREADS == null || ! THREADS.isThreadAllocatedMemoryEnabled())
+			return -1;
+		return THREADS.getCurrentThreadAllocatedBytes();
+	}
+
+	/**
+	 * Return whether the JVM measures the memory allocated by each thread.
+	 */
+	public static boolean measuresAllocations() {
+		return THREADS != null && THREADS.isThreadAllocatedMemoryEnabled();
+	}
+
+	/**
+	 * Constant referencing the bean measuring the memory allocated by each
+	 * thread, null if the JVM does not support that.
+	 */
+	private static final com.sun.management.ThreadMXBean THREADS = loadThreads();
+
+	/**
+	 * Return the bean measuring the memory allocated by each thread, null if
+	 * the JVM does not support that.
+	 */
+	private static com.sun.management.ThreadMXBean loadThreads() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (! (threads instanceof com.sun.management.ThreadMXBean))
+			return null;
+		com.sun.management.ThreadMXBean result = (com.sun.management.ThreadMXBean) threads;
+		return result.isThreadAllocatedMemorySupported() ? result : null;
+	}
+
+	/**
+	 * Return the bucket of a sample of the given number of nanoseconds.
+	 */
+	static int getBucket(long nanos) {
+		return Math.min(64 - Long.numberOfLeadingZeros(Math.max(nanos, 0)), NB_BUCKETS - 1);
+	}
+
+	/**
+	 * Return the largest number of nanoseconds of a sample in the given bucket.
+	 */
+	static long getBucketLimit(int bucket) {
+		return (bucket == NB_BUCKETS - 1) ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+
+	/**
+	 * Reset all counters and histograms of these metrics.
+	 */
+	public void reset() {
+		this.nbEvolves = 0;
+		this.nbPairsTested = 0;
+		this.nbEntitiesAdvanced = 0;
+		this.nbProgramsExecuted = 0;
+		this.allocatedBytes = 0;
+		this.maxAllocatedBytes = 0;
+		Arrays.fill(this.nbCollisions, 0);
+		Arrays.fill(this.currentNanos, 0);
+		Arrays.fill(this.totalNanos, 0);
+		Arrays.fill(this.maxNanos, 0);
+		Arrays.fill(this.buckets, 0);
+	}
+
+	/**
+	 * Return a snapshot of the current values of these metrics.
+	 */
+	public Snapshot getSnapshot() {
+		return new Snapshot(this);
+	}
+
+	/**
+	 * Variables registering the counters of these metrics.
+	 */
+	private long nbEvolves = 0;
+
+	private long nbPairsTested = 0;
+
+	private long nbEntitiesAdvanced = 0;
+
+	private long nbProgramsExecuted = 0;
+
+	private long allocatedBytes = 0;
+
+	private long maxAllocatedBytes = 0;
+
+	private final long[] nbCollisions = new long[CollisionKind.values().length];
+
+	/**
+	 * Variable registering the number of bytes the evolving thread had
+	 * allocated when the current evolve started, -1 if it is not measured.
+	 */
+	private long allocatedBytesAtStart = -1;
+
+	/**
+	 * Variables registering, per phase, the time spent during the current
+	 * evolve, the total and largest time of the recorded evolves and the
+	 * number of samples per bucket, NB_BUCKETS buckets per phase.
+	 */
+	private final long[] currentNanos = new long[NB_PHASES];
+
+	private final long[] totalNanos = new long[NB_PHASES];
+
+	private final long[] maxNanos = new long[NB_PHASES];
+
+	private final long[] buckets = new long[NB_PHASES * NB_BUCKETS];
+
+	/**
+	 * Constant registering the number of phases.
+	 */
+	private static final int NB_PHASES = Phase.values().length;
+
+	/**
+	 * Constant registering the number of buckets of a histogram. The last
+	 * bucket starts at 2^39 nanoseconds, about nine minutes.
+	 */
+	public static final int NB_BUCKETS = 41;
+
+	/**
+	 * A class of immutable snapshots of the metrics of a world.
+	 */
+	public static final class Snapshot {
+
+		/**
+		 * Initialize this new snapshot with the current values of the given metrics.
+		 */
+		private Snapshot(WorldMetrics metrics) {
+			this.nbEvolves = metrics.nbEvolves;
+			this.nbPairsTested = metrics.nbPairsTested;
+			this.nbEntitiesAdvanced = metrics.nbEntitiesAdvanced;
+			this.nbProgramsExecuted = metrics.nbProgramsExecuted;
+			this.allocatedBytes = metrics.allocatedBytes;
+			this.maxAllocatedBytes = metrics.maxAllocatedBytes;
+			this.nbCollisions = metrics.nbCollisions.clone();
+			this.totalNanos = metrics.totalNanos.clone();
+			this.maxNanos = metrics.maxNanos.clone();
+			this.buckets = metrics.buckets.clone();
+		}
+
+		/**
+		 * Return the number of recorded evolves.
+		 */
+		@Basic @Immutable
+		public long getNbEvolves() {
+			return this.nbEvolves;
+		}
+
+		/**
+		 * Return the number of pairs of entities tested for a collision.
+		 */
+		@Basic @Immutable
+		public long getNbPairsTested() {
+			return this.nbPairsTested;
+		}
+
+		/**
+		 * Return the number of resolved collisions of the given kind.
+		 */
+		@Basic @Immutable
+		public long getNbCollisions(CollisionKind kind) {
+			return this.nbCollisions[kind.ordinal()];
+		}
+
+		/**
+		 * Return the number of times an entity was advanced.
+		 */
+		@Basic @Immutable
+		public long getNbEntitiesAdvanced() {
+			return this.nbEntitiesAdvanced;
+		}
+
+		/**
+		 * Return the number of times the program of a ship was executed.
+		 */
+		@Basic @Immutable
+		public long getNbProgramsExecuted() {
+			return this.nbProgramsExecuted;
+		}
+
+		/**
+		 * Return the number of bytes allocated by the evolving thread during
+		 * the recorded evolves, 0 if the JVM does not measure that.
+		 */
+		@Basic @Immutable
+		public long getAllocatedBytes() {
+			return this.allocatedBytes;
+		}
+
+		/**
+		 * Return the largest number of bytes allocated by the evolving thread
+		 * during one evolve, 0 if the JVM does not measure that.
+		 */
+		@Basic @Immutable
+		public long getMaxAllocatedBytes() {
+			return this.maxAllocatedBytes;
+		}
+
+		/**
+		 * Return the total time in nanoseconds spent in the given phase.
+		 */
+		@Basic @Immutable
+		public long getTotalNanos(Phase phase) {
+			return this.totalNanos[phase.ordinal()];
+		}
+
+		/**
+		 * Return the largest time in nanoseconds spent in the given phase during one evolve.
+		 */
+		@Basic @Immutable
+		public long getMaxNanos(Phase phase) {
+			return this.maxNanos[phase.ordinal()];
+		}
+
+		/**
+		 * Return the number of samples of the given phase in the given bucket.
+		 *
+		 * @throws	IllegalArgumentException
+		 * 		|	bucket < 0 || bucket >= NB_BUCKETS
+		 */
+		public long getNbSamples(Phase phase, int bucket) throws IllegalArgumentException {
+			if (bucket < 0 || bucket >= NB_BUCKETS)
+				throw new IllegalArgumentException();
+			return this.buckets[phase.ordinal() * NB_BUCKETS + bucket];
+		}
+
+		/**
+		 * Return an upper bound on the given percentile of the time in
+		 * nanoseconds spent in the given phase during one evolve.
+		 *
+		 * @param 	percentile
+		 * 			The percentile, between 0 and 100.
+		 * @return	Zero if no evolve is recorded, otherwise the smallest of
+		 * 			the largest time of the given phase and the limit of the
+		 * 			first bucket up to which at least the given percentage of
+		 * 			the samples fall.
+		 * 		|	@see implementation
+		 * @throws	IllegalArgumentException
+		 * 		|	! (percentile >= 0 && percentile <= 100)
+		 */
+		public long getPercentileNanos(Phase phase, double percentile) throws IllegalArgumentException {
+			if (! (percentile >= 0 && percentile <= 100))
+				throw new IllegalArgumentException();
+			if (this.getNbEvolves() == 0)
+				return 0;
+			double rank = Math.ceil(percentile / 100 * this.getNbEvolves());
+			long count = 0;
+			for (int bucket = 0; bucket < NB_BUCKETS; bucket++) {
+				count += this.getNbSamples(phase, bucket);
+				if (count >= rank && count > 0)
+					return Math.min(getBucketLimit(bucket), this.getMaxNanos(phase));
+			}
+			return this.getMaxNanos(phase);
+		}
+
+		/**
+		 * Return these metrics as text, one metric per line, as a name and a
+		 * value separated by a space.
+		 */
+		public String export() {
+			StringBuilder result = new StringBuilder();
+			append(result, "evolves", this.getNbEvolves());
+			append(result, "pairs_tested", this.getNbPairsTested());
+			for (CollisionKind kind: CollisionKind.values())
+				append(result, "collisions." + kind.name().toLowerCase(), this.getNbCollisions(kind));
+			append(result, "entities_advanced", this.getNbEntitiesAdvanced());
+			append(result, "programs_executed", this.getNbProgramsExecuted());
+			append(result, "allocated_bytes", this.getAllocatedBytes());
+			append(result, "max_allocated_bytes", this.getMaxAllocatedBytes());
+			for (Phase phase: Phase.values()) {
+				String name = "phase." + phase.name().toLowerCase();
+				append(result, name + ".total_nanos", this.getTotalNanos(phase));
+				append(result, name + ".p50_nanos", this.getPercentileNanos(phase, 50));
+				append(result, name + ".p99_nanos", this.getPercentileNanos(phase, 99));
+				append(result, name + ".max_nanos", this.getMaxNanos(phase));
+			}
+			return result.toString();
+		}
+
+		/**
+		 * Append a line with the given name and value to the given builder.
+		 */
+		private static void append(StringBuilder builder, String name, long value) {
+			builder.append(name).append(' ').append(value).append('\n');
+		}
+
+		@Override
+		public String toString() {
+			return this.export();
+		}
+
+		/**
+		 * Variables registering the values of this snapshot.
+		 */
+		private final long nbEvolves;
+
+		private final long nbPairsTested;
+
+		private final long nbEntitiesAdvanced;
+
+		private final long nbProgramsExecuted;
+
+		private final long allocatedBytes;
+
+		private final long maxAllocatedBytes;
+
+		private final long[] nbCollisions;
+
+		private final long[] totalNanos;
+
+		private final long[] maxNanos;
+
+		private final long[] buckets;
+	}
+}
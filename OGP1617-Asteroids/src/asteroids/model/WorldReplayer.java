@@ -0,0 +1,241 @@
+package asteroids.model;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+import asteroids.part2.CollisionListener;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of replayers that rebuild a run of a world from the checkpoint and
+ * the journal written by a world journal.
+ *
+ * The replayer restores the world from the checkpoint and applies the
+ * recorded commands and evolves in order. The recorded collisions are not
+ * applied, but compared with the collisions the replayed evolves resolve:
+ * a collision of another kind or at another position is counted as a
+ * divergence, as is a command for an entity that is not known.
+ * A journal that ends in the middle of a record, because the run it
+ * recorded was interrupted, is replayed up to its last complete record.
+ *
+ * The commands the programs of ships issued are recorded in the journal,
+ * so the programs restored from the checkpoint are unloaded before the
+ * replay. Otherwise every such command would be given twice.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+public final class WorldReplayer {
+
+	/**
+	 * Initialize this new replayer with the given checkpoint and journal.
+	 *
+	 * @param 	checkpointPath
+	 * 			The path of the checkpoint the journal was started with.
+	 * @param 	journalPath
+	 * 			The path of the journal.
+	 * @throws	IllegalArgumentException
+	 * 		|	checkpointPath == null || journalPath == null
+	 */
+	public WorldReplayer(Path checkpointPath, Path journalPath) throws IllegalArgumentException {
+		if (checkpointPath == null || journalPath == null)
+			throw new IllegalArgumentException();
+		this.checkpointPath = checkpointPath;
+		this.journalPath = journalPath;
+	}
+
+	/**
+	 * Variables referencing the paths of the checkpoint and the journal of this replayer.
+	 */
+	private final Path checkpointPath;
+
+	private final Path journalPath;
+
+	/**
+	 * Return the number of records of the journal applied by the last replay.
+	 */
+	@Basic
+	public long getNbRecords() {
+		return this.nbRecords;
+	}
+
+	/**
+	 * Variable registering the number of records applied by the last replay.
+	 */
+	private long nbRecords = 0;
+
+	/**
+	 * Return the number of divergences found by the last replay.
+	 */
+	@Basic
+	public long getNbDivergences() {
+		return this.nbDivergences;
+	}
+
+	/**
+	 * Variable registering the number of divergences found by the last replay.
+	 */
+	private long nbDivergences = 0;
+
+	/**
+	 * Rebuild the run recorded in the journal of this replayer.
+	 *
+	 * @return	A new world restored from the checkpoint of this replayer,
+	 * 			with all the commands and evolves of the journal applied.
+	 * 			The ships of the world have no programs.
+	 * @throws	IOException
+	 * 			The checkpoint or the journal could not be read or is not valid.
+	 */
+	public World replay() throws IOException {
+		World world = WorldCheckpoint.load(this.checkpointPath);
+		this.nbRecords = 0;
+		this.nbDivergences = 0;
+		try (FileChannel channel = FileChannel.open(this.journalPath, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < WorldJournal.HEADER_SIZE || size > Integer.MAX_VALUE)
+				throw new IOException("Not a world journal");
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.getInt() != WorldJournal.MAGIC)
+				throw new IOException("Not a world journal");
+			if (buffer.getInt() != WorldJournal.VERSION)
+				throw new IOException("Unsupported world journal version");
+			int nbEntities = buffer.getInt();
+			EntityStore store = world.getEntityStore();
+			if (nbEntities != store.size() || buffer.remaining() < 8L * nbEntities)
+				throw new IOException("World journal does not match checkpoint");
+			Map<Long, Entity> entities = new HashMap<>();
+			for (int slot = 0; slot < nbEntities; slot++) {
+				Entity entity = store.get(slot);
+				entities.put(buffer.getLong(), entity);
+				if (entity instanceof Ship)
+					((Ship) entity).unloadProgram();
+			}
+
+			Queue<double[]> collisions = new ArrayDeque<>();
+			CollisionListener listener = new CollisionListener() {
+				@Override
+				public void boundaryCollision(Object entity, double x, double y) {
+					check(collisions.poll(), BOUNDARY_COLLISION, x, y);
+				}
+
+				@Override
+				public void objectCollision(Object entity1, Object entity2, double x, double y) {
+					check(collisions.poll(), OBJECT_COLLISION, x, y);
+				}
+			};
+			while (buffer.hasRemaining()) {
+				byte kind = buffer.get();
+				if (buffer.remaining() < getPayloadSize(kind))
+					break;
+				switch (kind) {
+					case WorldJournal.TURN:
+						Ship turning = this.getShip(entities, buffer.getLong());
+						double angle = buffer.getDouble();
+						if (turning != null)
+							turning.turn(angle);
+						break;
+					case WorldJournal.THRUST_ON:
+						Ship thrusting = this.getShip(entities, buffer.getLong());
+						if (thrusting != null)
+							thrusting.thrustOn();
+						break;
+					case WorldJournal.THRUST_OFF:
+						Ship stopping = this.getShip(entities, buffer.getLong());
+						if (stopping != null)
+							stopping.thrustOff();
+						break;
+					case WorldJournal.FIRE:
+						Ship firing = this.getShip(entities, buffer.getLong());
+						if (firing != null)
+							firing.fireBullet();
+						break;
+					case WorldJournal.EVOLVE:
+						world.evolve(buffer.getDouble(), listener);
+						this.nbDivergences += collisions.size();
+						collisions.clear();
+						break;
+					case WorldJournal.EVOLVE_INCREMENTALLY:
+						double dt = buffer.getDouble();
+						world.replayIncrementalEvolve(dt, buffer.getInt(), listener);
+						this.nbDivergences += collisions.size();
+						collisions.clear();
+						break;
+					case WorldJournal.BOUNDARY_COLLISION:
+						buffer.getLong();
+						collisions.add(new double[] {BOUNDARY_COLLISION, buffer.getDouble(), buffer.getDouble()});
+						break;
+					default:
+						buffer.getLong();
+						buffer.getLong();
+						collisions.add(new double[] {OBJECT_COLLISION, buffer.getDouble(), buffer.getDouble()});
+				}
+				this.nbRecords++;
+			}
+		}
+		return world;
+	}
+
+	/**
+	 * Return the number of bytes of the payload of a record of the given kind.
+	 *
+	 * @throws	IOException
+	 * 			The given kind is not a kind of record.
+	 */
+	private static int getPayloadSize(byte kind) throws IOException {
+		switch (kind) {
+			case WorldJournal.TURN:
+				return 16;
+			case WorldJournal.THRUST_ON:
+			case WorldJournal.THRUST_OFF:
+			case WorldJournal.FIRE:
+			case WorldJournal.EVOLVE:
+				return 8;
+			case WorldJournal.EVOLVE_INCREMENTALLY:
+				return 12;
+			case WorldJournal.BOUNDARY_COLLISION:
+				return 24;
+			case WorldJournal.OBJECT_COLLISION:
+				return 32;
+			default:
+				throw new IOException("Corrupt world journal");
+		}
+	}
+
+	/**
+	 * Return the ship with the given identifier in the journal, counting a
+	 * divergence and returning null if there is no such ship.
+	 */
+	private Ship getShip(Map<Long, Entity> entities, long identifier) {
+		Entity entity = entities.get(identifier);
+		if (! (entity instanceof Ship) || entity.getWorld() == null) {
+			this.nbDivergences++;
+			return null;
+		}
+		return (Ship) entity;
+	}
+
+	/**
+	 * Count a divergence if the given recorded collision differs from a
+	 * replayed collision of the given kind at the given position.
+	 */
+	private void check(double[] recorded, double kind, double x, double y) {
+		if (recorded == null || recorded[0] != kind || recorded[1] != x || recorded[2] != y)
+			this.nbDivergences++;
+	}
+
+	/**
+	 * Constants registering the kinds of collisions that are compared.
+	 */
+	private static final double BOUNDARY_COLLISION = 0;
+
+	private static final double OBJECT_COLLISION = 1;
+}
@@ -0,0 +1,227 @@
+package asteroids.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of immutable snapshots of the entities of a world at one moment
+ * of its simulation.
+ *
+ * A snapshot holds the identifier, type, position, velocity and radius of
+ * every entity, packed in arrays that are never exposed. Because a snapshot
+ * never changes after it is created, any number of threads can read it
+ * without locks while the world it was taken from keeps evolving.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+public final class WorldSnapshot {
+
+	/**
+	 * An enumeration of the types of entities in a snapshot.
+	 */
+	public static enum EntityType {
+		SHIP, BULLET, ASTEROID, PLANETOID;
+
+		/**
+		 * Return the type of the given entity.
+		 */
+		static EntityType of(Entity entity) {
+			if (entity instanceof Ship)
+				return SHIP;
+			if (entity instanceof Bullet)
+				return BULLET;
+			if (entity instanceof Asteroid)
+				return ASTEROID;
+			return PLANETOID;
+		}
+	}
+
+	/**
+	 * Initialize this new snapshot with the current state of the given world.
+	 *
+	 * @param 	world
+	 * 			The world to take the snapshot of.
+	 * @post	| new.getSimulationTime() == world.getSimulationTime()
+	 * @post	| new.getNbEntities() == world.getNbEntities()
+	 */
+	WorldSnapshot(World world) {
+		this.simulationTime = world.getSimulationTime();
+		this.width = world.getSize().getXComponent();
+		this.height = world.getSize().getYComponent();
+		EntityStore store = world.getEntityStore();
+		int count = store.size();
+		this.identifiers = new long[count];
+		this.types = new EntityType[count];
+		this.state = new double[count * STRIDE];
+		for (int slot = 0; slot < count; slot++) {
+			Entity entity = store.get(slot);
+			this.identifiers[slot] = entity.getIdentifier();
+			this.types[slot] = EntityType.of(entity);
+			int offset = slot * STRIDE;
+			this.state[offset] = entity.getXPosition();
+			this.state[offset + 1] = entity.getYPosition();
+			this.state[offset + 2] = entity.getXVelocity();
+			this.state[offset + 3] = entity.getYVelocity();
+			this.state[offset + 4] = entity.getRadius();
+		}
+	}
+
+	/**
+	 * Return the simulation time of the world when this snapshot was taken.
+	 */
+	@Basic @Immutable
+	public double getSimulationTime() {
+		return this.simulationTime;
+	}
+
+	/**
+	 * Return the width of the world of this snapshot.
+	 */
+	@Basic @Immutable
+	public double getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * Return the height of the world of this snapshot.
+	 */
+	@Basic @Immutable
+	public double getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * Return the number of entities in this snapshot.
+	 */
+	@Basic @Immutable
+	public int getNbEntities() {
+		return this.identifiers.length;
+	}
+
+	/**
+	 * Return the identifier of the entity at the given index.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 		|	index < 0 || index >= getNbEntities()
+	 */
+	@Immutable
+	public long getIdentifier(int index) throws IndexOutOfBoundsException {
+		return this.identifiers[index];
+	}
+
+	/**
+	 * Return the type of the entity at the given index.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 		|	index < 0 || index >= getNbEntities()
+	 */
+	@Immutable
+	public EntityType getType(int index) throws IndexOutOfBoundsException {
+		return this.types[index];
+	}
+
+	/**
+	 * Return the x coordinate of the position of the entity at the given index.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 		|	index < 0 || index >= getNbEntities()
+	 */
+	@Immutable
+	public double getXPosition(int index) throws IndexOutOfBoundsException {
+		return this.state[this.getOffset(index)];
+	}
+
+	/**
+	 * Return the y coordinate of the position of the entity at the given index.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 		|	index < 0 || index >= getNbEntities()
+	 */
+	@Immutable
+	public double getYPosition(int index) throws IndexOutOfBoundsException {
+		return this.state[this.getOffset(index) + 1];
+	}
+
+	/**
+	 * Return the x component of the velocity of the entity at the given index.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 		|	index < 0 || index >= getNbEntities()
+	 */
+	@Immutable
+	public double getXVelocity(int index) throws IndexOutOfBoundsException {
+		return this.state[this.getOffset(index) + 2];
+	}
+
+	/**
+	 * Return the y component of the velocity of the entity at the given index.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 		|	index < 0 || index >= getNbEntities()
+	 */
+	@Immutable
+	public double getYVelocity(int index) throws IndexOutOfBoundsException {
+		return this.state[this.getOffset(index) + 3];
+	}
+
+	/**
+	 * Return the radius of the entity at the given index.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 		|	index < 0 || index >= getNbEntities()
+	 */
+	@Immutable
+	public double getRadius(int index) throws IndexOutOfBoundsException {
+		return this.state[this.getOffset(index) + 4];
+	}
+
+	/**
+	 * Return the index of the entity with the given identifier in this
+	 * snapshot, -1 if this snapshot has no such entity.
+	 */
+	public int indexOf(long identifier) {
+		for (int index = 0; index < this.identifiers.length; index++)
+			if (this.identifiers[index] == identifier)
+				return index;
+		return -1;
+	}
+
+	/**
+	 * Return the offset of the state of the entity at the given index.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 		|	index < 0 || index >= getNbEntities()
+	 */
+	private int getOffset(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= this.identifiers.length)
+			throw new IndexOutOfBoundsException();
+		return index * STRIDE;
+	}
+
+	/**
+	 * Constant registering the number of values in the state of one entity.
+	 */
+	private static final int STRIDE = 5;
+
+	/**
+	 * Variables registering the simulation time and size of the world of this snapshot.
+	 */
+	private final double simulationTime;
+
+	private final double width;
+
+	private final double height;
+
+	/**
+	 * Variables referencing the identifiers and types of the entities of this snapshot.
+	 */
+	private final long[] identifiers;
+
+	private final EntityType[] types;
+
+	/**
+	 * Variable referencing the positions, velocities and radii of the entities
+	 * of this snapshot, STRIDE values per entity.
+	 */
+	private final double[] state;
+}
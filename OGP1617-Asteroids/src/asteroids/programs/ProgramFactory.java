@@ -17,6 +17,11 @@ public class ProgramFactory implements IProgramFactory<MyExpression, MyStatement
 		return new Program(functions, main);
 	}
 
+	@Override
+	public Program createProgram(List<MyFunction> functions, MyStatement main, String source) {
+		return new Program(functions, main, source);
+	}
+
 	@Override
 	public MyFunction createFunctionDefinition(String functionName, MyStatement body, SourceLocation sourceLocation) {
 		return new MyFunction(functionName, (BasicStatement) body);
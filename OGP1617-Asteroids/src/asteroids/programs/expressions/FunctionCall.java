@@ -22,10 +22,12 @@ public class FunctionCall extends NameExpression {
 
     public Object evaluate(Program program) {
         MyFunction function = program.getFunctions().get(this.getName());
-        program.setExecutingFunction(function);
+        //the arguments are evaluated by the caller
         List<Object> parameters = new ArrayList<>();
         for(MyExpression argument: this.getArguments())
             parameters.add(argument.evaluate(program));
+        List<Object> callerParameters = function.getParameters();
+        program.setExecutingFunction(function);
         function.setParameters(parameters);
         function.newLocalVariables();
         
@@ -34,6 +36,8 @@ public class FunctionCall extends NameExpression {
         
         program.removeExecutingFunction();
         function.removeLocalVariables();
+        //a recursive call must not change the parameters of its caller
+        function.setParameters(callerParameters);
         return program.getReturnObject();
     }
 }
@@ -14,12 +14,17 @@ public abstract class ActionStatement extends MyStatement {
 		if (program.inFunction())
 			throw new IllegalStatementException();
 		
-		if (program.getTime() < 0.2) {
+		if (program.getTime() < ACTION_TIME) {
 			program.setGoalLocation(this.getSourceLocation());
 			throw new OutOfTimeException();
 		}
-		program.addTime(-0.2);
+		program.addTime(-ACTION_TIME);
 	}
 	
 	public abstract void evaluate(Program program);
+	
+	/**
+	 * The time of a program an action takes.
+	 */
+	public static final double ACTION_TIME = 0.2;
 }
@@ -0,0 +1,544 @@
+package asteroids.simulation;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+import asteroids.facade.Facade;
+import asteroids.model.Program;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.part2.CollisionListener;
+import asteroids.part3.programs.internal.ParseOutcome;
+import asteroids.part3.programs.internal.ProgramParser;
+import asteroids.util.ModelException;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of runners that play a scenario without a user interface, as fast
+ * as possible or at a fixed multiple of real time, and report statistics
+ * per run.
+ *
+ * A scenario is a text with one entity per line, all built through the facade:
+ * 	world <width> <height>
+ * 	ship <x> <y> <xVelocity> <yVelocity> <radius> <orientation> <mass> [bullets <n>] [program <path>]
+ * 	asteroid <x> <y> <xVelocity> <yVelocity> <radius>
+ * 	planetoid <x> <y> <xVelocity> <yVelocity> <radius> <distanceTraveled>
+ * Empty lines and lines starting with # are ignored. The paths of programs
+ * are relative to the directory of the scenario. Every ship gets its own
+ * parse of its program, since programs hold their execution state.
+ *
+ * A run evolves the world in steps of the time step through Facade.evolve,
+ * until the duration has passed, or until at most one ship is left if the
+ * runner stops at the last ship.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+public class HeadlessRunner {
+
+	/**
+	 * Initialize this new runner with the given scenario.
+	 *
+	 * @param 	scenario
+	 * 			The text of the scenario.
+	 * @param 	directory
+	 * 			The directory the paths of programs are relative to.
+	 * @throws	IllegalArgumentException
+	 * 			The scenario is not valid or does not start with a world.
+	 * @throws	IOException
+	 * 			A program could not be read.
+	 */
+	public HeadlessRunner(String scenario, Path directory) throws IllegalArgumentException, IOException {
+		if (scenario == null || directory == null)
+			throw new IllegalArgumentException();
+		for (String line: scenario.split("\\R")) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			String[] tokens = line.split("\\s+");
+			this.checkLine(tokens);
+			for (int i = 1; i < tokens.length - 1; i++)
+				if (tokens[i].equals("program") && ! this.programs.containsKey(tokens[i + 1]))
+					this.programs.put(tokens[i + 1],
+							new String(Files.readAllBytes(directory.resolve(tokens[i + 1])), StandardCharsets.UTF_8));
+			this.lines.add(tokens);
+		}
+		if (this.lines.isEmpty() || ! this.lines.get(0)[0].equals("world"))
+			throw new IllegalArgumentException("A scenario must start with a world");
+	}
+
+	/**
+	 * Check whether the given tokens form a valid line of a scenario.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			The given tokens do not form a valid line.
+	 */
+	private void checkLine(String[] tokens) throws IllegalArgumentException {
+		int nbNumbers;
+		switch (tokens[0]) {
+			case "world":
+				nbNumbers = 2;
+				break;
+			case "ship":
+				nbNumbers = 7;
+				break;
+			case "asteroid":
+				nbNumbers = 5;
+				break;
+			case "planetoid":
+				nbNumbers = 6;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown entity: " + tokens[0]);
+		}
+		if (tokens.length < nbNumbers + 1)
+			throw new IllegalArgumentException("Too few values for " + tokens[0]);
+		for (int i = 1; i <= nbNumbers; i++)
+			Double.parseDouble(tokens[i]);
+		for (int i = nbNumbers + 1; i < tokens.length; i += 2) {
+			boolean isOption = tokens[0].equals("ship")
+					&& (tokens[i].equals("bullets") || tokens[i].equals("program"));
+			if (! isOption || i + 1 == tokens.length)
+				throw new IllegalArgumentException("Unknown option for " + tokens[0] + ": " + tokens[i]);
+			if (tokens[i].equals("bullets"))
+				Integer.parseInt(tokens[i + 1]);
+		}
+	}
+
+	/**
+	 * Variable referencing the lines of the scenario of this runner, split in tokens.
+	 */
+	private final List<String[]> lines = new ArrayList<>();
+
+	/**
+	 * Variable referencing a map of the paths of the programs of the scenario
+	 * of this runner to their source.
+	 */
+	private final Map<String, String> programs = new HashMap<>();
+
+	/**
+	 * Return the time step this runner evolves the worlds in.
+	 */
+	@Basic
+	public double getTimeStep() {
+		return this.timeStep;
+	}
+
+	/**
+	 * Set the time step this runner evolves the worlds in to the given time step.
+	 *
+	 * @post	| new.getTimeStep() == timeStep
+	 * @throws	IllegalArgumentException
+	 * 		|	! (timeStep > 0) || Double.isInfinite(timeStep)
+	 */
+	public void setTimeStep(double timeStep) throws IllegalArgumentException {
+		if (! (timeStep > 0) || Double.isInfinite(timeStep))
+			throw new IllegalArgumentException();
+		this.timeStep = timeStep;
+	}
+
+	/**
+	 * Variable registering the time step of this runner.
+	 */
+	private double timeStep = 1.0 / 60;
+
+	/**
+	 * Return the simulation time after which a run of this runner stops.
+	 */
+	@Basic
+	public double getDuration() {
+		return this.duration;
+	}
+
+	/**
+	 * Set the simulation time after which a run of this runner stops.
+	 *
+	 * @post	| new.getDuration() == duration
+	 * @throws	IllegalArgumentException
+	 * 		|	! (duration >= 0) || Double.isInfinite(duration)
+	 */
+	public void setDuration(double duration) throws IllegalArgumentException {
+		if (! (duration >= 0) || Double.isInfinite(duration))
+			throw new IllegalArgumentException();
+		this.duration = duration;
+	}
+
+	/**
+	 * Variable registering the duration of a run of this runner.
+	 */
+	private double duration = 60;
+
+	/**
+	 * Return the multiple of real time a run of this runner is paced at,
+	 * 0 if runs go as fast as possible.
+	 */
+	@Basic
+	public double getSpeed() {
+		return this.speed;
+	}
+
+	/**
+	 * Set the multiple of real time a run of this runner is paced at.
+	 *
+	 * @param 	speed
+	 * 			The new speed, 0 to run as fast as possible.
+	 * @post	| new.getSpeed() == speed
+	 * @throws	IllegalArgumentException
+	 * 		|	! (speed >= 0) || Double.isInfinite(speed)
+	 */
+	public void setSpeed(double speed) throws IllegalArgumentException {
+		if (! (speed >= 0) || Double.isInfinite(speed))
+			throw new IllegalArgumentException();
+		this.speed = speed;
+	}
+
+	/**
+	 * Variable registering the speed of this runner.
+	 */
+	private double speed = 0;
+
+	/**
+	 * Check whether a run of this runner stops as soon as at most one ship is left.
+	 */
+	@Basic
+	public boolean stopsAtLastShip() {
+		return this.stopsAtLastShip;
+	}
+
+	/**
+	 * Set whether a run of this runner stops as soon as at most one ship is left.
+	 *
+	 * @post	| new.stopsAtLastShip() == stopsAtLastShip
+	 */
+	public void setStopsAtLastShip(boolean stopsAtLastShip) {
+		this.stopsAtLastShip = stopsAtLastShip;
+	}
+
+	/**
+	 * Variable registering whether a run of this runner stops at the last ship.
+	 */
+	private boolean stopsAtLastShip = false;
+
+	/**
+	 * Build the world of the scenario of this runner with the given seed and
+	 * evolve it until the duration has passed, or until at most one ship is
+	 * left if this runner stops at the last ship.
+	 *
+	 * @param 	seed
+	 * 			The seed of the random generator of the world.
+	 * @return	The statistics of the run.
+	 * @throws	ModelException
+	 * 			The facade rejected the scenario or failed to evolve the world.
+	 * @throws	IllegalArgumentException
+	 * 			A program of the scenario could not be parsed.
+	 */
+	public RunStatistics run(long seed) throws ModelException, IllegalArgumentException {
+		Facade facade = new Facade();
+		World world = this.createWorld(facade);
+		world.setSeed(seed);
+		long[] nbCollisions = new long[1];
+		CollisionListener listener = new CollisionListener() {
+			@Override
+			public void boundaryCollision(Object entity, double x, double y) {
+				nbCollisions[0]++;
+			}
+
+			@Override
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+				nbCollisions[0]++;
+			}
+		};
+
+		long start = System.nanoTime();
+		long nbTicks = 0;
+		double time = 0;
+		while (time < this.getDuration() && ! (this.stopsAtLastShip() && world.getShips().size() <= 1)) {
+			double dt = Math.min(this.getTimeStep(), this.getDuration() - time);
+			facade.evolve(world, dt, listener);
+			time += dt;
+			nbTicks++;
+			if (this.getSpeed() > 0) {
+				long due = start + (long) (time / this.getSpeed() * 1E9);
+				long wait = due - System.nanoTime();
+				if (wait > 0)
+					LockSupport.parkNanos(wait);
+			}
+		}
+		return new RunStatistics(seed, time, System.nanoTime() - start, nbTicks, nbCollisions[0],
+				world.getShips().size(), world.getNbEntities());
+	}
+
+	/**
+	 * Build the world of the scenario of this runner through the given facade.
+	 */
+	private World createWorld(Facade facade) throws ModelException, IllegalArgumentException {
+		String[] first = this.lines.get(0);
+		World world = facade.createWorld(number(first, 1), number(first, 2));
+		for (String[] line: this.lines.subList(1, this.lines.size())) {
+			switch (line[0]) {
+				case "world":
+					throw new IllegalArgumentException("A scenario has only one world");
+				case "ship":
+					Ship ship = facade.createShip(number(line, 1), number(line, 2), number(line, 3), number(line, 4),
+							number(line, 5), number(line, 6), number(line, 7));
+					for (int i = 8; i < line.length; i += 2) {
+						if (line[i].equals("bullets"))
+							for (int j = Integer.parseInt(line[i + 1]); j > 0; j--)
+								facade.loadBulletOnShip(ship, facade.createBullet(number(line, 1), number(line, 2), 0, 0, 2));
+						else
+							facade.loadProgramOnShip(ship, this.parseProgram(facade, line[i + 1]));
+					}
+					facade.addShipToWorld(world, ship);
+					break;
+				case "asteroid":
+					facade.addAsteroidToWorld(world, facade.createAsteroid(number(line, 1), number(line, 2),
+							number(line, 3), number(line, 4), number(line, 5)));
+					break;
+				default:
+					facade.addPlanetoidToWorld(world, facade.createPlanetoid(number(line, 1), number(line, 2),
+							number(line, 3), number(line, 4), number(line, 5), number(line, 6)));
+			}
+		}
+		return world;
+	}
+
+	/**
+	 * Return a new parse of the program with the given path.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			The program could not be parsed.
+	 */
+	private Program parseProgram(Facade facade, String path) throws ModelException, IllegalArgumentException {
+		ParseOutcome<? extends Program> outcome = ProgramParser.create(facade.createProgramFactory())
+				.parseString(this.programs.get(path));
+		if (! outcome.isSuccess())
+			throw new IllegalArgumentException("Cannot parse " + path + ": " + outcome.getFailValue());
+		return outcome.getSuccessValue();
+	}
+
+	/**
+	 * Return the number at the given index of the given line.
+	 */
+	private static double number(String[] line, int index) {
+		return Double.parseDouble(line[index]);
+	}
+
+	/**
+	 * A class of statistics of one run of a runner.
+	 */
+	@Value
+	public static final class RunStatistics {
+
+		RunStatistics(long seed, double simulatedTime, long wallNanos, long nbTicks, long nbCollisions,
+				int nbShips, int nbEntities) {
+			this.seed = seed;
+			this.simulatedTime = simulatedTime;
+			this.wallNanos = wallNanos;
+			this.nbTicks = nbTicks;
+			this.nbCollisions = nbCollisions;
+			this.nbShips = nbShips;
+			this.nbEntities = nbEntities;
+		}
+
+		/**
+		 * Return the seed of the world of the run.
+		 */
+		@Basic @Immutable
+		public long getSeed() {
+			return this.seed;
+		}
+
+		/**
+		 * Return the simulation time the world of the run was evolved for.
+		 */
+		@Basic @Immutable
+		public double getSimulatedTime() {
+			return this.simulatedTime;
+		}
+
+		/**
+		 * Return the wall-clock time in nanoseconds the run took.
+		 */
+		@Basic @Immutable
+		public long getWallNanos() {
+			return this.wallNanos;
+		}
+
+		/**
+		 * Return the number of simulated seconds per second of wall-clock time.
+		 */
+		public double getSimulatedSecondsPerSecond() {
+			return this.simulatedTime / Math.max(1, this.wallNanos) * 1E9;
+		}
+
+		/**
+		 * Return the number of steps the world of the run was evolved in.
+		 */
+		@Basic @Immutable
+		public long getNbTicks() {
+			return this.nbTicks;
+		}
+
+		/**
+		 * Return the number of collisions resolved during the run.
+		 */
+		@Basic @Immutable
+		public long getNbCollisions() {
+			return this.nbCollisions;
+		}
+
+		/**
+		 * Return the number of ships left at the end of the run.
+		 */
+		@Basic @Immutable
+		public int getNbShips() {
+			return this.nbShips;
+		}
+
+		/**
+		 * Return the number of entities left at the end of the run.
+		 */
+		@Basic @Immutable
+		public int getNbEntities() {
+			return this.nbEntities;
+		}
+
+		/**
+		 * Return these statistics as a line of comma-separated values, in
+		 * the order of HEADER.
+		 */
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%d,%.6f,%.6f,%.1f,%d,%d,%d,%d", this.seed, this.simulatedTime,
+					this.wallNanos / 1E9, this.getSimulatedSecondsPerSecond(), this.nbTicks, this.nbCollisions,
+					this.nbShips, this.nbEntities);
+		}
+
+		/**
+		 * Constant referencing the names of the comma-separated values of statistics.
+		 */
+		public static final String HEADER =
+				"seed,simulated_time,wall_time,simulated_seconds_per_second,ticks,collisions,ships,entities";
+
+		private final long seed;
+
+		private final double simulatedTime;
+
+		private final long wallNanos;
+
+		private final long nbTicks;
+
+		private final long nbCollisions;
+
+		private final int nbShips;
+
+		private final int nbEntities;
+	}
+
+	/**
+	 * Run a scenario a number of times and write the statistics of every run
+	 * as comma-separated values.
+	 *
+	 * Usage: HeadlessRunner <scenario> [-runs n] [-seed s] [-duration seconds]
+	 * 		[-step seconds] [-speed multiple] [-threads n] [-out path] [-last-ship]
+	 * Run i uses seed s + i. The runs are spread over the given number of threads.
+	 * With -last-ship a run stops as soon as at most one ship is left.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length == 0) {
+			System.err.println("usage: HeadlessRunner <scenario> [-runs n] [-seed s] [-duration seconds] "
+					+ "[-step seconds] [-speed multiple] [-threads n] [-out path] [-last-ship]");
+			System.exit(2);
+		}
+		Path scenario = Paths.get(args[0]);
+		Path directory = scenario.toAbsolutePath().getParent();
+		HeadlessRunner runner = new HeadlessRunner(
+				new String(Files.readAllBytes(scenario), StandardCharsets.UTF_8), directory);
+		int nbRuns = 1;
+		long seed = 0;
+		int nbThreads = 1;
+		Path out = null;
+		for (int i = 1; i < args.length; i++) {
+			String option = args[i];
+			if (option.equals("-last-ship")) {
+				runner.setStopsAtLastShip(true);
+				continue;
+			}
+			if (i + 1 == args.length) {
+				System.err.println("missing value for option: " + option);
+				System.exit(2);
+			}
+			String value = args[++i];
+			switch (option) {
+				case "-runs":
+					nbRuns = Integer.parseInt(value);
+					break;
+				case "-seed":
+					seed = Long.parseLong(value);
+					break;
+				case "-duration":
+					runner.setDuration(Double.parseDouble(value));
+					break;
+				case "-step":
+					runner.setTimeStep(Double.parseDouble(value));
+					break;
+				case "-speed":
+					runner.setSpeed(Double.parseDouble(value));
+					break;
+				case "-threads":
+					nbThreads = Integer.parseInt(value);
+					break;
+				case "-out":
+					out = Paths.get(value);
+					break;
+				default:
+					System.err.println("unknown option: " + option);
+					System.exit(2);
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+		List<Future<RunStatistics>> runs = new ArrayList<>();
+		for (int run = 0; run < nbRuns; run++) {
+			long runSeed = seed + run;
+			runs.add(executor.submit(() -> runner.run(runSeed)));
+		}
+		executor.shutdown();
+		// Standard output is flushed but never closed.
+		PrintStream stream = (out == null) ? System.out
+				: new PrintStream(Files.newOutputStream(out), false, "UTF-8");
+		int failures = 0;
+		try {
+			stream.println("run," + RunStatistics.HEADER);
+			for (int run = 0; run < nbRuns; run++) {
+				try {
+					stream.println(run + "," + runs.get(run).get());
+				} catch (ExecutionException exc) {
+					System.err.println("run " + run + " failed: " + exc.getCause());
+					failures++;
+				}
+			}
+		} finally {
+			if (out == null)
+				stream.flush();
+			else
+				stream.close();
+		}
+		if (failures > 0)
+			System.exit(1);
+	}
+}
@@ -0,0 +1,389 @@
+package asteroids.simulation;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import asteroids.model.World;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of hosts that evolve many independent worlds at a target tick rate,
+ * sharing a work-stealing pool.
+ *
+ * Every registered world is evolved with a fixed time step of one period
+ * of its tick rate. A single scheduler thread triggers the ticks, the ticks
+ * themselves run in the pool. The worlds are isolated from each other:
+ * 	- The ticks of one world never overlap. A tick that is due while the
+ * 	  previous one still runs is skipped, so a slow world falls behind
+ * 	  instead of queueing work for the pool.
+ * 	- A tick that takes longer than the time budget of its world defers
+ * 	  as many later ticks of that world as the overrun covers, so one world
+ * 	  cannot take more than its share of the pool.
+ * 	- A world whose tick throws an exception or an error, such as a stack
+ * 	  overflow in a program of one of its ships, is stopped. What was thrown
+ * 	  is kept as the failure of that world until the world is unregistered,
+ * 	  the other worlds keep evolving.
+ *
+ * A registered world must only be changed through actions passed to
+ * execute, which run in the pool right before the next tick of the world.
+ *
+ * @version 1.0
+ * @author 	Simon Merckx and Tobias Cornille.
+ */
+public class SimulationHost {
+
+	/**
+	 * Initialize this new host with a new pool with the given parallelism.
+	 *
+	 * @param 	parallelism
+	 * 			The number of threads evolving worlds.
+	 * @effect	| this(new ForkJoinPool(parallelism))
+	 * @post	This new host shuts its pool down when it is shut down.
+	 * @throws	IllegalArgumentException
+	 * 		|	parallelism <= 0
+	 */
+	public SimulationHost(int parallelism) throws IllegalArgumentException {
+		this(new ForkJoinPool(parallelism), true);
+	}
+
+	/**
+	 * Initialize this new host with the given pool.
+	 *
+	 * @param 	pool
+	 * 			The pool to evolve the worlds in. The pool is not shut down
+	 * 			with this host.
+	 * @post	| new.getPool() == pool
+	 * @throws	IllegalArgumentException
+	 * 		|	pool == null
+	 */
+	public SimulationHost(ForkJoinPool pool) throws IllegalArgumentException {
+		this(pool, false);
+	}
+
+	private SimulationHost(ForkJoinPool pool, boolean ownsPool) throws IllegalArgumentException {
+		if (pool == null)
+			throw new IllegalArgumentException();
+		this.pool = pool;
+		this.ownsPool = ownsPool;
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "simulation-host-scheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.setRemoveOnCancelPolicy(true);
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Return the pool of this host.
+	 */
+	@Basic @Immutable
+	public ForkJoinPool getPool() {
+		return this.pool;
+	}
+
+	/**
+	 * Variable referencing the pool of this host.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Variable registering whether this host created its pool.
+	 */
+	private final boolean ownsPool;
+
+	/**
+	 * Variable referencing the executor triggering the ticks of the worlds.
+	 */
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * Start evolving the given world at the given tick rate.
+	 *
+	 * @param 	world
+	 * 			The world to evolve.
+	 * @param 	ticksPerSecond
+	 * 			The number of ticks of the given world per second. Each tick
+	 * 			evolves the world by one over this rate.
+	 * @param 	budgetNanos
+	 * 			The time in nanoseconds a single tick of the world may take
+	 * 			before later ticks are deferred.
+	 * @post	| new.hasAsWorld(world)
+	 * @throws	IllegalArgumentException
+	 * 		|	world == null || hasAsWorld(world) || world.isTerminated() ||
+	 * 		|	! (ticksPerSecond > 0) || Double.isInfinite(ticksPerSecond) || budgetNanos <= 0
+	 * @throws	IllegalStateException
+	 * 		|	isShutdown()
+	 */
+	public synchronized void register(World world, double ticksPerSecond, long budgetNanos)
+			throws IllegalArgumentException, IllegalStateException {
+		if (world == null || world.isTerminated() || ! (ticksPerSecond > 0) || Double.isInfinite(ticksPerSecond)
+				|| budgetNanos <= 0)
+			throw new IllegalArgumentException();
+		if (this.isShutdown())
+			throw new IllegalStateException();
+		long periodNanos = Math.max(1, Math.round(1E9 / ticksPerSecond));
+		HostedWorld hosted = new HostedWorld(world, periodNanos / 1E9, budgetNanos);
+		if (this.worlds.putIfAbsent(world, hosted) != null)
+			throw new IllegalArgumentException();
+		hosted.trigger = this.scheduler.scheduleAtFixedRate(() -> this.trigger(hosted), periodNanos, periodNanos,
+				TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Stop evolving the given world and forget its failure, if any. A tick
+	 * of the world that is running is completed.
+	 *
+	 * @param 	world
+	 * 			The world to stop evolving.
+	 * @post	| ! new.hasAsWorld(world)
+	 */
+	public synchronized void unregister(World world) {
+		HostedWorld hosted = this.worlds.remove(world);
+		if (hosted != null)
+			hosted.trigger.cancel(false);
+	}
+
+	/**
+	 * Check whether this host evolves the given world.
+	 */
+	public boolean hasAsWorld(World world) {
+		return this.worlds.containsKey(world);
+	}
+
+	/**
+	 * Return the number of worlds this host evolves.
+	 */
+	public int getNbWorlds() {
+		return this.worlds.size();
+	}
+
+	/**
+	 * Run the given action on the given world in the pool of this host, right
+	 * before the next tick of the world and never during one of its ticks.
+	 *
+	 * @param 	world
+	 * 			The world to run the action on.
+	 * @param 	action
+	 * 			The action to run.
+	 * @throws	IllegalArgumentException
+	 * 		|	! hasAsWorld(world) || action == null
+	 */
+	public void execute(World world, Consumer<? super World> action) throws IllegalArgumentException {
+		HostedWorld hosted = this.getHostedWorld(world);
+		if (action == null)
+			throw new IllegalArgumentException();
+		hosted.actions.add(action);
+	}
+
+	/**
+	 * Return the exception or error a tick of the given world threw, null if
+	 * no tick of the world failed. A world with a failure is no longer evolved, but
+	 * stays registered until it is unregistered.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 		|	! hasAsWorld(world)
+	 */
+	public Throwable getFailure(World world) throws IllegalArgumentException {
+		return this.getHostedWorld(world).failure;
+	}
+
+	/**
+	 * Return the number of completed ticks of the given world.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 		|	! hasAsWorld(world)
+	 */
+	public long getNbTicks(World world) throws IllegalArgumentException {
+		return this.getHostedWorld(world).nbTicks;
+	}
+
+	/**
+	 * Return the number of ticks of the given world that were skipped, because
+	 * the previous tick was still running or because a tick overran the budget.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 		|	! hasAsWorld(world)
+	 */
+	public long getNbSkippedTicks(World world) throws IllegalArgumentException {
+		return this.getHostedWorld(world).nbSkippedTicks;
+	}
+
+	/**
+	 * Return the time in nanoseconds the last tick of the given world took,
+	 * 0 if the world has not completed a tick yet.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 		|	! hasAsWorld(world)
+	 */
+	public long getLastTickLatency(World world) throws IllegalArgumentException {
+		return this.getHostedWorld(world).lastLatency;
+	}
+
+	/**
+	 * Return the longest time in nanoseconds a tick of the given world took,
+	 * 0 if the world has not completed a tick yet.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 		|	! hasAsWorld(world)
+	 */
+	public long getMaxTickLatency(World world) throws IllegalArgumentException {
+		return this.getHostedWorld(world).maxLatency;
+	}
+
+	/**
+	 * Return the mean time in nanoseconds a tick of the given world took,
+	 * 0 if the world has not completed a tick yet.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 		|	! hasAsWorld(world)
+	 */
+	public double getMeanTickLatency(World world) throws IllegalArgumentException {
+		HostedWorld hosted = this.getHostedWorld(world);
+		long nbTicks = hosted.nbTicks;
+		return (nbTicks == 0) ? 0 : (double) hosted.totalLatency / nbTicks;
+	}
+
+	/**
+	 * Stop evolving all worlds. The ticks that are running are completed.
+	 * The pool is shut down if this host created it.
+	 *
+	 * @post	| new.isShutdown() && new.getNbWorlds() == 0
+	 */
+	public synchronized void shutdown() {
+		this.scheduler.shutdownNow();
+		this.worlds.clear();
+		if (this.ownsPool)
+			this.pool.shutdown();
+	}
+
+	/**
+	 * Check whether this host is shut down.
+	 */
+	public boolean isShutdown() {
+		return this.scheduler.isShutdown();
+	}
+
+	/**
+	 * Return the state this host keeps for the given world.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 		|	! hasAsWorld(world)
+	 */
+	private HostedWorld getHostedWorld(World world) throws IllegalArgumentException {
+		HostedWorld hosted = (world == null) ? null : this.worlds.get(world);
+		if (hosted == null)
+			throw new IllegalArgumentException();
+		return hosted;
+	}
+
+	/**
+	 * Submit a tick of the given world to the pool, unless its previous tick
+	 * is still running or it has deferred ticks left.
+	 */
+	private void trigger(HostedWorld hosted) {
+		// The first trigger may run before its registration has completed.
+		if (hosted.trigger == null)
+			return;
+		if (hosted.deferredTicks.getAndUpdate(nbDeferred -> Math.max(0, nbDeferred - 1)) > 0) {
+			hosted.nbSkippedTicks++;
+			return;
+		}
+		if (! hosted.isRunning.compareAndSet(false, true)) {
+			hosted.nbSkippedTicks++;
+			return;
+		}
+		this.pool.execute(() -> this.tick(hosted));
+	}
+
+	/**
+	 * Run the pending actions of the given world and evolve it by one time step.
+	 */
+	private void tick(HostedWorld hosted) {
+		try {
+			long start = System.nanoTime();
+			Consumer<? super World> action;
+			while ((action = hosted.actions.poll()) != null)
+				action.accept(hosted.world);
+			if (hosted.world.isTerminated()) {
+				this.unregister(hosted.world);
+				return;
+			}
+			hosted.world.evolve(hosted.timeStep, null);
+			long latency = System.nanoTime() - start;
+			hosted.lastLatency = latency;
+			hosted.maxLatency = Math.max(hosted.maxLatency, latency);
+			hosted.totalLatency += latency;
+			hosted.nbTicks++;
+			if (latency > hosted.budgetNanos)
+				hosted.deferredTicks.set((int) Math.min(Integer.MAX_VALUE, (latency - 1) / hosted.budgetNanos));
+		}
+		catch (Throwable exc) {
+			hosted.failure = exc;
+			hosted.trigger.cancel(false);
+		}
+		finally {
+			hosted.isRunning.set(false);
+		}
+	}
+
+	/**
+	 * Variable referencing a map of the worlds of this host to the state
+	 * this host keeps for them.
+	 */
+	private final Map<World, HostedWorld> worlds = new ConcurrentHashMap<>();
+
+	/**
+	 * A class of worlds evolved by a host, with their time step, budget,
+	 * pending actions and statistics.
+	 *
+	 * Only the scheduler thread counts skipped ticks. Only the thread running
+	 * a tick writes the statistics and the failure of the world, and ticks of
+	 * a world never overlap. The number of deferred ticks is set by ticks and
+	 * counted down by the scheduler thread, so it is updated atomically.
+	 */
+	private static class HostedWorld {
+
+		HostedWorld(World world, double timeStep, long budgetNanos) {
+			this.world = world;
+			this.timeStep = timeStep;
+			this.budgetNanos = budgetNanos;
+		}
+
+		final World world;
+
+		final double timeStep;
+
+		final long budgetNanos;
+
+		final Queue<Consumer<? super World>> actions = new ConcurrentLinkedQueue<>();
+
+		final AtomicBoolean isRunning = new AtomicBoolean(false);
+
+		volatile ScheduledFuture<?> trigger;
+
+		final AtomicInteger deferredTicks = new AtomicInteger(0);
+
+		volatile Throwable failure = null;
+
+		volatile long nbTicks = 0;
+
+		volatile long nbSkippedTicks = 0;
+
+		volatile long lastLatency = 0;
+
+		volatile long maxLatency = 0;
+
+		volatile long totalLatency = 0;
+	}
+}
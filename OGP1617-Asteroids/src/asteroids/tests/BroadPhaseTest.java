@@ -0,0 +1,118 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import asteroids.model.AabbTree;
+import asteroids.model.Asteroid;
+import asteroids.model.BroadPhase;
+import asteroids.model.Entity;
+import asteroids.model.Ship;
+import asteroids.model.Size;
+import asteroids.model.SweepAndPrune;
+import asteroids.model.UniformGrid;
+import asteroids.model.Vector;
+import asteroids.model.World;
+
+public class BroadPhaseTest {
+
+	@Test
+	public void testDefaultGridSizesItselfFromInsertedEntities() {
+		UniformGrid grid = new UniformGrid();
+		grid.insert(new Asteroid(new Vector(100, 100), new Vector(0, 0), 15), 0);
+		assertEquals(60, grid.getCellSize(), 1E-9);
+	}
+
+	@Test
+	public void testDefaultGridOfNewWorldHashesAddedEntities() {
+		World world = new World(new Size(3000, 3000));
+		for (int i = 0; i < 900; i++)
+			world.addEntity(new Asteroid(new Vector(50 + 100 * (i % 30), 50 + 100 * (i / 30)), new Vector(0, 0), 15));
+		UniformGrid grid = (UniformGrid) world.getBroadPhase();
+		assertTrue(grid.getCellSize() >= 60);
+		Entity entity = world.returnEntityGivenPosition(new Vector(1550, 1550));
+		int[] nbCandidates = new int[1];
+		grid.forEachCandidate(entity, other -> nbCandidates[0]++);
+		assertTrue(nbCandidates[0] < 10);
+	}
+
+	@Test
+	public void testGridReportsPairsOfLargeEntitiesOnce() {
+		UniformGrid grid = new UniformGrid(10);
+		for (int i = 0; i < 3; i++)
+			grid.insert(new Asteroid(new Vector(200 * i, 0), new Vector(0, 0), 50), 0);
+		for (int i = 0; i < 2; i++)
+			grid.insert(new Asteroid(new Vector(1000 + 200 * i, 1000), new Vector(0, 0), 5), 0);
+		Set<Set<Entity>> pairs = new HashSet<>();
+		int[] nbPairs = new int[1];
+		grid.forEachCandidatePair((entity, other) -> {
+			assertNotSame(entity, other);
+			Set<Entity> pair = new HashSet<>();
+			pair.add(entity);
+			pair.add(other);
+			pairs.add(pair);
+			nbPairs[0]++;
+		});
+		assertEquals(9, nbPairs[0]);
+		assertEquals(9, pairs.size());
+	}
+
+	@Test
+	public void testUniformGridFindsSameCollisions() {
+		assertFindsSameCollisions(UniformGrid.forWorld(new Size(1000, 1000), 11));
+	}
+
+	@Test
+	public void testSweepAndPruneFindsSameCollisions() {
+		assertFindsSameCollisions(new SweepAndPrune());
+	}
+
+	@Test
+	public void testAabbTreeFindsSameCollisions() {
+		assertFindsSameCollisions(new AabbTree());
+	}
+
+	@Test
+	public void testAabbTreeOverlapAfterEvolve() {
+		World world = new World(new Size(1000, 1000));
+		world.setBroadPhase(new AabbTree());
+		Ship ship = new Ship(new Vector(100, 100), new Vector(100, 0), 11, 0, 1E20);
+		world.addEntity(ship);
+		world.evolve(5, null);
+		assertFalse(new Ship(new Vector(100, 100), new Vector(0, 0), 11, 0, 1E20).checkOverlapInWorld(world));
+		assertTrue(new Ship(new Vector(600, 105), new Vector(0, 0), 11, 0, 1E20).checkOverlapInWorld(world));
+		world.removeEntity(ship);
+		assertFalse(new Ship(new Vector(600, 105), new Vector(0, 0), 11, 0, 1E20).checkOverlapInWorld(world));
+	}
+
+	/**
+	 * Check that a world using the given broad phase evolves exactly like
+	 * a world that checks every pair of entities.
+	 */
+	private static void assertFindsSameCollisions(BroadPhase broadPhase) {
+		World world = new World(new Size(1000, 1000));
+		World bruteForceWorld = new World(new Size(1000, 1000));
+		world.setBroadPhase(broadPhase);
+		bruteForceWorld.setBroadPhase(null);
+		Ship[] ships = new Ship[20];
+		Ship[] bruteForceShips = new Ship[20];
+		for (int i = 0; i < ships.length; i++) {
+			Vector position = new Vector(50 + 45 * i, 100 + 37 * (i % 5));
+			Vector velocity = new Vector(30 * Math.cos(i), 30 * Math.sin(i));
+			ships[i] = new Ship(position, velocity, 11, 0, 1E20);
+			bruteForceShips[i] = new Ship(position, velocity, 11, 0, 1E20);
+			world.addEntity(ships[i]);
+			bruteForceWorld.addEntity(bruteForceShips[i]);
+		}
+		for (int step = 0; step < 100; step++) {
+			world.evolve(0.1, null);
+			bruteForceWorld.evolve(0.1, null);
+		}
+		for (int i = 0; i < ships.length; i++)
+			assertEquals(bruteForceShips[i].getPosition(), ships[i].getPosition());
+	}
+}
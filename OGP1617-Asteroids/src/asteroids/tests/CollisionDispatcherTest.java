@@ -0,0 +1,187 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import asteroids.facade.Facade;
+import asteroids.model.Asteroid;
+import asteroids.model.CollisionDispatcher;
+import asteroids.model.Size;
+import asteroids.model.Vector;
+import asteroids.model.World;
+import asteroids.part2.CollisionListener;
+import asteroids.util.ModelException;
+
+public class CollisionDispatcherTest {
+
+	@Test
+	public void testCollisionDispatcherDeliversAfterEvolve() {
+		World world = new World(new Size(1000, 1000));
+		world.addEntity(new Asteroid(new Vector(500, 500), new Vector(100, 0), 10));
+		List<Double> times = new ArrayList<>();
+		CollisionDispatcher dispatcher = new CollisionDispatcher(new CollisionListener() {
+			@Override
+			public void boundaryCollision(Object entity, double x, double y) {
+				times.add(world.getSimulationTime());
+			}
+
+			@Override
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+			}
+		}, 3, false);
+		assertEquals(4, dispatcher.getCapacity());
+		world.evolve(5, dispatcher);
+		assertEquals(Arrays.asList(5.0), times);
+		dispatcher.close();
+		assertTrue(dispatcher.isClosed());
+	}
+
+	@Test
+	public void testCollisionDispatcherWithConsumer() throws InterruptedException {
+		World world = new World(new Size(1000, 1000));
+		world.addEntity(new Asteroid(new Vector(500, 500), new Vector(100, 0), 10));
+		world.addEntity(new Asteroid(new Vector(500, 100), new Vector(0, -100), 10));
+		Set<Thread> threads = new HashSet<>();
+		CountDownLatch delivered = new CountDownLatch(1);
+		CollisionDispatcher dispatcher = new CollisionDispatcher(new CollisionListener() {
+			@Override
+			public void boundaryCollision(Object entity, double x, double y) {
+				threads.add(Thread.currentThread());
+				delivered.countDown();
+			}
+
+			@Override
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+			}
+		}, 1, true);
+		world.evolve(5, dispatcher);
+		assertTrue(delivered.await(10, TimeUnit.SECONDS));
+		dispatcher.close();
+		assertEquals(1, dispatcher.getNbDropped());
+		assertEquals(1, threads.size());
+		assertFalse(threads.contains(Thread.currentThread()));
+	}
+
+	@Test
+	public void testConsumerFailureIsRethrownByNextDispatch() throws InterruptedException {
+		CountDownLatch released = new CountDownLatch(1);
+		CollisionDispatcher dispatcher = new CollisionDispatcher(new CollisionListener() {
+			@Override
+			public void boundaryCollision(Object entity, double x, double y) {
+				try {
+					released.await();
+				} catch (InterruptedException exc) {
+					Thread.currentThread().interrupt();
+				}
+				throw new IllegalStateException(Double.toString(x));
+			}
+
+			@Override
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+			}
+		}, 4, true);
+		dispatcher.boundaryCollision(null, 1, 0);
+		dispatcher.boundaryCollision(null, 2, 0);
+		dispatcher.dispatch();
+		released.countDown();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (dispatcher.getNbFailures() < 2 && System.nanoTime() < deadline)
+			Thread.yield();
+		assertEquals(2, dispatcher.getNbFailures());
+		try {
+			dispatcher.dispatch();
+			fail();
+		} catch (IllegalStateException exc) {
+			assertEquals("1.0", exc.getMessage());
+		}
+		dispatcher.dispatch();
+		dispatcher.close();
+	}
+
+	@Test
+	public void testFailureWithoutConsumerIsThrownByDispatch() {
+		List<Double> xs = new ArrayList<>();
+		CollisionDispatcher dispatcher = new CollisionDispatcher(new CollisionListener() {
+			@Override
+			public void boundaryCollision(Object entity, double x, double y) {
+				xs.add(x);
+				if (x == 1)
+					throw new IllegalStateException();
+			}
+
+			@Override
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+			}
+		}, 4, false);
+		dispatcher.boundaryCollision(null, 1, 0);
+		dispatcher.boundaryCollision(null, 2, 0);
+		try {
+			dispatcher.dispatch();
+			fail();
+		} catch (IllegalStateException exc) {
+			assertEquals(1, dispatcher.getNbFailures());
+		}
+		dispatcher.dispatch();
+		assertEquals(Arrays.asList(1.0, 2.0), xs);
+		dispatcher.close();
+	}
+
+	@Test
+	public void testEvolveRejectsClosedDispatcher() {
+		World world = new World(new Size(1000, 1000));
+		world.addEntity(new Asteroid(new Vector(500, 500), new Vector(100, 0), 10));
+		world.setFixedTimeStep(0.5);
+		CollisionDispatcher dispatcher = new CollisionDispatcher(new CollisionListener() {
+			@Override
+			public void boundaryCollision(Object entity, double x, double y) {
+			}
+
+			@Override
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+			}
+		}, 4, false);
+		dispatcher.close();
+		try {
+			world.evolve(1, dispatcher);
+			fail();
+		} catch (IllegalStateException exc) {
+		}
+		try {
+			world.evolveIncrementally(1, Long.MAX_VALUE, 10, dispatcher);
+			fail();
+		} catch (IllegalStateException exc) {
+		}
+		try {
+			world.evolveInFixedSteps(1, dispatcher);
+			fail();
+		} catch (IllegalStateException exc) {
+		}
+		assertEquals(0, world.getSimulationTime(), 0);
+		assertEquals(0, world.getPendingTime(), 0);
+	}
+
+	@Test(expected = ModelException.class)
+	public void testFacadeReportsClosedDispatcher() throws ModelException {
+		World world = new World(new Size(1000, 1000));
+		CollisionDispatcher dispatcher = new CollisionDispatcher(new CollisionListener() {
+			@Override
+			public void boundaryCollision(Object entity, double x, double y) {
+			}
+
+			@Override
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+			}
+		}, 4, false);
+		dispatcher.close();
+		new Facade().evolve(world, 1, dispatcher);
+	}
+}
@@ -0,0 +1,70 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import asteroids.simulation.HeadlessRunner;
+import asteroids.simulation.HeadlessRunner.RunStatistics;
+import asteroids.util.ModelException;
+
+public class HeadlessRunnerTest {
+
+	private static final String SCENARIO =
+			"# two ships and an asteroid\n" +
+			"world 1000 1000\n" +
+			"ship 100 500 0 0 20 0 1E20 bullets 5 program fire.txt\n" +
+			"ship 900 500 -10 0 20 3.14 1E20\n" +
+			"asteroid 500 100 0 -100 30\n";
+
+	@Test
+	public void testRunScenario() throws IOException, ModelException {
+		Path directory = Files.createTempDirectory("scenario");
+		Path program = directory.resolve("fire.txt");
+		Files.write(program, "while (1 < 2) { fire; }".getBytes());
+		try {
+			HeadlessRunner runner = new HeadlessRunner(SCENARIO, directory);
+			runner.setDuration(2);
+			runner.setTimeStep(0.1);
+			RunStatistics statistics = runner.run(3);
+			assertEquals(3, statistics.getSeed());
+			assertEquals(2, statistics.getSimulatedTime(), 1E-9);
+			assertEquals(20, statistics.getNbTicks());
+			assertTrue(statistics.getNbCollisions() > 0);
+			assertEquals(2, statistics.getNbShips());
+			assertEquals(RunStatistics.HEADER.split(",").length, statistics.toString().split(",").length);
+		} finally {
+			Files.delete(program);
+			Files.delete(directory);
+		}
+	}
+
+	@Test
+	public void testRunWithSingleShip() throws IOException, ModelException {
+		HeadlessRunner runner = new HeadlessRunner(
+				"world 1000 1000\nship 100 500 10 0 20 0 1E20\nasteroid 500 100 0 -100 30\n", Paths.get("."));
+		runner.setDuration(2);
+		runner.setTimeStep(0.1);
+		RunStatistics statistics = runner.run(0);
+		assertEquals(2, statistics.getSimulatedTime(), 1E-9);
+		assertEquals(20, statistics.getNbTicks());
+		assertEquals(1, statistics.getNbShips());
+		runner.setStopsAtLastShip(true);
+		assertEquals(0, runner.run(0).getNbTicks());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testScenarioWithoutWorld() throws IOException {
+		new HeadlessRunner("asteroid 500 100 0 -100 30\n", Paths.get("."));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testScenarioWithUnknownEntity() throws IOException {
+		new HeadlessRunner("world 1000 1000\ncomet 1 2 3 4 5\n", Paths.get("."));
+	}
+}
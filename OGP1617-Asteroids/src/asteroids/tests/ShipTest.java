@@ -3,11 +3,16 @@ package asteroids.tests;
 import static org.junit.Assert.*;
 
 
+import java.util.Arrays;
+
 import org.junit.Test;
 
 import asteroids.model.Bullet;
+import asteroids.model.Program;
 import asteroids.model.Ship;
 import asteroids.model.Vector;
+import asteroids.part3.programs.internal.ProgramParser;
+import asteroids.programs.ProgramFactory;
 
 public class ShipTest {
 	
@@ -20,4 +25,17 @@ public class ShipTest {
 		assertTrue(ship == bullet.getShip());
 	}
 
+	@Test
+	public void testExecuteProgramWithRecursiveFunction() {
+		String code = "def fib { if ($1 < 2) { return $1; } else { return fib($1 + -1) + fib($1 + -2); } }\n"
+				+ "def incr { return $1 + $2; }\n"
+				+ "d := 1;\n"
+				+ "print fib(10);\n"
+				+ "print incr(d, fib(6));\n";
+		Program program = ProgramParser.create(new ProgramFactory()).parseString(code).getSuccessValue();
+		Ship ship = new Ship(new Vector(50, 50), new Vector(0, 0), 11, 0, 0);
+		ship.loadProgram(program);
+		assertEquals(Arrays.asList(55.0, 9.0), ship.executeProgram(1));
+	}
+
 }
@@ -0,0 +1,152 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.Ship;
+import asteroids.model.Size;
+import asteroids.model.Vector;
+import asteroids.model.World;
+import asteroids.part3.programs.internal.ProgramParser;
+import asteroids.programs.ProgramFactory;
+import asteroids.simulation.SimulationHost;
+
+public class SimulationHostTest {
+
+	private SimulationHost host;
+
+	@Before
+	public void setUp() {
+		host = new SimulationHost(2);
+	}
+
+	@After
+	public void tearDown() {
+		host.shutdown();
+	}
+
+	@Test
+	public void testRegisteredWorldsAreEvolved() throws InterruptedException {
+		World world = new World(new Size(1000, 1000));
+		World otherWorld = new World(new Size(1000, 1000));
+		Ship ship = new Ship(new Vector(100, 100), new Vector(10, 0), 11, 0, 1E20);
+		world.addEntity(ship);
+		host.register(world, 200, 1000000000L);
+		host.register(otherWorld, 100, 1000000000L);
+		assertEquals(2, host.getNbWorlds());
+		waitForTicks(world, 5);
+		waitForTicks(otherWorld, 5);
+		assertTrue(host.getMaxTickLatency(world) > 0);
+		assertTrue(host.getMeanTickLatency(world) <= host.getMaxTickLatency(world));
+		host.unregister(world);
+		assertFalse(host.hasAsWorld(world));
+		assertTrue(ship.getPosition().getXComponent() > 100);
+	}
+
+	@Test
+	public void testActionsRunBeforeTick() throws InterruptedException {
+		World world = new World(new Size(1000, 1000));
+		Ship ship = new Ship(new Vector(100, 100), new Vector(0, 0), 11, 0, 1E20);
+		host.register(world, 200, 1000000000L);
+		host.execute(world, w -> w.addEntity(ship));
+		long ticks = host.getNbTicks(world);
+		waitForTicks(world, ticks + 2);
+		assertSame(world, ship.getWorld());
+	}
+
+	@Test
+	public void testTickOverBudgetDefersLaterTicks() throws InterruptedException {
+		World world = new World(new Size(1000, 1000));
+		host.register(world, 100, 5000000L);
+		waitForTicks(world, 1);
+		long skippedTicks = host.getNbSkippedTicks(world);
+		host.execute(world, w -> {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException exc) {
+				throw new IllegalStateException(exc);
+			}
+		});
+		long ticks = host.getNbTicks(world);
+		waitForTicks(world, ticks + 2);
+		assertTrue(host.getNbSkippedTicks(world) - skippedTicks >= 19);
+		assertTrue(host.getMaxTickLatency(world) >= 100000000L);
+		assertNull(host.getFailure(world));
+	}
+
+	@Test
+	public void testFailingWorldIsStoppedWithoutAffectingOthers() throws InterruptedException {
+		World world = new World(new Size(1000, 1000));
+		World otherWorld = new World(new Size(1000, 1000));
+		host.register(world, 200, 1000000000L);
+		host.register(otherWorld, 200, 1000000000L);
+		IllegalStateException failure = new IllegalStateException();
+		host.execute(world, w -> {
+			throw failure;
+		});
+		long deadline = System.nanoTime() + 10000000000L;
+		while (host.getFailure(world) == null) {
+			assertTrue(System.nanoTime() < deadline);
+			Thread.sleep(5);
+		}
+		assertSame(failure, host.getFailure(world));
+		assertTrue(host.hasAsWorld(world));
+		long ticks = host.getNbTicks(world);
+		waitForTicks(otherWorld, host.getNbTicks(otherWorld) + 5);
+		assertEquals(ticks, host.getNbTicks(world));
+		assertNull(host.getFailure(otherWorld));
+		host.unregister(world);
+		assertFalse(host.hasAsWorld(world));
+	}
+
+	@Test
+	public void testWorldWithOverflowingProgramIsStopped() throws InterruptedException {
+		World world = new World(new Size(1000, 1000));
+		Ship ship = new Ship(new Vector(500, 500), new Vector(0, 0), 11, 0, 1E20);
+		ship.loadProgram(ProgramParser.parseProgramFromString("def f { return f(); } print f();", new ProgramFactory()));
+		world.addEntity(ship);
+		host.register(world, 200, 1000000000L);
+		long deadline = System.nanoTime() + 10000000000L;
+		while (host.getFailure(world) == null) {
+			assertTrue(System.nanoTime() < deadline);
+			Thread.sleep(5);
+		}
+		assertTrue(host.getFailure(world) instanceof StackOverflowError);
+		long skippedTicks = host.getNbSkippedTicks(world);
+		Thread.sleep(50);
+		assertEquals(skippedTicks, host.getNbSkippedTicks(world));
+		assertEquals(0, host.getNbTicks(world));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegisterTwice() {
+		World world = new World(new Size(1000, 1000));
+		host.register(world, 100, 1000000L);
+		host.register(world, 100, 1000000L);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegisterInvalidRate() {
+		host.register(new World(new Size(1000, 1000)), 0, 1000000L);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRegisterAfterShutdown() {
+		host.shutdown();
+		host.register(new World(new Size(1000, 1000)), 100, 1000000L);
+	}
+
+	/**
+	 * Wait until the given world completed the given number of ticks.
+	 */
+	private void waitForTicks(World world, long nbTicks) throws InterruptedException {
+		long deadline = System.nanoTime() + 10000000000L;
+		while (host.getNbTicks(world) < nbTicks) {
+			assertTrue(System.nanoTime() < deadline);
+			Thread.sleep(5);
+		}
+	}
+}
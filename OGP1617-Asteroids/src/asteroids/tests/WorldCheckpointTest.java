@@ -0,0 +1,160 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Bullet;
+import asteroids.model.Planetoid;
+import asteroids.model.Program;
+import asteroids.model.Ship;
+import asteroids.model.Size;
+import asteroids.model.Vector;
+import asteroids.model.World;
+import asteroids.model.WorldCheckpoint;
+import asteroids.part3.programs.internal.ProgramParser;
+import asteroids.programs.ProgramFactory;
+
+public class WorldCheckpointTest {
+
+	@Test
+	public void testCheckpointRestoresProgramState() throws IOException {
+		World world = new World(new Size(1000, 1000), 3);
+		Ship ship = new Ship(new Vector(100, 100), new Vector(0, 0), 11, 0, 1E20);
+		world.addEntity(ship);
+		String code = "x := 0.0; e := self; print e; while x < 5.0 { turn 0.1; x := x + 1.0; } print x;";
+		ship.loadProgram(ProgramParser.parseProgramFromString(code, new ProgramFactory()));
+		world.evolve(0.3, null);
+		assertFalse(ship.getProgram().isExecuted());
+		Path path = Files.createTempFile("world", ".checkpoint");
+		try {
+			WorldCheckpoint.save(world, path);
+			World restored = WorldCheckpoint.load(path);
+			Ship restoredShip = restored.getShips().iterator().next();
+			Program program = restoredShip.getProgram();
+			assertNotNull(program);
+			assertEquals(code, program.getSource());
+			assertEquals(ship.getProgram().getTime(), program.getTime(), 0);
+			assertEquals(ship.getProgram().getGoalLocation(), program.getGoalLocation());
+			assertEquals(1.0, program.getGlobalVariables().get("x"));
+			assertSame(restoredShip, program.getGlobalVariables().get("e"));
+			assertEquals(ship.getOrientation(), restoredShip.getOrientation(), 0);
+
+			List<Object> printed = ship.executeProgram(1.0);
+			List<Object> restoredPrinted = restoredShip.executeProgram(1.0);
+			assertEquals(Arrays.asList(ship, 5.0), printed);
+			assertEquals(Arrays.asList(restoredShip, 5.0), restoredPrinted);
+			assertEquals(ship.getOrientation(), restoredShip.getOrientation(), 0);
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void testLoadFirstVersionCheckpoint() throws IOException {
+		World world = new World(new Size(1000, 1000), 5);
+		world.addEntity(new Ship(new Vector(100, 100), new Vector(10, 0), 11, 0, 1E20));
+		world.addEntity(new Asteroid(new Vector(500, 500), new Vector(0, 20), 10));
+		Path path = Files.createTempFile("world", ".checkpoint");
+		try {
+			WorldCheckpoint.save(world, path);
+			byte[] bytes = Files.readAllBytes(path);
+			// The first version has no section with programs, which is empty here.
+			byte[] firstVersion = Arrays.copyOf(bytes, bytes.length - 4);
+			ByteBuffer.wrap(firstVersion).order(ByteOrder.LITTLE_ENDIAN).putInt(4, 1);
+			Files.write(path, firstVersion);
+			World restored = WorldCheckpoint.load(path);
+			assertEquals(2, restored.getNbEntities());
+			assertEquals(world.getShips().iterator().next().getPosition(),
+					restored.getShips().iterator().next().getPosition());
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void testCheckpointRestoresManyEntities() throws IOException {
+		World world = new World(new Size(3000, 3000));
+		for (int i = 0; i < 2500; i++)
+			world.addEntity(new Asteroid(new Vector(30 + 60 * (i % 50), 30 + 60 * (i / 50)), new Vector(5, -5), 10));
+		Path path = Files.createTempFile("world", ".checkpoint");
+		try {
+			WorldCheckpoint.save(world, path);
+			World restored = WorldCheckpoint.load(path);
+			assertEquals(2500, restored.getNbEntities());
+			assertEquals(2500, restored.getAsteroids().size());
+			assertEquals(world.getAsteroids().iterator().next().getPosition(),
+					restored.getAsteroids().iterator().next().getPosition());
+			assertNotNull(restored.returnEntityGivenPosition(new Vector(1530, 1530)));
+			world.evolve(10, null);
+			restored.evolve(10, null);
+			assertEquals(world.getAsteroids().iterator().next().getPosition(),
+					restored.getAsteroids().iterator().next().getPosition());
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void testCheckpointRestoresWorld() throws IOException {
+		World world = new World(new Size(1000, 1000), 42);
+		Ship ship = new Ship(new Vector(100, 100), new Vector(10, 5), 11, 1, 1E20);
+		ship.loadBullet(new Bullet(new Vector(100, 100), new Vector(0, 0), 2));
+		ship.loadBullet(new Bullet(new Vector(100, 100), new Vector(0, 0), 2));
+		ship.thrustOn();
+		world.addEntity(ship);
+		world.addEntity(new Planetoid(new Vector(500, 500), new Vector(-20, 0), 40, 0));
+		world.addEntity(new Asteroid(new Vector(800, 200), new Vector(0, 30), 10));
+		ship.fireBullet();
+		world.evolve(1.5, null);
+		Path path = Files.createTempFile("world", ".checkpoint");
+		try {
+			WorldCheckpoint.save(world, path);
+			World restored = WorldCheckpoint.load(path);
+			assertEquals(world.getSize(), restored.getSize());
+			assertEquals(world.getSeed(), restored.getSeed());
+			assertEquals(world.getNbRandomDraws(), restored.getNbRandomDraws());
+			assertEquals(world.getSimulationTime(), restored.getSimulationTime(), 0);
+			assertEquals(world.getNbEntities(), restored.getNbEntities());
+			Ship restoredShip = restored.getShips().iterator().next();
+			assertEquals(ship.getPosition(), restoredShip.getPosition());
+			assertEquals(ship.getOrientation(), restoredShip.getOrientation(), 0);
+			assertEquals(ship.getNbBullets(), restoredShip.getNbBullets());
+			assertEquals(ship.getTotalMass(), restoredShip.getTotalMass(), 0);
+			assertTrue(restoredShip.getThrusterState());
+			Bullet restoredBullet = restored.getBullets().iterator().next();
+			assertSame(restoredShip, restoredBullet.getSourceShip());
+			Planetoid planetoid = world.getPlanetoids().iterator().next();
+			Planetoid restoredPlanetoid = restored.getPlanetoids().iterator().next();
+			assertEquals(planetoid.getTotalDistanceTraveled(), restoredPlanetoid.getTotalDistanceTraveled(), 0);
+			assertEquals(planetoid.getRadius(), restoredPlanetoid.getRadius(), 0);
+			assertEquals(planetoid.getMass(), restoredPlanetoid.getMass(), 0);
+			assertEquals(restoredBullet.getMass(), world.getBullets().iterator().next().getMass(), 0);
+			world.evolve(3, null);
+			restored.evolve(3, null);
+			assertEquals(ship.getPosition(), restoredShip.getPosition());
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadInvalidCheckpoint() throws IOException {
+		Path path = Files.createTempFile("world", ".checkpoint");
+		try {
+			Files.write(path, new byte[100]);
+			WorldCheckpoint.load(path);
+		} finally {
+			Files.delete(path);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Bullet;
+import asteroids.model.Entity;
+import asteroids.model.Planetoid;
+import asteroids.model.Ship;
+import asteroids.model.Size;
+import asteroids.model.Vector;
+import asteroids.model.World;
+import asteroids.model.WorldJournal;
+import asteroids.model.WorldReplayer;
+import asteroids.part3.programs.internal.ProgramParser;
+import asteroids.programs.ProgramFactory;
+
+public class WorldJournalTest {
+
+	@Test
+	public void testJournalReplaysRun() throws IOException {
+		World world = new World(new Size(300, 300), 7);
+		Ship ship = new Ship(new Vector(100, 100), new Vector(40, 10), 11, 0, 1E20);
+		Ship ship2 = new Ship(new Vector(200, 100), new Vector(-30, 20), 11, 0, 1E20);
+		for (int i = 0; i < 3; i++)
+			ship.loadBullet(new Bullet(new Vector(100, 100), new Vector(0, 0), 2));
+		world.addEntity(ship);
+		world.addEntity(ship2);
+		world.addEntity(new Asteroid(new Vector(150, 250), new Vector(10, -50), 10));
+		Path checkpoint = Files.createTempFile("world", ".checkpoint");
+		Path journalPath = Files.createTempFile("world", ".journal");
+		try {
+			WorldJournal journal = WorldJournal.start(world, checkpoint, journalPath);
+			ship.turn(0.5);
+			ship.fireBullet();
+			ship2.thrustOn();
+			world.evolve(1, null);
+			ship2.thrustOff();
+			ship.fireBullet();
+			world.evolveIncrementally(2, Long.MAX_VALUE, 1, null);
+			world.evolveIncrementally(1, Long.MAX_VALUE, 1000, null);
+			world.evolve(3, null);
+			journal.close();
+			assertTrue(journal.isClosed());
+
+			WorldReplayer replayer = new WorldReplayer(checkpoint, journalPath);
+			World replayed = replayer.replay();
+			assertEquals(journal.getNbRecords(), replayer.getNbRecords());
+			assertEquals(0, replayer.getNbDivergences());
+			assertEquals(world.getSimulationTime(), replayed.getSimulationTime(), 0);
+			assertEquals(world.getLag(), replayed.getLag(), 0);
+			assertEquals(world.getNbEntities(), replayed.getNbEntities());
+			List<Ship> ships = new ArrayList<>(world.getShips());
+			List<Ship> replayedShips = new ArrayList<>(replayed.getShips());
+			for (int i = 0; i < ships.size(); i++) {
+				assertEquals(ships.get(i).getPosition(), replayedShips.get(i).getPosition());
+				assertEquals(ships.get(i).getNbBullets(), replayedShips.get(i).getNbBullets());
+			}
+		} finally {
+			Files.delete(checkpoint);
+			Files.delete(journalPath);
+		}
+	}
+
+	@Test
+	public void testJournalReplaysProgramCommandsOnce() throws IOException {
+		World world = new World(new Size(1000, 1000), 11);
+		Ship ship = new Ship(new Vector(500, 500), new Vector(0, 0), 11, 0, 1E20);
+		world.addEntity(ship);
+		ship.loadProgram(ProgramParser.parseProgramFromString("while self == self { turn 0.1; }", new ProgramFactory()));
+		Path checkpoint = Files.createTempFile("world", ".checkpoint");
+		Path journalPath = Files.createTempFile("world", ".journal");
+		try {
+			world.evolve(0.3, null);
+			WorldJournal journal = WorldJournal.start(world, checkpoint, journalPath);
+			for (int step = 0; step < 5; step++)
+				world.evolve(0.5, null);
+			journal.close();
+
+			WorldReplayer replayer = new WorldReplayer(checkpoint, journalPath);
+			World replayed = replayer.replay();
+			Ship replayedShip = replayed.getShips().iterator().next();
+			assertNull(replayedShip.getProgram());
+			assertEquals(0, replayer.getNbDivergences());
+			assertEquals(ship.getOrientation(), replayedShip.getOrientation(), 0);
+		} finally {
+			Files.delete(checkpoint);
+			Files.delete(journalPath);
+		}
+	}
+
+	@Test
+	public void testJournalStartedOnEvolvedWorldReplaysRun() throws IOException {
+		World world = new World(new Size(1000, 1000), 5);
+		for (int i = 0; i < 100; i++) {
+			Vector position = new Vector(50 + 90 * (i % 10), 50 + 90 * (i / 10));
+			Vector velocity = new Vector(60 * Math.cos(i), 60 * Math.sin(i));
+			if (i % 3 == 0)
+				world.addEntity(new Planetoid(position, velocity, 20, 0));
+			else
+				world.addEntity(new Asteroid(position, velocity, 15));
+		}
+		// The entities have bounced off the boundary and the planetoids have shrunk.
+		for (int step = 0; step < 10; step++)
+			world.evolve(0.5, null);
+		Path checkpoint = Files.createTempFile("world", ".checkpoint");
+		Path journalPath = Files.createTempFile("world", ".journal");
+		try {
+			WorldJournal journal = WorldJournal.start(world, checkpoint, journalPath);
+			for (int step = 0; step < 50; step++)
+				world.evolve(0.5, null);
+			journal.close();
+
+			WorldReplayer replayer = new WorldReplayer(checkpoint, journalPath);
+			World replayed = replayer.replay();
+			assertEquals(0, replayer.getNbDivergences());
+			List<Entity> entities = new ArrayList<>(world.getEntities());
+			List<Entity> replayedEntities = new ArrayList<>(replayed.getEntities());
+			assertEquals(entities.size(), replayedEntities.size());
+			for (int i = 0; i < entities.size(); i++) {
+				assertEquals(entities.get(i).getPosition(), replayedEntities.get(i).getPosition());
+				assertEquals(entities.get(i).getMass(), replayedEntities.get(i).getMass(), 0);
+			}
+		} finally {
+			Files.delete(checkpoint);
+			Files.delete(journalPath);
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Size;
+import asteroids.model.Vector;
+import asteroids.model.World;
+import asteroids.model.WorldMetrics;
+
+public class WorldMetricsTest {
+
+	@Test
+	public void testRecordsMetrics() {
+		World world = new World(new Size(1000, 1000));
+		world.addEntity(new Asteroid(new Vector(500, 500), new Vector(100, 0), 10));
+		world.addEntity(new Asteroid(new Vector(700, 530), new Vector(0, 0), 10));
+		assertNull(world.getMetrics());
+		world.setRecordsMetrics(true);
+		for (int i = 0; i < 50; i++)
+			world.evolve(0.1, null);
+		WorldMetrics.Snapshot metrics = world.getMetrics().getSnapshot();
+		assertEquals(50, metrics.getNbEvolves());
+		assertEquals(1, metrics.getNbCollisions(WorldMetrics.CollisionKind.BOUNDARY));
+		assertEquals(0, metrics.getNbCollisions(WorldMetrics.CollisionKind.ENTITY));
+		assertTrue(metrics.getNbPairsTested() > 0);
+		assertTrue(metrics.getNbEntitiesAdvanced() >= 100);
+		long total = 0;
+		for (int bucket = 0; bucket < WorldMetrics.NB_BUCKETS; bucket++)
+			total += metrics.getNbSamples(WorldMetrics.Phase.EVOLVE, bucket);
+		assertEquals(50, total);
+		assertTrue(metrics.getPercentileNanos(WorldMetrics.Phase.EVOLVE, 50) <= metrics.getMaxNanos(WorldMetrics.Phase.EVOLVE));
+		assertTrue(metrics.getTotalNanos(WorldMetrics.Phase.ADVANCE) <= metrics.getTotalNanos(WorldMetrics.Phase.EVOLVE));
+		assertTrue(metrics.export().contains("collisions.boundary 1\n"));
+		if (WorldMetrics.measuresAllocations())
+			assertTrue(metrics.getMaxAllocatedBytes() <= metrics.getAllocatedBytes());
+		else
+			assertEquals(0, metrics.getAllocatedBytes());
+		assertTrue(metrics.export().contains("allocated_bytes "));
+		world.getMetrics().reset();
+		assertEquals(0, world.getMetrics().getSnapshot().getNbEvolves());
+		world.setRecordsMetrics(false);
+		assertNull(world.getMetrics());
+	}
+}
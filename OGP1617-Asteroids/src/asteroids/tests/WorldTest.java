@@ -1,19 +1,40 @@
 package asteroids.tests;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Bullet;
 import asteroids.model.Entity;
+import asteroids.model.Planetoid;
 import asteroids.model.Ship;
 import asteroids.model.Size;
 import asteroids.model.Vector;
 import asteroids.model.World;
+import asteroids.model.WorldSnapshot;
+import asteroids.part2.CollisionListener;
+import asteroids.part3.programs.internal.ProgramParser;
+import asteroids.programs.ProgramFactory;
 
 
 
@@ -29,6 +50,68 @@ public class WorldTest {
 		assertTrue(ship.equals(world.returnEntityGivenPosition(new Vector(51,51))));
 	}
 	
+	@Test
+	public void testEntitiesAtSameDistanceFromOrigin() {
+		World world = new World(new Size(1000, 1000));
+		Ship ship = new Ship(new Vector(300, 400), new Vector(0, 0), 11, 0, 1E20);
+		Ship ship2 = new Ship(new Vector(400, 300), new Vector(0, 0), 11, 0, 1E20);
+		Ship ship3 = new Ship(new Vector(500, 20), new Vector(0, 0), 11, 0, 1E20);
+		world.addEntity(ship);
+		world.addEntity(ship2);
+		world.addEntity(ship3);
+		world.removeEntity(ship);
+		assertFalse(world.hasAsEntity(ship));
+		assertTrue(world.hasAsEntity(ship2));
+		assertTrue(world.hasAsEntity(ship3));
+		assertEquals(2, world.getNbEntities());
+		assertNull(world.returnEntityGivenPosition(new Vector(300, 400)));
+		assertSame(ship2, world.returnEntityGivenPosition(new Vector(400, 300)));
+		assertSame(ship3, world.returnEntityGivenPosition(new Vector(500, 20)));
+	}
+	
+	@Test
+	public void testShipsViewFollowsWorld() {
+		World world = new World(new Size(1000, 1000));
+		Set<Ship> ships = world.getShips();
+		Ship ship = new Ship(new Vector(100, 100), new Vector(0, 0), 11, 0, 1E20);
+		Ship ship2 = new Ship(new Vector(200, 100), new Vector(0, 0), 11, 0, 1E20);
+		world.addEntity(ship);
+		world.addEntity(ship2);
+		world.addEntity(new Asteroid(new Vector(300, 100), new Vector(0, 0), 10));
+		assertEquals(2, ships.size());
+		assertTrue(ships.contains(ship2));
+		for (Ship each: ships)
+			world.removeEntity(each);
+		assertTrue(ships.isEmpty());
+		assertEquals(1, world.getAsteroids().size());
+		try {
+			ships.add(ship);
+			fail();
+		} catch (UnsupportedOperationException exc) {
+		}
+	}
+	
+	@Test
+	public void testEntitiesKeepStateWhenRemoved() {
+		World world = new World(new Size(1000, 1000));
+		Ship ship = new Ship(new Vector(100, 100), new Vector(10, 0), 11, 0, 1E20);
+		Ship ship2 = new Ship(new Vector(100, 300), new Vector(0, 10), 11, 0, 1E20);
+		Asteroid asteroid = new Asteroid(new Vector(500, 500), new Vector(-10, -10), 20);
+		world.addEntity(ship);
+		world.addEntity(ship2);
+		world.addEntity(asteroid);
+		world.evolve(2, null);
+		world.removeEntity(ship);
+		assertEquals(new Vector(120, 100), ship.getPosition());
+		assertEquals(new Vector(10, 0), ship.getVelocity());
+		assertEquals(1E20, ship.getMass(), 0);
+		world.evolve(1, null);
+		assertEquals(new Vector(120, 100), ship.getPosition());
+		assertEquals(new Vector(100, 330), ship2.getPosition());
+		assertEquals(new Vector(470, 470), asteroid.getPosition());
+		assertEquals(20, asteroid.getRadius(), 0);
+	}
+	
 	@Test 
 	public void testEntityIsInWorld() {
 		World world = new World(new Size(100,100));
@@ -82,4 +165,322 @@ public class WorldTest {
 		
 	}
 
+	@Test
+	public void testEvolveMultipleCollisions() {
+		World world = new World(new Size(100, 100));
+		Ship ship = new Ship(new Vector(20, 50), new Vector(-10, 0), 11, 0, 1E20);
+		Ship ship2 = new Ship(new Vector(80, 50), new Vector(10, 0), 11, 0, 1E20);
+		world.addEntity(ship);
+		world.addEntity(ship2);
+		// Both ships bounce off a wall after 0.9s and hit each other after another 2.8s.
+		world.evolve(4, null);
+		assertEquals(-10, ship.getVelocity().getXComponent(), 0.0001);
+		assertEquals(10, ship2.getVelocity().getXComponent(), 0.0001);
+		assertEquals(36, ship.getPosition().getXComponent(), 0.0001);
+		assertEquals(64, ship2.getPosition().getXComponent(), 0.0001);
+	}
+	
+	@Test
+	public void testTimeNextCollisionWithoutCollisions() {
+		World world = new World(new Size(100, 100));
+		Ship ship = new Ship(new Vector(50, 50), new Vector(0, 0), 11, 0, 0);
+		world.addEntity(ship);
+		assertEquals(Double.POSITIVE_INFINITY, world.getTimeNextCollision(), 0);
+		assertEquals(null, world.getPositionNextCollision());
+	}
+
+	@Test
+	public void testNextCollisionMatchesBruteForce() {
+		World world = new World(new Size(10000, 10000));
+		World bruteForceWorld = new World(new Size(10000, 10000));
+		bruteForceWorld.setBroadPhase(null);
+		// The entities collide with each other long before any of them reaches the boundary.
+		for (int i = 0; i < 1600; i++) {
+			Vector position = new Vector(1000 + 150 * (i % 40), 1000 + 150 * (i / 40));
+			Vector velocity = new Vector(5 * Math.cos(i), 5 * Math.sin(i));
+			world.addEntity(new Asteroid(position, velocity, 10));
+			bruteForceWorld.addEntity(new Asteroid(position, velocity, 10));
+		}
+		for (int step = 0; step < 3; step++) {
+			double time = bruteForceWorld.getTimeNextCollision();
+			assertTrue(time > 0 && time < 100);
+			assertEquals(time, world.getTimeNextCollision(), 0);
+			assertEquals(bruteForceWorld.getPositionNextCollision(), world.getPositionNextCollision());
+			world.evolve(time + 1, null);
+			bruteForceWorld.evolve(time + 1, null);
+		}
+	}
+
+	@Test
+	public void testClosestEntityOfTypeMatchesScan() {
+		World world = new World(new Size(1000, 1000));
+		for (int i = 0; i < 40; i++) {
+			Vector position = new Vector(50 + 23 * i, 60 + 211 * (i % 4));
+			Vector velocity = new Vector(20 * Math.cos(3 * i), 20 * Math.sin(3 * i));
+			if (i % 3 == 0)
+				world.addEntity(new Asteroid(position, velocity, 8));
+			else
+				world.addEntity(new Ship(position, velocity, 11, 0, 1E20));
+		}
+		for (int step = 0; step < 20; step++) {
+			world.evolve(0.5, null);
+			for (Entity ship: world.getEntitiesOfType(Ship.class))
+				for (Class<? extends Entity> type: Arrays.asList(Ship.class, Asteroid.class, Entity.class)) {
+					double minDistance = Double.POSITIVE_INFINITY;
+					for (Entity entity: world.getEntitiesOfType(type))
+						if (entity != ship)
+							minDistance = Math.min(minDistance, entity.getPosition().getDistanceBetween(ship.getPosition()));
+					Entity closest = world.getClosestEntityOfType(type, (Ship) ship);
+					assertNotSame(ship, closest);
+					assertTrue(type.isInstance(closest));
+					assertEquals(minDistance, closest.getPosition().getDistanceBetween(ship.getPosition()), 1E-9);
+				}
+		}
+	}
+	
+	@Test
+	public void testClosestEntityOfTypeAfterAddAndRemove() {
+		World world = new World(new Size(1000, 1000));
+		Ship ship = new Ship(new Vector(500, 500), new Vector(0, 0), 11, 0, 1E20);
+		Asteroid near = new Asteroid(new Vector(560, 500), new Vector(0, 0), 8);
+		Asteroid far = new Asteroid(new Vector(800, 500), new Vector(-100, 0), 8);
+		world.addEntity(ship);
+		world.addEntity(near);
+		world.addEntity(far);
+		assertSame(near, world.getClosestEntityOfType(Asteroid.class, ship));
+		assertNull(world.getClosestEntityOfType(Bullet.class, ship));
+		Bullet bullet = new Bullet(new Vector(500, 545), new Vector(0, 0), 3);
+		world.addEntity(bullet);
+		assertSame(bullet, world.getClosestEntityOfType(Bullet.class, ship));
+		assertSame(bullet, world.getClosestEntityOfType(Entity.class, ship));
+		assertSame(near, world.getClosestEntityOfType(Asteroid.class, ship));
+		world.removeEntity(near);
+		assertSame(far, world.getClosestEntityOfType(Asteroid.class, ship));
+		assertSame(bullet, world.getClosestEntityOfType(Bullet.class, ship));
+		world.evolve(2.6, null);
+		assertEquals(540, far.getPosition().getXComponent(), 1E-9);
+		assertSame(far, world.getClosestEntityOfType(Entity.class, ship));
+	}
+
+	@Test
+	public void testParallelEvolveMatchesSequential() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			// More entities than the grain of the parallel moves, with the default grid.
+			World world = new World(new Size(5000, 5000));
+			World parallelWorld = new World(new Size(5000, 5000));
+			parallelWorld.setForkJoinPool(pool);
+			List<Ship> ships = new ArrayList<>();
+			List<Ship> parallelShips = new ArrayList<>();
+			for (int i = 0; i < 6000; i++) {
+				Vector position = new Vector(100 + 50 * (i % 80), 100 + 50 * (i / 80));
+				Vector velocity = new Vector(40 * Math.cos(i), 40 * Math.sin(i));
+				ships.add(new Ship(position, velocity, 11, i, 1E20));
+				parallelShips.add(new Ship(position, velocity, 11, i, 1E20));
+				world.addEntity(ships.get(i));
+				parallelWorld.addEntity(parallelShips.get(i));
+				if (i % 7 == 0) {
+					ships.get(i).thrustOn();
+					parallelShips.get(i).thrustOn();
+				}
+			}
+			for (int step = 0; step < 5; step++) {
+				world.evolve(0.1, null);
+				parallelWorld.evolve(0.1, null);
+			}
+			for (int i = 0; i < ships.size(); i++) {
+				assertEquals(ships.get(i).getPosition(), parallelShips.get(i).getPosition());
+				assertEquals(ships.get(i).getVelocity(), parallelShips.get(i).getVelocity());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void testSteadyStateEvolveDoesNotAllocate() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+		World world = new World(new Size(1000, 1000));
+		for (int i = 0; i < 20; i++) {
+			Ship ship = new Ship(new Vector(100 + 40 * i, 100 + 40 * i), new Vector(150 * Math.cos(i), 150 * Math.sin(i)),
+					11, 0, 1E20);
+			world.addEntity(ship);
+			ship.thrustOn();
+		}
+		int[] nbCollisions = new int[2];
+		CollisionListener listener = new CollisionListener() {
+			@Override
+			public void boundaryCollision(Object entity, double x, double y) {
+				nbCollisions[0]++;
+			}
+			@Override
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+				nbCollisions[1]++;
+			}
+		};
+		for (int step = 0; step < 100; step++)
+			world.evolve(0.01, listener);
+		// Safepoints for the compiler may retire the allocation buffer of this thread,
+		// which counts as allocated, so a single window without allocations suffices.
+		long thread = Thread.currentThread().getId();
+		long leastAllocated = Long.MAX_VALUE;
+		for (int window = 0; window < 5 && leastAllocated > 0; window++) {
+			long before = threads.getThreadAllocatedBytes(thread);
+			for (int step = 0; step < 200; step++)
+				world.evolve(0.01, listener);
+			leastAllocated = Math.min(leastAllocated, threads.getThreadAllocatedBytes(thread) - before);
+		}
+		assertEquals(0, leastAllocated);
+		assertTrue(nbCollisions[0] > 0);
+		assertTrue(nbCollisions[1] > 0);
+	}
+	
+	@Test
+	public void testSeededWorldsEvolveTheSame() {
+		World world = new World(new Size(1000, 1000), 42);
+		World otherWorld = new World(new Size(1000, 1000), 42);
+		Ship ship = new Ship(new Vector(100, 500), new Vector(100, 0), 11, 0, 1E20);
+		Ship otherShip = new Ship(new Vector(100, 500), new Vector(100, 0), 11, 0, 1E20);
+		world.addEntity(ship);
+		world.addEntity(new Planetoid(new Vector(500, 500), new Vector(0, 0), 50, 0));
+		otherWorld.addEntity(otherShip);
+		otherWorld.addEntity(new Planetoid(new Vector(500, 500), new Vector(0, 0), 50, 0));
+		world.setFixedTimeStep(0.01);
+		otherWorld.setFixedTimeStep(0.01);
+		for (int i = 0; i < 50; i++)
+			assertEquals(10, world.evolveInFixedSteps(0.1, null));
+		for (int i = 0; i < 200; i++)
+			otherWorld.evolveInFixedSteps(0.025, null);
+		assertEquals(2, world.getNbRandomDraws());
+		assertEquals(2, otherWorld.getNbRandomDraws());
+		assertEquals(ship.getPosition(), otherShip.getPosition());
+		assertEquals(ship.getVelocity(), otherShip.getVelocity());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testEvolveInFixedStepsWithoutStep() {
+		new World(new Size(1000, 1000)).evolveInFixedSteps(0.1, null);
+	}
+	
+	@Test
+	public void testEvolveIncrementallyCatchesUp() {
+		World world = new World(new Size(100, 100));
+		Ship ship = new Ship(new Vector(50, 50), new Vector(1000, 0), 11, 0, 1E20);
+		world.addEntity(ship);
+		assertFalse(world.evolveIncrementally(1, Long.MAX_VALUE, 1, null));
+		assertTrue(world.getLag() > 0);
+		assertEquals(1 - world.getLag(), world.getSimulationTime(), 1E-9);
+		int nbCalls = 1;
+		while (! world.evolveIncrementally(0, System.nanoTime(), 3, null))
+			nbCalls++;
+		assertTrue(nbCalls > 1);
+		assertEquals(0, world.getLag(), 1E-9);
+		assertEquals(1, world.getSimulationTime(), 1E-9);
+	}
+
+	@Test
+	public void testPublishedSnapshotsAreImmutable() throws InterruptedException {
+		World world = new World(new Size(1000, 1000));
+		Ship ship = new Ship(new Vector(100, 100), new Vector(10, 0), 11, 0, 1E20);
+		world.addEntity(ship);
+		world.addEntity(new Asteroid(new Vector(500, 500), new Vector(0, 0), 10));
+		assertNull(world.getPublishedSnapshot());
+		world.setPublishesSnapshots(true);
+		WorldSnapshot first = world.getPublishedSnapshot();
+		assertEquals(2, first.getNbEntities());
+		int index = first.indexOf(ship.getIdentifier());
+		assertEquals(WorldSnapshot.EntityType.SHIP, first.getType(index));
+		List<Double> times = new ArrayList<>();
+		Thread reader = new Thread(() -> {
+			for (int i = 0; i < 1000; i++)
+				times.add(world.getPublishedSnapshot().getSimulationTime());
+		});
+		reader.start();
+		for (int i = 0; i < 100; i++)
+			world.evolve(0.02, null);
+		reader.join();
+		for (int i = 1; i < times.size(); i++)
+			assertTrue(times.get(i - 1) <= times.get(i));
+		WorldSnapshot last = world.getPublishedSnapshot();
+		assertEquals(100, first.getXPosition(index), 0);
+		assertEquals(120, last.getXPosition(last.indexOf(ship.getIdentifier())), 1E-9);
+		assertEquals(2, last.getSimulationTime(), 1E-9);
+		world.setPublishesSnapshots(false);
+		assertNull(world.getPublishedSnapshot());
+	}
+
+	@Test
+	public void testFlightRecorderEvents() throws IOException {
+		World world = new World(new Size(1000, 1000));
+		Ship ship = new Ship(new Vector(100, 100), new Vector(0, 0), 11, 0, 1E20);
+		ship.loadProgram(ProgramParser.create(new ProgramFactory()).parseString("while (1 < 2) { skip; }").getSuccessValue());
+		world.addEntity(ship);
+		world.addEntity(new Asteroid(new Vector(500, 500), new Vector(100, 0), 10));
+		Path path = Files.createTempFile("world", ".jfr");
+		try (Recording recording = new Recording()) {
+			for (String name: new String[] {"asteroids.Evolve", "asteroids.CollisionResolution", "asteroids.ProgramSlice"})
+				recording.enable(name).withThreshold(Duration.ZERO);
+			recording.start();
+			for (int i = 0; i < 50; i++)
+				world.evolve(0.1, null);
+			recording.stop();
+			recording.dump(path);
+			Map<String, Integer> counts = new HashMap<>();
+			for (RecordedEvent event: RecordingFile.readAllEvents(path))
+				counts.merge(event.getEventType().getName(), 1, Integer::sum);
+			assertEquals(50, (int) counts.get("asteroids.Evolve"));
+			assertEquals(1, (int) counts.get("asteroids.CollisionResolution"));
+			assertEquals(50, (int) counts.get("asteroids.ProgramSlice"));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void testSimultaneousCollisionsAreAllResolved() {
+		World world = new World(new Size(1000, 1000));
+		Ship left = new Ship(new Vector(300, 500), new Vector(50, 0), 11, 0, 1E20);
+		Ship middle = new Ship(new Vector(500, 500), new Vector(0, 0), 11, 0, 1E20);
+		Ship right = new Ship(new Vector(700, 500), new Vector(-50, 0), 11, 0, 1E20);
+		world.addEntity(left);
+		world.addEntity(middle);
+		world.addEntity(right);
+		List<Object[]> collisions = new ArrayList<>();
+		world.evolve(3.6, new CollisionListener() {
+			@Override
+			public void boundaryCollision(Object entity, double x, double y) {
+				fail();
+			}
+			@Override
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+				collisions.add(new Object[] {entity1, entity2});
+			}
+		});
+		// The middle ship is hit from both sides at once, then bounces back into the left ship.
+		assertEquals(3, collisions.size());
+		for (Object[] collision: collisions)
+			assertTrue(collision[0] == middle || collision[1] == middle);
+		assertEquals(-50, left.getVelocity().getXComponent(), 1E-9);
+		assertEquals(0, middle.getVelocity().getXComponent(), 1E-9);
+		assertEquals(50, right.getVelocity().getXComponent(), 1E-9);
+	}
+	
+	@Test
+	public void testTimeToCollisionBoundaryFollowsChanges() {
+		World world = new World(new Size(1000, 1000));
+		Ship ship = new Ship(new Vector(100, 500), new Vector(10, 0), 11, 0, 1E20);
+		world.addEntity(ship);
+		assertEquals(88.9, ship.getTimeToCollisionBoundary(), 1E-9);
+		world.evolve(1, null);
+		assertEquals(87.9, ship.getTimeToCollisionBoundary(), 1E-9);
+		ship.thrustOn();
+		world.evolve(1, null);
+		double expected = (989 - ship.getPosition().getXComponent()) / ship.getVelocity().getXComponent();
+		assertTrue(ship.getVelocity().getXComponent() > 10);
+		assertEquals(expected, ship.getTimeToCollisionBoundary(), 1E-9);
+		world.removeEntity(ship);
+		assertEquals(Double.POSITIVE_INFINITY, ship.getTimeToCollisionBoundary(), 0);
+	}
+	
 }
@@ -0,0 +1,101 @@
+package asteroids.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CollisionKernelTest {
+
+	@Test
+	public void testTimesMatchTimeToCollisionBitForBit() {
+		Random random = new Random(7);
+		List<Entity> entities = new ArrayList<>();
+		for (int i = 0; i < 101; i++) {
+			Vector position = new Vector(1000 * random.nextDouble(), 1000 * random.nextDouble());
+			Vector velocity = new Vector(200 * random.nextDouble() - 100, 200 * random.nextDouble() - 100);
+			entities.add(new Asteroid(position, velocity, 5 + 30 * random.nextDouble()));
+		}
+		assertMatchesTimeToCollision(entities);
+	}
+
+	@Test
+	public void testTimesMatchTimeToCollisionInEdgeCases() {
+		List<Entity> entities = new ArrayList<>();
+		entities.add(new Ship(new Vector(100, 100), new Vector(10, 0), 20, 0, 1E20));
+		// Overlapping, at the same position and just within the overlap margin.
+		entities.add(new Asteroid(new Vector(110, 100), new Vector(-10, 0), 10));
+		entities.add(new Asteroid(new Vector(100, 100), new Vector(0, 0), 10));
+		entities.add(new Asteroid(new Vector(129.69, 100), new Vector(-10, 0), 10));
+		// Touching and just outside the overlap margin.
+		entities.add(new Asteroid(new Vector(130, 100), new Vector(-10, 0), 10));
+		entities.add(new Asteroid(new Vector(100, 129.71), new Vector(0, -5), 10));
+		// Moving in parallel, with the same and with opposite velocities.
+		entities.add(new Asteroid(new Vector(200, 100), new Vector(10, 0), 10));
+		entities.add(new Asteroid(new Vector(200, 200), new Vector(10, 0), 10));
+		entities.add(new Asteroid(new Vector(200, 150), new Vector(-10, 0), 10));
+		// Grazing, passing by and moving apart.
+		entities.add(new Asteroid(new Vector(300, 130), new Vector(-10, 0), 10));
+		entities.add(new Asteroid(new Vector(300, 131), new Vector(-10, 0), 10));
+		entities.add(new Asteroid(new Vector(300, 129.999999), new Vector(-10, 0), 10));
+		entities.add(new Asteroid(new Vector(0, 100), new Vector(-10, 0), 10));
+		// Head-on and at a sharp angle.
+		entities.add(new Asteroid(new Vector(500, 100), new Vector(-1E6, 0), 10));
+		entities.add(new Asteroid(new Vector(400, 400), new Vector(-3, -3.0000001), 10));
+		assertMatchesTimeToCollision(entities);
+	}
+
+	/**
+	 * Check that both the scalar loop and the loop in use compute, for every
+	 * given entity, the time to collision with every other given entity.
+	 */
+	private static void assertMatchesTimeToCollision(List<Entity> entities) {
+		EntityStore store = new EntityStore();
+		for (Entity entity: entities)
+			store.add(entity);
+		CollisionKernel kernel = new CollisionKernel();
+		for (Entity entity: entities) {
+			kernel.clear();
+			for (Entity other: entities)
+				if (other != entity)
+					kernel.add(other);
+			for (CollisionKernel.Loop loop: new CollisionKernel.Loop[] {CollisionKernel.SCALAR_LOOP, CollisionKernel.getLoop()}) {
+				double[] xs = new double[kernel.size()];
+				double[] ys = new double[kernel.size()];
+				double[] xVelocities = new double[kernel.size()];
+				double[] yVelocities = new double[kernel.size()];
+				double[] radii = new double[kernel.size()];
+				double[] times = new double[kernel.size()];
+				for (int i = 0; i < kernel.size(); i++) {
+					xs[i] = kernel.get(i).getXPosition();
+					ys[i] = kernel.get(i).getYPosition();
+					xVelocities[i] = kernel.get(i).getXVelocity();
+					yVelocities[i] = kernel.get(i).getYVelocity();
+					radii[i] = kernel.get(i).getRadius();
+				}
+				loop.computeTimes(entity.getXPosition(), entity.getYPosition(), entity.getXVelocity(),
+						entity.getYVelocity(), entity.getRadius(), xs, ys, xVelocities, yVelocities, radii,
+						kernel.size(), times);
+				for (int i = 0; i < kernel.size(); i++)
+					assertEquals(Double.doubleToRawLongBits(getExpectedTime(entity, kernel.get(i))),
+							Double.doubleToRawLongBits(times[i]));
+			}
+			kernel.computeTimes(entity, store);
+			for (int i = 0; i < kernel.size(); i++)
+				assertEquals(Double.doubleToRawLongBits(getExpectedTime(entity, kernel.get(i))),
+						Double.doubleToRawLongBits(kernel.getTime(i)));
+		}
+	}
+
+	/**
+	 * Return the time to collision of the given entities, positive infinity if they overlap.
+	 */
+	private static double getExpectedTime(Entity entity, Entity other) {
+		if (entity.overlap(other))
+			return Double.POSITIVE_INFINITY;
+		return entity.getTimeToCollision(other);
+	}
+}